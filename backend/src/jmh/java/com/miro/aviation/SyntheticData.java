@@ -0,0 +1,83 @@
+package com.miro.aviation;
+
+import com.miro.aviation.model.FlightRecording;
+import com.miro.aviation.model.NavPoint;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic datasets for the benchmarks, scaled by row count.
+ */
+public class SyntheticData {
+
+    private static final String[] AIRPORT_TYPES = {"large_airport", "medium_airport", "small_airport", "heliport", "closed"};
+
+    /**
+     * @return A flight CSV in the recorder's format with one sample per second
+     */
+    public static byte[] flightCsv(int rows) {
+        Random random = new Random(rows);
+        StringBuilder csv = new StringBuilder(rows * 64).append("Timestamp,Altitude,Speed,Direction,Position\n");
+        double lat = 60.3172;
+        double lon = 24.9633;
+        for (int i = 0; i < rows; i++) {
+            lat += (random.nextDouble() - 0.5) * 0.01;
+            lon += (random.nextDouble() - 0.5) * 0.01;
+            csv.append(1_700_000_000L + i).append(',')
+                    .append(random.nextInt(40_000)).append(',')
+                    .append(random.nextInt(500)).append(',')
+                    .append(random.nextInt(360)).append(",\"")
+                    .append(String.format(Locale.ROOT, "%.6f, %.6f", lat, lon)).append("\"\n");
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return An OurAirports-style CSV with a mix of airport and non-airport types
+     */
+    public static byte[] airportsCsv(int rows) {
+        Random random = new Random(rows);
+        StringBuilder csv = new StringBuilder(rows * 80).append("id,ident,type,name,latitude_deg,longitude_deg\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append(i).append(",X").append(i).append(',')
+                    .append(AIRPORT_TYPES[random.nextInt(AIRPORT_TYPES.length)]).append(",\"Airport ")
+                    .append(i).append("\",")
+                    .append(latitude(random)).append(',')
+                    .append(random.nextDouble() * 360 - 180).append('\n');
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return Airports spread uniformly over the sphere
+     */
+    public static List<NavPoint> airports(int rows) {
+        Random random = new Random(rows);
+        List<NavPoint> airports = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            airports.add(new NavPoint("X" + i, "small_airport", latitude(random), random.nextDouble() * 360 - 180));
+        }
+        return airports;
+    }
+
+    /**
+     * @return A recording with one sample per second
+     */
+    public static FlightRecording recording(int rows) {
+        Random random = new Random(rows);
+        FlightRecording.Builder builder = FlightRecording.builder("synthetic-" + rows);
+        for (int i = 0; i < rows; i++) {
+            builder.add(1_700_000_000_000L + 1000L * i, 60 + random.nextDouble(), 25 + random.nextDouble(),
+                    random.nextInt(40_000), random.nextInt(500), random.nextInt(360));
+        }
+        return builder.build();
+    }
+
+    private static double latitude(Random random) {
+        return Math.toDegrees(Math.asin(2 * random.nextDouble() - 1)); // uniform on the sphere
+    }
+}
@@ -0,0 +1,49 @@
+package com.miro.aviation.model;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miro.aviation.utils.BinaryFrameWriter;
+import com.miro.aviation.utils.FlightFrameWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization cost of one {@link FlightSnapshot} frame: the Jackson mapping used by the STOMP
+ * message converter against the hand-written JSON and binary frame writers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FlightSnapshotSerializationBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private FlightSnapshot snapshot;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        snapshot = new FlightSnapshot(
+                1_700_000_000_123L,
+                new Attitude(-2.5, 12.25, 271.37),
+                new Altitude(35_012.3, 29.92),
+                new AirSpeed(451.6),
+                new PlaybackProgress(4242, 10_000, 0.4242, 1_700_000_000_000L, 1_700_010_000_000L),
+                new Position(60.317222, 24.963333),
+                3);
+    }
+
+    @Benchmark
+    public byte[] jackson() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(snapshot);
+    }
+
+    @Benchmark
+    public byte[] frameWriterJson() {
+        return FlightFrameWriter.toJson(snapshot);
+    }
+
+    @Benchmark
+    public byte[] frameWriterBinary() {
+        return BinaryFrameWriter.toBinary(snapshot);
+    }
+}
@@ -0,0 +1,109 @@
+package com.miro.aviation.service;
+
+import com.miro.aviation.SyntheticData;
+import com.miro.aviation.model.NavPoint;
+import com.miro.aviation.utils.GeoUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link NavDataService#findNearby} on the grid index, against the linear haversine scan it replaced,
+ * and along an aircraft track with and without the {@link NearbyQueryCache}. The nearest (k = 10)
+ * and box queries use a viewport of about twice the radius.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NavDataServiceBenchmark {
+
+    private static final int QUERIES = 1024;
+    /** Track movement between queries: a new cache cell every ten queries */
+    private static final double TRACK_STEP_DEGREES = NearbyQueryCache.CELL_DEGREES / 10;
+
+    @Param({"1000", "100000", "10000000"})
+    int rows;
+
+    @Param({"10", "50", "250"})
+    double radiusNM;
+
+    private List<NavPoint> airports;
+    private NavDataService service;
+    private NavDataService cachedService;
+    private final double[] latitudes = new double[QUERIES];
+    private final double[] longitudes = new double[QUERIES];
+    private int query;
+    private long trackQuery;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        airports = SyntheticData.airports(rows);
+        service = new NavDataService(new SimpleMeterRegistry(), "", 0);
+        service.reload(airports);
+        cachedService = new NavDataService();
+        cachedService.reload(airports);
+
+        Random random = new Random(7);
+        for (int i = 0; i < QUERIES; i++) {
+            latitudes[i] = random.nextDouble() * 180 - 90;
+            longitudes[i] = random.nextDouble() * 360 - 180;
+        }
+    }
+
+    @Benchmark
+    public List<NavPoint> findNearby() {
+        int q = query++ & (QUERIES - 1);
+        return service.findNearby(latitudes[q], longitudes[q], radiusNM);
+    }
+
+    @Benchmark
+    public List<NavPoint> findNearbyTrack() {
+        long q = trackQuery++;
+        return service.findNearby(trackLatitude(q), trackLongitude(q), radiusNM);
+    }
+
+    @Benchmark
+    public List<NavPoint> findNearbyTrackCached() {
+        long q = trackQuery++;
+        return cachedService.findNearby(trackLatitude(q), trackLongitude(q), radiusNM);
+    }
+
+    @Benchmark
+    public List<NavPoint> findNearest() {
+        int q = query++ & (QUERIES - 1);
+        return service.findNearest(latitudes[q], longitudes[q], 10);
+    }
+
+    @Benchmark
+    public List<NavPoint> findInBox() {
+        int q = query++ & (QUERIES - 1);
+        double half = radiusNM / 60;
+        double lat = Math.max(-90 + half, Math.min(90 - half, latitudes[q]));
+        return service.findInBox(lat - half, longitudes[q] - half, lat + half, longitudes[q] + half);
+    }
+
+    @Benchmark
+    public List<NavPoint> linearScan() {
+        int q = query++ & (QUERIES - 1);
+        List<NavPoint> result = new ArrayList<>();
+        for (NavPoint airport : airports) {
+            if (GeoUtils.distanceNM(latitudes[q], longitudes[q], airport.getLatitude(), airport.getLongitude()) <= radiusNM) {
+                result.add(airport);
+            }
+        }
+        return result;
+    }
+
+    /** Eastbound around the world, weaving between 30° and 60° north, without repeating soon */
+    private static double trackLatitude(long q) {
+        return 45 + 15 * Math.sin(q * TRACK_STEP_DEGREES / 20);
+    }
+
+    private static double trackLongitude(long q) {
+        return (q * TRACK_STEP_DEGREES) % 360 - 180;
+    }
+}
@@ -0,0 +1,93 @@
+package com.miro.aviation.service;
+
+import com.miro.aviation.SyntheticData;
+import com.miro.aviation.model.FlightSnapshot;
+import com.miro.aviation.utils.FlightRecordingFile;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One playback session over a memory-mapped recording, ticked with a clock that moves
+ * 50 ms (one broadcast period) per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RecordedFlightDataProviderBenchmark {
+
+    @Param({"1000", "100000", "10000000"})
+    int rows;
+
+    @Param({"1", "1000"})
+    double speed;
+
+    private Path dir;
+    private SteppingClock clock;
+    private RecordedFlightDataProvider provider;
+    private final FlightSnapshot reused = new FlightSnapshot();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("aviation-jmh");
+        FlightRecordingFile.write(SyntheticData.recording(rows), dir.resolve("synthetic.avfr"));
+
+        clock = new SteppingClock();
+        provider = new RecordedFlightDataProvider(clock, new FlightRecordingRepository(dir.toString()));
+        provider.initialize("/flights/synthetic.avfr");
+        provider.setSpeedMultiplier(speed);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        provider.close();
+        Files.deleteIfExists(dir.resolve("synthetic.avfr"));
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public int tick() {
+        clock.step();
+        provider.tick();
+        int index = provider.getProgress().currentIndex();
+        if (index == rows - 1) {
+            provider.reset(); // loop the recording
+        }
+        return index;
+    }
+
+    @Benchmark
+    public FlightSnapshot getCurrentSnapshot() {
+        return provider.getCurrentSnapshot();
+    }
+
+    /** The broadcast loop's form: fills the session's snapshot, expected to allocate nothing per op */
+    @Benchmark
+    public FlightSnapshot getCurrentSnapshotReused() {
+        return provider.getCurrentSnapshot(reused);
+    }
+
+    @Benchmark
+    public byte[] getCurrentFrame() {
+        return provider.getCurrentFrame(FrameEncoding.JSON);
+    }
+
+    private static final class SteppingClock extends Clock {
+        private long millis = 1_700_000_000_000L;
+
+        void step() {
+            millis += 50;
+        }
+
+        @Override public long millis() { return millis; }
+        @Override public Instant instant() { return Instant.ofEpochMilli(millis); }
+        @Override public ZoneId getZone() { return ZoneId.of("UTC"); }
+        @Override public Clock withZone(ZoneId zone) { return this; }
+    }
+}
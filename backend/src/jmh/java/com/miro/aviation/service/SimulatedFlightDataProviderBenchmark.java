@@ -0,0 +1,37 @@
+package com.miro.aviation.service;
+
+import com.miro.aviation.model.FlightSnapshot;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One simulated session as the broadcast loop drives it: a tick followed by the snapshot to encode.
+ * Compare gc.alloc.rate.norm between the allocating and the reused-snapshot variants.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SimulatedFlightDataProviderBenchmark {
+
+    private SimulatedFlightDataProvider provider;
+    private final FlightSnapshot reused = new FlightSnapshot();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        provider = new SimulatedFlightDataProvider(
+                new AttitudeSimulatorService(), new AltitudeSimulatorService(), new AirspeedSimulatorService());
+    }
+
+    @Benchmark
+    public FlightSnapshot tickAndGetCurrentSnapshot() {
+        provider.tick();
+        return provider.getCurrentSnapshot();
+    }
+
+    @Benchmark
+    public FlightSnapshot tickAndFillReusedSnapshot() {
+        provider.tick();
+        return provider.getCurrentSnapshot(reused);
+    }
+}
@@ -0,0 +1,57 @@
+package com.miro.aviation.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One shard tick of many simulated sessions: each provider stepping its own simulator beans,
+ * versus the shard's batch stepping all of them in one loop before the providers tick.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SimulationBatchBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    private int sessions;
+
+    private SimulatedFlightDataProvider[] standalone;
+    private SimulatedFlightDataProvider[] batched;
+    private SimulationBatch batch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        standalone = new SimulatedFlightDataProvider[sessions];
+        batched = new SimulatedFlightDataProvider[sessions];
+        batch = new SimulationBatch();
+        for (int i = 0; i < sessions; i++) {
+            standalone[i] = newProvider();
+            batched[i] = newProvider();
+            batched[i].attach(batch);
+        }
+    }
+
+    @Benchmark
+    public void standaloneProviders(Blackhole blackhole) {
+        for (SimulatedFlightDataProvider provider : standalone) {
+            provider.tick();
+        }
+        blackhole.consume(standalone);
+    }
+
+    @Benchmark
+    public void batchedProviders(Blackhole blackhole) {
+        batch.advance();
+        for (SimulatedFlightDataProvider provider : batched) {
+            provider.tick();
+        }
+        blackhole.consume(batched);
+    }
+
+    private static SimulatedFlightDataProvider newProvider() {
+        return new SimulatedFlightDataProvider(
+                new AttitudeSimulatorService(), new AltitudeSimulatorService(), new AirspeedSimulatorService());
+    }
+}
@@ -0,0 +1,58 @@
+package com.miro.aviation.utils;
+
+import com.miro.aviation.SyntheticData;
+import com.miro.aviation.model.FlightRecording;
+import com.miro.aviation.model.FlightSnapshot;
+import com.opencsv.CSVReaderHeaderAware;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CsvFlightLoaderBenchmark {
+
+    @Param({"1000", "100000", "10000000"})
+    int rows;
+
+    private byte[] csv;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        csv = SyntheticData.flightCsv(rows);
+    }
+
+    @Benchmark
+    public List<FlightSnapshot> load() {
+        return CsvFlightLoader.load(new ByteArrayInputStream(csv));
+    }
+
+    @Benchmark
+    public FlightRecording loadRecording() {
+        return CsvFlightLoader.loadRecording("benchmark", new ByteArrayInputStream(csv));
+    }
+
+    /**
+     * Baseline: the opencsv map-per-row reading {@link CsvFlightLoader} used before {@link CsvParser}.
+     */
+    @Benchmark
+    public FlightRecording loadRecordingOpenCsv() throws Exception {
+        FlightRecording.Builder builder = FlightRecording.builder("benchmark");
+        try (CSVReaderHeaderAware reader = new CSVReaderHeaderAware(new InputStreamReader(new ByteArrayInputStream(csv)))) {
+            Map<String, String> row;
+            while ((row = reader.readMap()) != null) {
+                String[] parts = row.get("Position").replace("\"", "").split(",");
+                builder.add(Long.parseLong(row.get("Timestamp")) * 1000,
+                        Double.parseDouble(parts[0].trim()), Double.parseDouble(parts[1].trim()),
+                        Double.parseDouble(row.get("Altitude")), Double.parseDouble(row.get("Speed")),
+                        Double.parseDouble(row.get("Direction")));
+            }
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,88 @@
+package com.miro.aviation.utils;
+
+import com.miro.aviation.SyntheticData;
+import com.miro.aviation.model.NavPoint;
+import com.opencsv.CSVReaderHeaderAware;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CsvNavDataLoaderBenchmark {
+
+    @Param({"1000", "100000", "10000000"})
+    int rows;
+
+    private byte[] csv;
+    private ForkJoinPool serialPool;
+    private Path snapshot;
+    private long checksum;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        csv = SyntheticData.airportsCsv(rows);
+        serialPool = new ForkJoinPool(1);
+        snapshot = Files.createTempFile("airports", NavDataSnapshotFile.EXTENSION);
+        checksum = NavDataSnapshotFile.checksum(csv);
+        NavDataSnapshotFile.write(CsvNavDataLoader.loadAirports(csv), checksum, snapshot);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        serialPool.shutdown();
+        Files.deleteIfExists(snapshot);
+    }
+
+    @Benchmark
+    public List<NavPoint> loadAirports() {
+        return CsvNavDataLoader.loadAirports(new ByteArrayInputStream(csv));
+    }
+
+    /**
+     * The same loader with a single worker, i.e. parsing the file serially.
+     */
+    @Benchmark
+    public List<NavPoint> loadAirportsSerial() {
+        return CsvNavDataLoader.loadAirports(new ByteArrayInputStream(csv), serialPool);
+    }
+
+    /**
+     * Startup with an up-to-date snapshot: checksumming the CSV and reading the snapshot.
+     */
+    @Benchmark
+    public List<NavPoint> loadSnapshot() throws IOException {
+        return NavDataSnapshotFile.read(snapshot, NavDataSnapshotFile.checksum(csv));
+    }
+
+    /**
+     * Baseline: the opencsv map-per-row reading {@link CsvNavDataLoader} used before {@link CsvParser}.
+     */
+    @Benchmark
+    public List<NavPoint> loadAirportsOpenCsv() throws Exception {
+        List<NavPoint> airports = new ArrayList<>();
+        try (CSVReaderHeaderAware reader = new CSVReaderHeaderAware(new InputStreamReader(new ByteArrayInputStream(csv)))) {
+            Map<String, String> row;
+            while ((row = reader.readMap()) != null) {
+                String type = row.get("type");
+                if (type == null || !type.contains("airport") || type.equals("closed")) {
+                    continue;
+                }
+                double lat = Double.parseDouble(row.get("latitude_deg").replace(',', '.').trim());
+                double lon = Double.parseDouble(row.get("longitude_deg").replace(',', '.').trim());
+                airports.add(new NavPoint(row.get("ident"), type, lat, lon));
+            }
+        }
+        return airports;
+    }
+}
@@ -0,0 +1,159 @@
+package com.miro.aviation.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.SynchronizedHistogram;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.util.MimeTypeUtils;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One simulated client: subscribes to its flight data, picks a provider and then plays with the
+ * playback controls like a user would, while recording the gap between consecutive frames.
+ */
+class LoadSession extends StompSessionHandlerAdapter {
+
+    /** Longest gap the histograms track; anything longer is a stall worth seeing as 60 s */
+    private static final long MAX_GAP_MICROS = 60_000_000L;
+
+    private static final double[] SPEEDS = {0.5, 1, 2, 4, 10};
+
+    private final int id;
+    private final String fileName; // null for a simulated session
+    private final Histogram gaps = new SynchronizedHistogram(MAX_GAP_MICROS, 3);
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    private volatile StompSession session;
+    private volatile boolean recording = false;
+    private long lastFrameNanos = 0; // only touched by the session's receiving thread
+    private boolean paused = false;  // only touched by the session's control thread
+
+    LoadSession(int id, String fileName) {
+        this.id = id;
+        this.fileName = fileName;
+    }
+
+    boolean isRecorded() {
+        return fileName != null;
+    }
+
+    Histogram getGaps() {
+        return gaps;
+    }
+
+    /** @return Frames received while recording */
+    long getFrames() {
+        return frames.get();
+    }
+
+    long getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * Starts or stops counting frames and gaps, so connection set-up and warm-up do not leak
+     * into the results.
+     */
+    void setRecording(boolean recording) {
+        this.recording = recording;
+    }
+
+    @Override
+    public void afterConnected(StompSession session, StompHeaders connectedHeaders) {
+        this.session = session;
+        session.subscribe("/user/queue/flightData", new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return byte[].class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                onFrame();
+            }
+        });
+
+        String type = isRecorded() ? "recorded" : "simulated";
+        String file = isRecorded() ? ",\"fileName\":\"" + fileName + "\"" : "";
+        send("/app/switchProvider", "{\"type\":\"" + type + "\"" + file + "}");
+    }
+
+    @Override
+    public void handleException(StompSession session, StompCommand command, StompHeaders headers, byte[] payload, Throwable exception) {
+        errors.incrementAndGet();
+    }
+
+    @Override
+    public void handleTransportError(StompSession session, Throwable exception) {
+        errors.incrementAndGet();
+    }
+
+    /**
+     * Sends one random control message: seek (recorded only), speed or pause/resume.
+     */
+    void randomControl() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int action = random.nextInt(isRecorded() ? 3 : 2);
+        switch (action) {
+            case 0 -> send("/app/speed", "{\"speed\":" + SPEEDS[random.nextInt(SPEEDS.length)] + "}");
+            case 1 -> {
+                paused = !paused;
+                send("/app/pause", "{\"paused\":" + paused + "}");
+            }
+            default -> send("/app/seek", "{\"percentage\":" + random.nextDouble() + "}");
+        }
+    }
+
+    void disconnect() {
+        StompSession current = session;
+        if (current != null && current.isConnected()) {
+            current.disconnect();
+        }
+    }
+
+    boolean isConnected() {
+        StompSession current = session;
+        return current != null && current.isConnected();
+    }
+
+    private void onFrame() {
+        long now = System.nanoTime();
+        long previous = lastFrameNanos;
+        lastFrameNanos = now;
+        if (!recording) {
+            return;
+        }
+        frames.incrementAndGet();
+        if (previous != 0) {
+            gaps.recordValue(Math.min(MAX_GAP_MICROS, (now - previous) / 1000));
+        }
+    }
+
+    private void send(String destination, String json) {
+        StompSession current = session;
+        if (current == null || !current.isConnected()) {
+            return;
+        }
+        StompHeaders headers = new StompHeaders();
+        headers.setDestination(destination);
+        headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        try {
+            current.send(headers, json.getBytes(StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            errors.incrementAndGet();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "session-" + id + (isRecorded() ? " (recorded " + fileName + ")" : " (simulated)");
+    }
+}
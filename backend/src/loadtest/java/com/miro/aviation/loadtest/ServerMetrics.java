@@ -0,0 +1,94 @@
+package com.miro.aviation.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the server's own view of the broadcast loop from the actuator metrics endpoint.
+ * Every read is best effort: without actuator access the report simply omits the server side.
+ */
+class ServerMetrics {
+
+    private final String baseUrl;
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Cumulative broadcast tick timer, summed over all shards.
+     *
+     * @param count        Completed shard ticks
+     * @param totalSeconds Time spent in them
+     * @param maxSeconds   Longest recent tick
+     */
+    record TickSample(double count, double totalSeconds, double maxSeconds) {
+
+        /** @return Mean tick duration in millis between two samples, or NaN without ticks */
+        double meanMillisSince(TickSample earlier) {
+            double ticks = count - earlier.count;
+            return ticks > 0 ? (totalSeconds - earlier.totalSeconds) / ticks * 1000 : Double.NaN;
+        }
+    }
+
+    ServerMetrics(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    /** @return The current tick timer, or null if the metrics endpoint is not reachable */
+    TickSample tick() {
+        JsonNode metric = get("/actuator/metrics/aviation.broadcast.tick");
+        if (metric == null) return null;
+
+        double count = 0, total = 0, max = 0;
+        for (JsonNode measurement : metric.path("measurements")) {
+            double value = measurement.path("value").asDouble();
+            switch (measurement.path("statistic").asText()) {
+                case "COUNT" -> count = value;
+                case "TOTAL_TIME" -> total = value;
+                case "MAX" -> max = value;
+                default -> { }
+            }
+        }
+        return new TickSample(count, total, max);
+    }
+
+    /** @return Value of a gauge or counter, or NaN if it cannot be read */
+    double value(String name) {
+        JsonNode metric = get("/actuator/metrics/" + name);
+        if (metric == null) return Double.NaN;
+        return metric.path("measurements").path(0).path("value").asDouble(Double.NaN);
+    }
+
+    /** @return Recordings the server offers, or an empty list if the listing cannot be read */
+    List<String> flights() {
+        JsonNode list = get("/api/flights");
+        List<String> flights = new ArrayList<>();
+        if (list != null) {
+            list.forEach(node -> flights.add(node.asText()));
+        }
+        return flights;
+    }
+
+    private JsonNode get(String path) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(Duration.ofSeconds(5))
+                    .GET()
+                    .build();
+            HttpResponse<byte[]> response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            return response.statusCode() == 200 ? objectMapper.readTree(response.body()) : null;
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.miro.aviation.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless load generator: opens growing numbers of STOMP sessions against a locally running
+ * server and reports, per step, how evenly frames arrive and how long the server's broadcast
+ * ticks take, to find the session count at which a node starts to overrun its tick.
+ * <p>
+ * Each session connects and drives its playback controls on virtual threads. Half of them
+ * (by default) play a recording, the rest the simulator, and all of them send random
+ * {@code /app/seek}, {@code /app/speed} and {@code /app/pause} messages.
+ * </p>
+ * <p>
+ * Usage: {@code StompLoadGenerator [--steps=50,100,200] [--duration=30] [--warmup=5]
+ * [--recorded-share=0.5] [--control-interval-ms=2000] [--period-ms=50]
+ * [--url=ws://localhost:8080/ws/websocket] [--http=http://localhost:8080]}.
+ * Run it through Gradle with {@code ./gradlew loadTest -PloadArgs="--steps=100,500"}.
+ * </p>
+ */
+public class StompLoadGenerator {
+
+    /** A session whose 99th percentile gap exceeds this many broadcast periods is stuttering */
+    private static final int STUTTER_PERIODS = 2;
+    /** Share of stuttering sessions a step may have and still count as sustained */
+    private static final double MAX_STUTTER_SHARE = 0.01;
+
+    private final Map<String, String> options;
+    private final String url;
+    private final long periodMillis;
+    private final WebSocketStompClient stompClient;
+    private final ServerMetrics serverMetrics;
+
+    record StepResult(
+        int sessions,
+        int connected,
+        long errors,
+        double framesPerSecond,
+        Histogram gaps,
+        int stuttering,
+        double sessionP99Worst,
+        double tickMeanMillis,
+        double tickMaxMillis,
+        double dropped
+    ) {}
+
+    StompLoadGenerator(Map<String, String> options) {
+        this.options = options;
+        this.url = options.getOrDefault("url", "ws://localhost:8080/ws/websocket");
+        this.periodMillis = Long.parseLong(options.getOrDefault("period-ms", "50"));
+        this.serverMetrics = new ServerMetrics(options.getOrDefault("http", "http://localhost:8080"));
+
+        this.stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        // No heartbeats, so no scheduler threads per session
+        this.stompClient.setDefaultHeartbeat(new long[] {0, 0});
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                System.err.println("Usage: StompLoadGenerator [--steps=50,100,200] [--duration=30] [--warmup=5] "
+                        + "[--recorded-share=0.5] [--control-interval-ms=2000] [--period-ms=50] [--url=...] [--http=...]");
+                System.exit(1);
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        new StompLoadGenerator(options).run();
+    }
+
+    void run() throws InterruptedException {
+        int[] steps = Arrays.stream(options.getOrDefault("steps", "50,100,200,400").split(","))
+                .mapToInt(s -> Integer.parseInt(s.trim()))
+                .toArray();
+
+        List<String> flights = serverMetrics.flights();
+        System.out.printf("Target %s, broadcast period %d ms, recordings: %s%n",
+                url, periodMillis, flights.isEmpty() ? "none found, simulated only" : flights);
+
+        List<StepResult> results = new ArrayList<>();
+        for (int sessions : steps) {
+            System.out.printf("Running %d sessions...%n", sessions);
+            results.add(runStep(sessions, flights));
+        }
+        printReport(results);
+    }
+
+    StepResult runStep(int count, List<String> flights) throws InterruptedException {
+        long durationSeconds = Long.parseLong(options.getOrDefault("duration", "30"));
+        long warmupSeconds = Long.parseLong(options.getOrDefault("warmup", "5"));
+        double recordedShare = flights.isEmpty() ? 0 : Double.parseDouble(options.getOrDefault("recorded-share", "0.5"));
+        long controlIntervalMillis = Long.parseLong(options.getOrDefault("control-interval-ms", "2000"));
+
+        List<LoadSession> sessions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            boolean recorded = ThreadLocalRandom.current().nextDouble() < recordedShare;
+            sessions.add(new LoadSession(i, recorded ? flights.get(i % flights.size()) : null));
+        }
+
+        double droppedBefore = serverMetrics.value("aviation.frames.dropped");
+        AtomicInteger connected = new AtomicInteger();
+        AtomicBoolean running = new AtomicBoolean(true);
+        ServerMetrics.TickSample tickBefore;
+        ServerMetrics.TickSample tickAfter;
+        long windowNanos;
+
+        ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            List<Future<?>> connects = new ArrayList<>(count);
+            for (LoadSession session : sessions) {
+                connects.add(threads.submit(() -> {
+                    try {
+                        StompSession stompSession = stompClient.connectAsync(url, session).get(30, TimeUnit.SECONDS);
+                        if (stompSession.isConnected()) {
+                            connected.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        session.handleTransportError(null, e);
+                    }
+                }));
+            }
+            for (Future<?> connect : connects) {
+                try {
+                    connect.get();
+                } catch (Exception ignored) {
+                    // counted by the session
+                }
+            }
+
+            for (LoadSession session : sessions) {
+                threads.submit(() -> controlLoop(session, running, controlIntervalMillis));
+            }
+
+            TimeUnit.SECONDS.sleep(warmupSeconds);
+            tickBefore = serverMetrics.tick();
+            sessions.forEach(s -> s.setRecording(true));
+            long start = System.nanoTime();
+
+            TimeUnit.SECONDS.sleep(durationSeconds);
+
+            sessions.forEach(s -> s.setRecording(false));
+            windowNanos = System.nanoTime() - start;
+            tickAfter = serverMetrics.tick();
+        } finally {
+            running.set(false);
+            threads.shutdownNow();
+            threads.awaitTermination(10, TimeUnit.SECONDS);
+            sessions.forEach(LoadSession::disconnect);
+        }
+
+        return summarize(sessions, connected.get(), windowNanos, tickBefore, tickAfter,
+                serverMetrics.value("aviation.frames.dropped") - droppedBefore);
+    }
+
+    private void controlLoop(LoadSession session, AtomicBoolean running, long intervalMillis) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        try {
+            while (running.get()) {
+                Thread.sleep(random.nextLong(intervalMillis / 2, intervalMillis * 3 / 2 + 1));
+                if (session.isConnected()) {
+                    session.randomControl();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private StepResult summarize(List<LoadSession> sessions, int connected, long windowNanos,
+                                 ServerMetrics.TickSample tickBefore, ServerMetrics.TickSample tickAfter,
+                                 double dropped) {
+        Histogram gaps = new Histogram(60_000_000L, 3);
+        long frames = 0;
+        long errors = 0;
+        int stuttering = 0;
+        double worstP99 = 0;
+        long stutterMicros = STUTTER_PERIODS * periodMillis * 1000;
+
+        for (LoadSession session : sessions) {
+            Histogram sessionGaps = session.getGaps();
+            gaps.add(sessionGaps);
+            frames += session.getFrames();
+            errors += session.getErrors();
+            if (sessionGaps.getTotalCount() == 0) {
+                continue; // never received frames; shows up as missing connections or frames
+            }
+            long p99 = sessionGaps.getValueAtPercentile(99);
+            worstP99 = Math.max(worstP99, p99 / 1000.0);
+            if (p99 > stutterMicros) {
+                stuttering++;
+            }
+        }
+
+        double tickMean = tickBefore != null && tickAfter != null ? tickAfter.meanMillisSince(tickBefore) : Double.NaN;
+        double tickMax = tickAfter != null ? tickAfter.maxSeconds() * 1000 : Double.NaN;
+        return new StepResult(sessions.size(), connected, errors, frames / (windowNanos / 1e9), gaps,
+                stuttering, worstP99, tickMean, tickMax, dropped);
+    }
+
+    private void printReport(List<StepResult> results) {
+        System.out.println();
+        System.out.println("Inter-frame gaps in ms (expected " + periodMillis + "), server tick in ms");
+        System.out.printf("%8s %9s %7s %9s %7s %7s %7s %8s %8s %10s %9s %9s %8s%n",
+                "sessions", "connected", "errors", "frames/s", "p50", "p99", "p99.9", "max",
+                "worst99", "stuttering", "tick avg", "tick max", "dropped");
+
+        StepResult sustained = null;
+        StepResult firstFailure = null;
+        String failureReason = null;
+        for (StepResult r : results) {
+            Histogram g = r.gaps();
+            System.out.printf("%8d %9d %7d %9.0f %7.1f %7.1f %7.1f %8.1f %8.1f %10d %9.2f %9.2f %8.0f%n",
+                    r.sessions(), r.connected(), r.errors(), r.framesPerSecond(),
+                    g.getValueAtPercentile(50) / 1000.0, g.getValueAtPercentile(99) / 1000.0,
+                    g.getValueAtPercentile(99.9) / 1000.0, g.getMaxValue() / 1000.0,
+                    r.sessionP99Worst(), r.stuttering(), r.tickMeanMillis(), r.tickMaxMillis(), r.dropped());
+
+            String reason = failure(r);
+            if (reason == null && firstFailure == null) {
+                sustained = r;
+            } else if (reason != null && firstFailure == null) {
+                firstFailure = r;
+                failureReason = reason;
+            }
+        }
+
+        System.out.println();
+        if (sustained == null) {
+            System.out.printf("Capacity: below %d sessions (%s)%n", results.get(0).sessions(), failureReason);
+        } else if (firstFailure == null) {
+            System.out.printf("Capacity: at least %d sessions; no step overran%n", sustained.sessions());
+        } else {
+            System.out.printf("Capacity: ~%d sessions; %d sessions failed: %s%n",
+                    sustained.sessions(), firstFailure.sessions(), failureReason);
+        }
+    }
+
+    /** @return Why a step does not count as sustained, or null if it does */
+    private String failure(StepResult r) {
+        if (r.connected() < r.sessions()) {
+            return (r.sessions() - r.connected()) + " sessions could not connect";
+        }
+        if (r.tickMeanMillis() > periodMillis) {
+            return String.format("mean tick %.1f ms exceeds the %d ms period", r.tickMeanMillis(), periodMillis);
+        }
+        if (r.stuttering() > r.sessions() * MAX_STUTTER_SHARE) {
+            return String.format("%d sessions had p99 gaps over %d ms", r.stuttering(), STUTTER_PERIODS * periodMillis);
+        }
+        return null;
+    }
+}
@@ -1,20 +1,39 @@
 package com.miro.aviation.config;
 
+import com.miro.aviation.service.OutboundFlowControl;
+import com.miro.aviation.service.WebSocketSessionRegistry;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    /** Transport limits are this multiple of the flow-control ones, so they never pre-empt the grace period */
+    private static final long TRANSPORT_BACKSTOP_FACTOR = 4;
+
+    private final OutboundFlowControl outboundFlowControl;
+    private final WebSocketSessionRegistry sessionRegistry;
+
+    public WebSocketConfig(OutboundFlowControl outboundFlowControl, WebSocketSessionRegistry sessionRegistry) {
+        this.outboundFlowControl = outboundFlowControl;
+        this.sessionRegistry = sessionRegistry;
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("*")
                 .withSockJS(); // fallback for older browsers
+
+        // Plain WebSocket endpoint: SockJS can only carry text, so binary frames need this one
+        registry.addEndpoint("/ws-native")
+                .setAllowedOriginPatterns("*");
     }
 
     @Override
@@ -28,4 +47,23 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         // a "User Destination" and should be handled by the UserDestinationMessageHandler
         registry.setUserDestinationPrefix("/user");
     }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // Conflates flight frames per session and enforces the outbound byte limit
+        registration.interceptors(outboundFlowControl);
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.addDecoratorFactory(sessionRegistry);
+        // OutboundFlowControl decides when a slow session is disconnected, after its grace period.
+        // The transport's own limits close a session at once, so they are only a backstop well beyond
+        // it, and never below Spring's defaults (512 KB, 10 s). They alone bound messages queued in the
+        // transport while another thread is flushing the session, which OutboundFlowControl does not see
+        registration.setSendBufferSizeLimit((int) Math.min(Integer.MAX_VALUE,
+                Math.max(512 * 1024, TRANSPORT_BACKSTOP_FACTOR * outboundFlowControl.getMaxBufferedBytes())));
+        registration.setSendTimeLimit((int) Math.min(Integer.MAX_VALUE,
+                Math.max(10_000, TRANSPORT_BACKSTOP_FACTOR * outboundFlowControl.getDisconnectAfterMillis())));
+    }
 }
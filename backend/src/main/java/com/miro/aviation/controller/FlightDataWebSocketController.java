@@ -1,22 +1,21 @@
 package com.miro.aviation.controller;
 
-import com.miro.aviation.model.FlightSnapshot;
 import com.miro.aviation.model.NavPoint;
 import com.miro.aviation.service.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.event.EventListener;
-import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.List;
 
 @Controller
@@ -27,29 +26,19 @@ public class FlightDataWebSocketController {
     private final SimpMessagingTemplate messagingTemplate;
     private final ObjectProvider<SimulatedFlightDataProvider> simulatedProviderFactory;
     private final ObjectProvider<RecordedFlightDataProvider> recordedProviderFactory;
-
-    private final Map<String, FlightDataProvider> userProviders = new ConcurrentHashMap<>();
+    private final FlightBroadcastEngine broadcastEngine;
+    private final PlaybackGroupService groupService;
 
     public FlightDataWebSocketController(SimpMessagingTemplate messagingTemplate,
                                          ObjectProvider<SimulatedFlightDataProvider> simulatedProviderFactory,
-                                         ObjectProvider<RecordedFlightDataProvider> recordedProviderFactory) {
+                                         ObjectProvider<RecordedFlightDataProvider> recordedProviderFactory,
+                                         FlightBroadcastEngine broadcastEngine,
+                                         PlaybackGroupService groupService) {
         this.messagingTemplate = messagingTemplate;
         this.simulatedProviderFactory = simulatedProviderFactory;
         this.recordedProviderFactory = recordedProviderFactory;
-    }
-
-    @Scheduled(fixedRate = 50)
-    public void broadcastFlightData() {
-        userProviders.forEach((sessionId, provider) -> {
-            // 1. Advance the simulation/data state
-            provider.tick();
-
-            // 2. Get the data resulting from that tick
-            FlightSnapshot snapshot = provider.getCurrentSnapshot();
-            if (snapshot != null) {
-                messagingTemplate.convertAndSendToUser(sessionId, "/queue/flightData", snapshot, createHeaders(sessionId));
-            }
-        });
+        this.broadcastEngine = broadcastEngine;
+        this.groupService = groupService;
     }
 
     @MessageMapping("/switchProvider")
@@ -61,36 +50,89 @@ public class FlightDataWebSocketController {
         logger.info("Switching provider for session: {} to {} {}", 
                 sessionId, providerType, (fileName != null ? "file: " + fileName : ""));
 
+        // Watching a flight of one's own means leaving any shared playback
+        leaveCurrentGroup(sessionId);
+
         FlightDataProvider provider;
         if ("recorded".equalsIgnoreCase(providerType)) {
-            RecordedFlightDataProvider recordedProvider = recordedProviderFactory.getObject();
-            String resourcePath = "/flights/" + (fileName != null ? fileName : "AY523_2025_12_28.csv");
-            recordedProvider.initialize(resourcePath);
-            provider = recordedProvider;
+            provider = createRecordedProvider(fileName);
         } else {
             provider = simulatedProviderFactory.getObject();
         }
 
-        // Apply current UI state to the NEW provider BEFORE putting it in the map
-        if (payload.containsKey("paused")) {
-            provider.setPaused((Boolean) payload.get("paused"));
-        }
-        if (payload.containsKey("speed")) {
-            // Handle both Integer and Double from JSON
-            Number speed = (Number) payload.get("speed");
-            provider.setSpeedMultiplier(speed.doubleValue());
-        }
+        // Apply current UI state to the NEW provider BEFORE registering it for broadcast
+        applyPlaybackState(payload, provider);
+
+        // Opt-in wire format, JSON unless the client asks for something else
+        FrameEncoding encoding = FrameEncoding.fromName((String) payload.get("encoding"));
 
-        userProviders.put(sessionId, provider);
+        broadcastEngine.register(sessionId, provider, encoding);
+        if (payload.get("rate") instanceof Number rate) {
+            broadcastEngine.setFrameRate(sessionId, rate.doubleValue());
+        }
         
         // BROADCAST the initial flight plan for the new provider
         broadcastFlightPlan(sessionId, provider);
     }
 
+    /**
+     * Starts a shared playback group for a recording, led by the calling session. The session
+     * stops receiving its own stream; it and every member follow the group on
+     * {@code /topic/group/{id}}, announced on {@code /user/queue/group}.
+     */
+    @MessageMapping("/group/create")
+    public void createGroup(Map<String, Object> payload, SimpMessageHeaderAccessor headerAccessor) {
+        String sessionId = headerAccessor.getSessionId();
+        RecordedFlightDataProvider provider = createRecordedProvider((String) payload.get("fileName"));
+        applyPlaybackState(payload, provider);
+
+        broadcastEngine.unregister(sessionId);
+        // Leave here rather than inside create, so a member promoted in the old group is told
+        leaveCurrentGroup(sessionId);
+        PlaybackGroup group = groupService.create(sessionId, provider);
+        sendGroupState(sessionId, group);
+        broadcastFlightPlan(sessionId, provider);
+    }
+
+    /**
+     * Joins an existing group as a viewer. Its playback follows the leader's controls.
+     */
+    @MessageMapping("/group/join")
+    public void joinGroup(Map<String, String> payload, SimpMessageHeaderAccessor headerAccessor) {
+        String sessionId = headerAccessor.getSessionId();
+        String groupId = payload.get("groupId");
+        PlaybackGroup current = groupService.getGroupOf(sessionId);
+        if (current != null && !current.getId().equals(groupId) && groupService.getGroup(groupId) != null) {
+            // Leave here rather than inside join, so a member promoted in the old group is told
+            leaveCurrentGroup(sessionId);
+        }
+        PlaybackGroup group = groupId != null ? groupService.join(groupId, sessionId) : null;
+        if (group == null) {
+            logger.warn("Session {} tried to join unknown playback group '{}'", sessionId, groupId);
+            sendGroupState(sessionId, null);
+            return;
+        }
+
+        broadcastEngine.unregister(sessionId);
+        sendGroupState(sessionId, group);
+        broadcastFlightPlan(sessionId, group.getProvider());
+    }
+
+    /**
+     * Leaves the session's group. The client picks its own provider again with
+     * {@code /app/switchProvider}.
+     */
+    @MessageMapping("/group/leave")
+    public void leaveGroup(SimpMessageHeaderAccessor headerAccessor) {
+        String sessionId = headerAccessor.getSessionId();
+        leaveCurrentGroup(sessionId);
+        sendGroupState(sessionId, null);
+    }
+
     @MessageMapping("/updateFlightPlan")
     public void updateFlightPlan(List<NavPoint> newWaypoints, SimpMessageHeaderAccessor headerAccessor) {
         String sessionId = headerAccessor.getSessionId();
-        FlightDataProvider provider = userProviders.get(sessionId);
+        FlightDataProvider provider = broadcastEngine.getProvider(sessionId);
         
         if (provider != null) {
             logger.info("Updating Flight Plan for session: {} with {} waypoints", sessionId, newWaypoints.size());
@@ -100,12 +142,58 @@ public class FlightDataWebSocketController {
         }
     }
 
+    private RecordedFlightDataProvider createRecordedProvider(String fileName) {
+        RecordedFlightDataProvider recordedProvider = recordedProviderFactory.getObject();
+        String resourcePath = "/flights/" + (fileName != null ? fileName : "AY523_2025_12_28.csv");
+        recordedProvider.initialize(resourcePath);
+        return recordedProvider;
+    }
+
+    private static void applyPlaybackState(Map<String, Object> payload, FlightDataProvider provider) {
+        if (payload.containsKey("paused")) {
+            provider.setPaused((Boolean) payload.get("paused"));
+        }
+        if (payload.containsKey("speed")) {
+            // Handle both Integer and Double from JSON
+            Number speed = (Number) payload.get("speed");
+            provider.setSpeedMultiplier(speed.doubleValue());
+        }
+    }
+
+    /**
+     * @return The provider the session's playback controls act on: its own, or that of the
+     *         group it leads. Controls from group members who are not the leader are ignored.
+     */
+    private FlightDataProvider controlledProvider(String sessionId) {
+        FlightDataProvider provider = broadcastEngine.getProvider(sessionId);
+        return provider != null ? provider : groupService.getLedProvider(sessionId);
+    }
+
+    private void leaveCurrentGroup(String sessionId) {
+        PlaybackGroup group = groupService.getGroupOf(sessionId);
+        String newLeader = groupService.leave(sessionId);
+        if (newLeader != null) {
+            sendGroupState(newLeader, group);
+        }
+    }
+
+    /**
+     * Tells a session which group it is in, if any, and whether it leads it.
+     */
+    private void sendGroupState(String sessionId, PlaybackGroup group) {
+        Map<String, Object> state = new HashMap<>();
+        state.put("groupId", group != null ? group.getId() : null);
+        state.put("destination", group != null ? group.getDestination() : null);
+        state.put("leader", group != null && group.isLeader(sessionId));
+        messagingTemplate.convertAndSendToUser(sessionId, "/queue/group", state, FlightBroadcastEngine.sessionHeaders(sessionId));
+    }
+
     private void broadcastFlightPlan(String sessionId, FlightDataProvider provider) {
         messagingTemplate.convertAndSendToUser(
             sessionId, 
             "/queue/flightPlan", 
             provider.getFlightPlan(), 
-            createHeaders(sessionId)
+            FlightBroadcastEngine.sessionHeaders(sessionId)
         );
     }
 
@@ -113,20 +201,14 @@ public class FlightDataWebSocketController {
     public void handleDisconnect(SessionDisconnectEvent event) {
         String sessionId = event.getSessionId();
         logger.info("Removing session: {}", sessionId);
-        userProviders.remove(sessionId);
-    }
-
-    private MessageHeaders createHeaders(String sessionId) {
-        SimpMessageHeaderAccessor headerAccessor = SimpMessageHeaderAccessor.create();
-        headerAccessor.setSessionId(sessionId);
-        headerAccessor.setLeaveMutable(true);
-        return headerAccessor.getMessageHeaders();
+        broadcastEngine.unregister(sessionId);
+        leaveCurrentGroup(sessionId);
     }
 
     @MessageMapping("/pause")
     public void setPaused(Map<String, Boolean> payload, SimpMessageHeaderAccessor headerAccessor) {
         String sessionId = headerAccessor.getSessionId();
-        FlightDataProvider provider = userProviders.get(sessionId);
+        FlightDataProvider provider = controlledProvider(sessionId);
         if (provider != null) {
             provider.setPaused(payload.get("paused"));
         }
@@ -135,18 +217,56 @@ public class FlightDataWebSocketController {
     @MessageMapping("/speed")
     public void setSpeed(Map<String, Double> payload, SimpMessageHeaderAccessor headerAccessor) {
         String sessionId = headerAccessor.getSessionId();
-        FlightDataProvider provider = userProviders.get(sessionId);
+        FlightDataProvider provider = controlledProvider(sessionId);
         if (provider != null) {
             provider.setSpeedMultiplier(payload.get("speed"));
         }
     }
 
+    /**
+     * Sets the frames per second the client wants, e.g. a low rate for a map-only view or
+     * a background tab. Zero restores the full broadcast rate.
+     */
+    @MessageMapping("/rate")
+    public void setRate(Map<String, Double> payload, SimpMessageHeaderAccessor headerAccessor) {
+        Double rate = payload.get("rate");
+        broadcastEngine.setFrameRate(headerAccessor.getSessionId(), rate != null ? rate : 0);
+    }
+
+    /**
+     * Requested by delta-encoded clients that detected a gap in the frame sequence.
+     */
+    @MessageMapping("/resync")
+    public void resync(SimpMessageHeaderAccessor headerAccessor) {
+        broadcastEngine.requestKeyframe(headerAccessor.getSessionId());
+    }
+
+    /**
+     * Seeks by one of {@code "timestamp"} (UTC epoch millis or ISO-8601 instant),
+     * {@code "elapsed"} (millis since the first sample) or {@code "percentage"} (share of the
+     * flight's duration). The recording snaps to the nearest sample.
+     */
     @MessageMapping("/seek")
-    public void seek(Map<String, Double> payload, SimpMessageHeaderAccessor headerAccessor) {
+    public void seek(Map<String, Object> payload, SimpMessageHeaderAccessor headerAccessor) {
         String sessionId = headerAccessor.getSessionId();
-        FlightDataProvider provider = userProviders.get(sessionId);
-        if (provider != null) {
-            provider.setSeek(payload.get("percentage"));
+        FlightDataProvider provider = controlledProvider(sessionId);
+        if (provider == null) {
+            return;
+        }
+
+        Object timestamp = payload.get("timestamp");
+        if (timestamp instanceof Number millis) {
+            provider.setSeekTime(millis.longValue());
+        } else if (timestamp instanceof String iso) {
+            try {
+                provider.setSeekTime(Instant.parse(iso).toEpochMilli());
+            } catch (DateTimeParseException e) {
+                logger.warn("Ignoring seek to invalid timestamp '{}' for session {}", iso, sessionId);
+            }
+        } else if (payload.get("elapsed") instanceof Number elapsed) {
+            provider.setSeekElapsed(elapsed.longValue());
+        } else if (payload.get("percentage") instanceof Number percentage) {
+            provider.setSeek(percentage.doubleValue());
         }
     }
 }
@@ -2,8 +2,18 @@ package com.miro.aviation.controller;
 
 import com.miro.aviation.model.NavPoint;
 import com.miro.aviation.service.NavDataService;
+import com.miro.aviation.service.NavTileService;
+import com.miro.aviation.utils.GeoUtils;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * REST Controller for accessing the Global Navigation Database (NavData).
@@ -15,24 +25,141 @@ import java.util.List;
 public class NavDataController {
 
     private final NavDataService navDataService;
+    private final NavTileService navTileService;
 
-    public NavDataController(NavDataService navDataService) {
+    /** Upper bound for k in nearest queries, to keep responses small */
+    static final int MAX_NEAREST = 1000;
+
+    /** Half the Earth's circumference: every point is within this radius of any other */
+    static final double MAX_RADIUS_NM = Math.PI * GeoUtils.EARTH_RADIUS_NM;
+
+    public NavDataController(NavDataService navDataService, NavTileService navTileService) {
         this.navDataService = navDataService;
+        this.navTileService = navTileService;
     }
 
     /**
      * Finds navigation points within a specific radius of a coordinate.
+     * <p>
+     * Without further parameters every point in range is returned, in data order. With
+     * {@code types}, {@code lod} or {@code limit} the points are ranked by importance (large
+     * airports first) and then distance. {@code types} keeps only the listed types,
+     * {@code lod=true} picks the types from the radius when none are listed, and {@code limit}
+     * caps the result.
+     * </p>
      *
      * @param lat Search center latitude
      * @param lon Search center longitude
-     * @param radius Search radius in Nautical Miles (default 200)
+     * @param radius Search radius in Nautical Miles (default 200). Larger radii than half the
+     *               Earth's circumference are clamped to it; negative ones are rejected with 400.
+     * @param types Point types to include, e.g. {@code large_airport,medium_airport}
+     * @param lod Whether to choose the types by radius when {@code types} is not given
+     * @param limit Maximum number of points
      * @return List of NavPoints (Airports, Waypoints, VORs)
      */
     @GetMapping("/nearby")
     public List<NavPoint> getNearby(
             @RequestParam double lat,
             @RequestParam double lon,
-            @RequestParam(defaultValue = "200") double radius) {
-        return navDataService.findNearby(lat, lon, radius);
+            @RequestParam(defaultValue = "200") double radius,
+            @RequestParam(required = false) Set<String> types,
+            @RequestParam(defaultValue = "false") boolean lod,
+            @RequestParam(required = false) Integer limit) {
+        if (!(radius >= 0)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "radius must be a non-negative number");
+        }
+        radius = Math.min(radius, MAX_RADIUS_NM);
+        if (types == null && !lod && limit == null) {
+            return navDataService.findNearby(lat, lon, radius);
+        }
+        Set<String> included = types != null ? types : lod ? NavDataService.lodTypes(radius) : null;
+        return navDataService.findNearby(lat, lon, radius, included, limit == null ? 0 : Math.max(1, limit));
+    }
+
+    /**
+     * Finds the navigation points closest to a coordinate.
+     *
+     * @param lat Search center latitude
+     * @param lon Search center longitude
+     * @param k Number of points (default 10, at most 1000)
+     * @return NavPoints ordered by distance, nearest first
+     */
+    @GetMapping("/nearest")
+    public List<NavPoint> getNearest(
+            @RequestParam double lat,
+            @RequestParam double lon,
+            @RequestParam(defaultValue = "10") int k) {
+        return navDataService.findNearest(lat, lon, Math.min(k, MAX_NEAREST));
+    }
+
+    /**
+     * Finds navigation points inside a viewport. A west edge greater than the east edge means
+     * the viewport crosses the antimeridian.
+     *
+     * @param south Southern edge latitude
+     * @param west Western edge longitude
+     * @param north Northern edge latitude
+     * @param east Eastern edge longitude
+     * @return NavPoints inside the viewport
+     */
+    @GetMapping("/bbox")
+    public List<NavPoint> getInBox(
+            @RequestParam double south,
+            @RequestParam double west,
+            @RequestParam double north,
+            @RequestParam double east) {
+        return navDataService.findInBox(south, west, north, east);
+    }
+
+    /**
+     * Returns the navigation points of a slippy-map tile (Web Mercator, as used by map clients).
+     * <p>
+     * Unlike the coordinate queries above, tile URLs repeat, so responses carry a strong ETag
+     * and a public {@code Cache-Control} max-age for browsers and proxies. A request whose
+     * {@code If-None-Match} names the current ETag is answered with 304 and no body.
+     * </p>
+     *
+     * @param z Zoom level, 0 to 16
+     * @param x Tile column, 0 to 2^z - 1 from the antimeridian eastwards
+     * @param y Tile row, 0 to 2^z - 1 from the north
+     * @return NavPoints in the tile, or 400 if the tile does not exist
+     */
+    @GetMapping("/tiles/{z}/{x}/{y}")
+    public ResponseEntity<byte[]> getTile(
+            @PathVariable int z,
+            @PathVariable int x,
+            @PathVariable int y,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        NavTileService.Tile tile = navTileService.getTile(z, x, y);
+        if (tile == null) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        CacheControl cacheControl = CacheControl.maxAge(navTileService.getMaxAgeSeconds(), TimeUnit.SECONDS).cachePublic();
+        if (matches(ifNoneMatch, tile.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(tile.etag()).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(tile.etag())
+                .cacheControl(cacheControl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(tile.body());
+    }
+
+    /** If-None-Match uses weak comparison, so W/ prefixes are ignored */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
     }
 }
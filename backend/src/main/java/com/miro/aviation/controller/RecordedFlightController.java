@@ -1,5 +1,6 @@
 package com.miro.aviation.controller;
 
+import com.miro.aviation.service.FlightRecordingRepository;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.ResourcePatternResolver;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -7,6 +8,8 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -16,17 +19,32 @@ import java.util.stream.Collectors;
 public class RecordedFlightController {
 
     private final ResourcePatternResolver resourcePatternResolver;
+    private final FlightRecordingRepository recordingRepository;
 
-    public RecordedFlightController(ResourcePatternResolver resourcePatternResolver) {
+    public RecordedFlightController(ResourcePatternResolver resourcePatternResolver,
+                                    FlightRecordingRepository recordingRepository) {
         this.resourcePatternResolver = resourcePatternResolver;
+        this.recordingRepository = recordingRepository;
     }
 
     @GetMapping
     public List<String> listAvailableFlights() throws IOException {
         // Use classpath*: to find matching resources in ALL classpath locations
-        Resource[] resources = resourcePatternResolver.getResources("classpath*:flights/*.csv");
-        return Arrays.stream(resources)
+        List<Resource> resources = new ArrayList<>();
+        resources.addAll(Arrays.asList(resourcePatternResolver.getResources("classpath*:flights/*.csv")));
+        resources.addAll(Arrays.asList(resourcePatternResolver.getResources("classpath*:flights/*.avfr")));
+
+        Path recordingsDir = recordingRepository.getRecordingsDir();
+        if (recordingsDir != null) {
+            String dir = recordingsDir.toAbsolutePath().toUri().toString();
+            if (!dir.endsWith("/")) dir += "/";
+            resources.addAll(Arrays.asList(resourcePatternResolver.getResources(dir + "*.csv")));
+            resources.addAll(Arrays.asList(resourcePatternResolver.getResources(dir + "*.avfr")));
+        }
+
+        return resources.stream()
                 .map(Resource::getFilename)
+                .distinct()
                 .collect(Collectors.toList());
     }
 }
@@ -5,6 +5,8 @@ public class Attitude {
     private double roll;  // degrees (bank/tilt left or right)
     private double yaw; // degrees (heading, 360 max value)
 
+    public Attitude() {}
+
     public Attitude(double pitch, double roll, double yaw) {
         this.pitch = pitch;
         this.roll = roll;
@@ -12,6 +14,11 @@ public class Attitude {
     }
 
     public double getPitch() { return pitch; }
+    public void setPitch(double pitch) { this.pitch = pitch; }
+
     public double getRoll() { return roll; }
+    public void setRoll(double roll) { this.roll = roll; }
+
     public double getYaw() { return yaw; }
+    public void setYaw(double yaw) { this.yaw = yaw; }
 }
@@ -0,0 +1,312 @@
+package com.miro.aviation.model;
+
+import java.util.Arrays;
+
+/**
+ * An immutable, fully loaded flight recording stored column by column.
+ * <p>
+ * A single instance is shared by every session playing back the same source, so the columns
+ * must never be modified after construction. Per-session playback state (index, time anchors)
+ * lives in the provider, not here.
+ * </p>
+ * <p>
+ * Samples are kept in primitive arrays rather than as {@link FlightSnapshot} objects:
+ * timestamps as {@code long} millis, altitude/speed/heading as {@code float} (recorded feeds
+ * report whole feet, knots and degrees) and latitude/longitude as fixed-point microdegrees,
+ * which preserves the 6 decimals present in the source data. That is 28 bytes per sample
+ * instead of five objects, and sequential scans stay within a few cache lines.
+ * A {@link FlightSnapshot} is only materialized when a sample is sent.
+ * </p>
+ * <p>
+ * The columns are either heap arrays (built from CSV) or a memory-mapped binary file,
+ * see {@link Columns}.
+ * </p>
+ */
+public final class FlightRecording {
+
+    /** Recordings carry no pressure setting, so snapshots report standard pressure */
+    public static final double DEFAULT_KOLLSMAN = 29.92;
+
+    public static final double MICRODEGREES = 1_000_000.0;
+
+    private static final FlightRecording EMPTY = builder("").build();
+
+    private final String source;
+    private final int size;
+    private final Columns columns;
+
+    /**
+     * Read access to the sample columns, indexed by sample number.
+     * Implementations must be immutable and safe for concurrent reads.
+     */
+    public interface Columns {
+        int size();
+
+        /** @return Epoch millis */
+        long timestamp(int index);
+
+        int latitudeMicros(int index);
+
+        int longitudeMicros(int index);
+
+        float altitude(int index);
+
+        float speed(int index);
+
+        float heading(int index);
+    }
+
+    private FlightRecording(String source, Columns columns) {
+        this.source = source;
+        this.size = columns.size();
+        this.columns = columns;
+    }
+
+    public static FlightRecording empty() {
+        return EMPTY;
+    }
+
+    public static Builder builder(String source) {
+        return new Builder(source);
+    }
+
+    /**
+     * Wraps externally stored columns, e.g. a memory-mapped recording file.
+     */
+    public static FlightRecording of(String source, Columns columns) {
+        return new FlightRecording(source, columns);
+    }
+
+    /** @return The resource path this recording was loaded from */
+    public String getSource() {
+        return source;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** @return Sample timestamp in epoch millis */
+    public long getTimestamp(int index) {
+        return columns.timestamp(index);
+    }
+
+    /** @return Altitude in feet */
+    public double getAltitude(int index) {
+        return columns.altitude(index);
+    }
+
+    /** @return Speed in knots */
+    public double getSpeed(int index) {
+        return columns.speed(index);
+    }
+
+    /** @return Heading in degrees */
+    public double getHeading(int index) {
+        return columns.heading(index);
+    }
+
+    public double getLatitude(int index) {
+        return columns.latitudeMicros(index) / MICRODEGREES;
+    }
+
+    public double getLongitude(int index) {
+        return columns.longitudeMicros(index) / MICRODEGREES;
+    }
+
+    /** @return Latitude in fixed-point microdegrees, exactly as stored */
+    public int getLatitudeMicros(int index) {
+        return columns.latitudeMicros(index);
+    }
+
+    /** @return Longitude in fixed-point microdegrees, exactly as stored */
+    public int getLongitudeMicros(int index) {
+        return columns.longitudeMicros(index);
+    }
+
+    public long getStartTime() {
+        return columns.timestamp(0);
+    }
+
+    public long getEndTime() {
+        return columns.timestamp(size - 1);
+    }
+
+    /**
+     * Binary search over the (ascending) timestamps.
+     *
+     * @return Index of the last sample at or before the timestamp, or 0 if it precedes the recording
+     */
+    public int indexAt(long timestamp) {
+        int low = 0;
+        int high = size - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (columns.timestamp(mid) <= timestamp) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Binary search over the (ascending) timestamps.
+     *
+     * @return Index of the sample closest in time to the timestamp (the earlier one on a tie),
+     *         clamped to the recording
+     */
+    public int nearestIndex(long timestamp) {
+        int index = indexAt(timestamp);
+        if (index + 1 < size && columns.timestamp(index + 1) - timestamp < timestamp - columns.timestamp(index)) {
+            return index + 1;
+        }
+        return index;
+    }
+
+    /** @return Time between the first and the last sample in millis */
+    public long getDuration() {
+        return size > 0 ? getEndTime() - getStartTime() : 0;
+    }
+
+    /**
+     * @return Progress metadata for playback positioned at the given sample. The percentage is
+     *         the share of the flight's duration elapsed, so it stays meaningful for recordings
+     *         with irregular sample spacing.
+     */
+    public PlaybackProgress getProgress(int index) {
+        long duration = getDuration();
+        double rawPercentage = duration > 0 ? (double) (columns.timestamp(index) - getStartTime()) / duration : 0.0;
+        // Round to 4 decimal places
+        double roundedPercentage = Math.round(rawPercentage * 10000.0) / 10000.0;
+
+        return new PlaybackProgress(index, size, roundedPercentage, getStartTime(), getEndTime());
+    }
+
+    /**
+     * Materializes a sample as a snapshot without progress metadata.
+     */
+    public FlightSnapshot toSnapshot(int index) {
+        return new FlightSnapshot(
+                columns.timestamp(index),
+                new Attitude(0.0, 0.0, getHeading(index)), // limited data, only heading is recorded
+                new Altitude(getAltitude(index), DEFAULT_KOLLSMAN),
+                new AirSpeed(getSpeed(index)),
+                null,
+                new Position(getLatitude(index), getLongitude(index)),
+                0
+        );
+    }
+
+    /**
+     * Writes a sample into an existing snapshot (see {@link FlightSnapshot#initComponents()}),
+     * the allocation-free counterpart of {@link #toSnapshot(int)}. Progress is not touched.
+     *
+     * @return The target snapshot
+     */
+    public FlightSnapshot copyTo(int index, FlightSnapshot target) {
+        target.initComponents();
+        target.setTimestamp(columns.timestamp(index));
+        target.getAttitude().setPitch(0.0);
+        target.getAttitude().setRoll(0.0);
+        target.getAttitude().setYaw(getHeading(index));
+        target.getAltitude().setAltitude(getAltitude(index));
+        target.getAltitude().setKollsmanPressure(DEFAULT_KOLLSMAN);
+        target.getAirSpeed().setSpeed(getSpeed(index));
+        target.getPosition().setLatitude(getLatitude(index));
+        target.getPosition().setLongitude(getLongitude(index));
+        target.setActiveWaypointIndex(0);
+        return target;
+    }
+
+    /**
+     * Accumulates samples in growable columns. Not thread-safe.
+     */
+    public static final class Builder {
+
+        private final String source;
+        private int size = 0;
+        private long[] timestamps = new long[64];
+        private float[] altitudes = new float[64];
+        private float[] speeds = new float[64];
+        private float[] headings = new float[64];
+        private int[] latitudes = new int[64];
+        private int[] longitudes = new int[64];
+
+        private Builder(String source) {
+            this.source = source;
+        }
+
+        /**
+         * Appends one sample.
+         *
+         * @param timestamp Epoch millis
+         * @param latitude  Decimal degrees
+         * @param longitude Decimal degrees
+         * @param altitude  Feet
+         * @param speed     Knots
+         * @param heading   Degrees
+         */
+        public Builder add(long timestamp, double latitude, double longitude,
+                           double altitude, double speed, double heading) {
+            if (size == timestamps.length) {
+                grow();
+            }
+            timestamps[size] = timestamp;
+            latitudes[size] = (int) Math.round(latitude * MICRODEGREES);
+            longitudes[size] = (int) Math.round(longitude * MICRODEGREES);
+            altitudes[size] = (float) altitude;
+            speeds[size] = (float) speed;
+            headings[size] = (float) heading;
+            size++;
+            return this;
+        }
+
+        public FlightRecording build() {
+            return new FlightRecording(source, new ArrayColumns(
+                    size,
+                    Arrays.copyOf(timestamps, size),
+                    Arrays.copyOf(latitudes, size),
+                    Arrays.copyOf(longitudes, size),
+                    Arrays.copyOf(altitudes, size),
+                    Arrays.copyOf(speeds, size),
+                    Arrays.copyOf(headings, size)
+            ));
+        }
+
+        private void grow() {
+            int capacity = timestamps.length * 2;
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            altitudes = Arrays.copyOf(altitudes, capacity);
+            speeds = Arrays.copyOf(speeds, capacity);
+            headings = Arrays.copyOf(headings, capacity);
+            latitudes = Arrays.copyOf(latitudes, capacity);
+            longitudes = Arrays.copyOf(longitudes, capacity);
+        }
+    }
+
+    /**
+     * Heap-backed columns produced by the {@link Builder}.
+     */
+    private record ArrayColumns(
+        int size,
+        long[] timestamps,
+        int[] latitudes,
+        int[] longitudes,
+        float[] altitudes,
+        float[] speeds,
+        float[] headings
+    ) implements Columns {
+        @Override public long timestamp(int index) { return timestamps[index]; }
+        @Override public int latitudeMicros(int index) { return latitudes[index]; }
+        @Override public int longitudeMicros(int index) { return longitudes[index]; }
+        @Override public float altitude(int index) { return altitudes[index]; }
+        @Override public float speed(int index) { return speeds[index]; }
+        @Override public float heading(int index) { return headings[index]; }
+    }
+}
@@ -27,6 +27,20 @@ public class FlightSnapshot {
 
     public FlightSnapshot() {}
 
+    /**
+     * Creates any missing attitude, altitude, air speed and position objects, so a snapshot
+     * that is reused from tick to tick can be filled in place. Progress is left as is.
+     *
+     * @return This snapshot
+     */
+    public FlightSnapshot initComponents() {
+        if (attitude == null) attitude = new Attitude();
+        if (altitude == null) altitude = new Altitude();
+        if (airSpeed == null) airSpeed = new AirSpeed();
+        if (position == null) position = new Position();
+        return this;
+    }
+
     public long getTimestamp() {
         return timestamp;
     }
@@ -6,18 +6,28 @@ import org.springframework.stereotype.Component;
 import org.springframework.stereotype.Service;
 
 import java.util.Random;
+import java.util.random.RandomGenerator;
 
 @Component
 @Scope("prototype") // Create new instance for each client
 public class AirspeedSimulatorService {
 
-    private final Random random = new Random();
+    private final RandomGenerator random;
 
     // Configurable limits
     private final double minSpeed = 40;  // stall / minimum speed in kt
     private final double maxSpeed = 180; // maximum speed in kt
     private double currentSpeed = 60;    // start near min speed
 
+    public AirspeedSimulatorService() {
+        this(new Random());
+    }
+
+    /** For reproducing a walk from known draws */
+    AirspeedSimulatorService(RandomGenerator random) {
+        this.random = random;
+    }
+
     public void tick(double deltaTime) {
         // simulate smooth changes scaled by deltaTime
         double change = ((random.nextDouble() - 0.5) * 5) * deltaTime; 
@@ -34,4 +44,9 @@ public class AirspeedSimulatorService {
     public AirSpeed getCurrentAirSpeed() {
         return new AirSpeed(currentSpeed);
     }
+
+    /** Writes the current air speed into an existing object instead of allocating one */
+    public void copyTo(AirSpeed target) {
+        target.setSpeed(currentSpeed);
+    }
 }
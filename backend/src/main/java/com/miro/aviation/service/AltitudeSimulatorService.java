@@ -4,15 +4,22 @@ import com.miro.aviation.model.Altitude;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 import java.util.Random;
+import java.util.random.RandomGenerator;
 
 @Component
 @Scope("prototype") // Create new instance for each client
 public class AltitudeSimulatorService {
 
-    private final Random random = new Random();
+    private final RandomGenerator random;
     private final Altitude currentAltitude = new Altitude(0, 29.92); // standard pressure
 
     public AltitudeSimulatorService() {
+        this(new Random());
+    }
+
+    /** For reproducing a walk from known draws */
+    AltitudeSimulatorService(RandomGenerator random) {
+        this.random = random;
         // Initial altitude (feet)
         currentAltitude.setAltitude(25500.0);
         currentAltitude.setKollsmanPressure(29.92); // default sea-level
@@ -38,6 +45,12 @@ public class AltitudeSimulatorService {
         return new Altitude(currentAltitude.getAltitude(), currentAltitude.getKollsmanPressure());
     }
 
+    /** Writes the current altitude into an existing object instead of allocating one */
+    public void copyTo(Altitude target) {
+        target.setAltitude(currentAltitude.getAltitude());
+        target.setKollsmanPressure(currentAltitude.getKollsmanPressure());
+    }
+
     /** Allows external control of Kollsman (e.g., from frontend knob) */
     public void setKollsmanPressure(double kollsmanPressure) {
         currentAltitude.setKollsmanPressure(kollsmanPressure);
@@ -5,18 +5,28 @@ import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
 import java.util.Random;
+import java.util.random.RandomGenerator;
 
 @Component
 @Scope("prototype") // Create new instance for each client
 public class AttitudeSimulatorService {
 
-    private final Random random = new Random();
+    private final RandomGenerator random;
 
     // persistent state
     private double currentPitch = 0;
     private double currentRoll = 0;
     private double currentYaw = 0;
 
+    public AttitudeSimulatorService() {
+        this(new Random());
+    }
+
+    /** For reproducing a walk from known draws */
+    AttitudeSimulatorService(RandomGenerator random) {
+        this.random = random;
+    }
+
     public void tick(double deltaTime) {
 
         double maxPitchChange = 0.5 * deltaTime;
@@ -40,4 +50,11 @@ public class AttitudeSimulatorService {
     public Attitude getCurrentAttitude() {
         return new Attitude(currentPitch, currentRoll, currentYaw);
     }
+
+    /** Writes the current attitude into an existing object instead of allocating one */
+    public void copyTo(Attitude target) {
+        target.setPitch(currentPitch);
+        target.setRoll(currentRoll);
+        target.setYaw(currentYaw);
+    }
 }
@@ -0,0 +1,139 @@
+package com.miro.aviation.service;
+
+import com.miro.aviation.model.FlightSnapshot;
+
+/**
+ * A session's provider together with the per-session state its shard needs to encode frames.
+ * A new instance is created whenever the session switches provider.
+ * <p>
+ * The frame rate is kept as a number of shard ticks between frames. The provider is still
+ * ticked every shard tick so simulations advance at their normal pace; only sending is
+ * skipped. The pacing state is only touched by the owning shard thread, except for the
+ * requested interval which control messages update.
+ * </p>
+ */
+final class BroadcastSession {
+
+    /** Clean frames after which a backed-off session halves its interval again */
+    static final int RECOVERY_FRAMES = 10;
+
+    private final FlightDataProvider provider;
+    private final FrameEncoding encoding;
+    private final DeltaFrameEncoder deltaEncoder;
+    private final FlightSnapshot snapshot = new FlightSnapshot();
+    private final int maxIntervalTicks;
+    private final boolean topic;
+
+    private volatile int requestedIntervalTicks;
+    private int appliedIntervalTicks;
+    private int intervalTicks;
+    private int ticksUntilDue = 0;
+    private int cleanFrames = 0;
+    private long lastLostFrames = 0;
+
+    BroadcastSession(FlightDataProvider provider, FrameEncoding encoding, int requestedIntervalTicks, int maxIntervalTicks) {
+        this(provider, encoding, requestedIntervalTicks, maxIntervalTicks, false);
+    }
+
+    /**
+     * @param topic True if the session key is a broker topic shared by many STOMP sessions
+     *              rather than a single session id
+     */
+    BroadcastSession(FlightDataProvider provider, FrameEncoding encoding, int requestedIntervalTicks, int maxIntervalTicks,
+                     boolean topic) {
+        this.provider = provider;
+        this.topic = topic;
+        this.encoding = encoding;
+        this.deltaEncoder = encoding == FrameEncoding.DELTA ? new DeltaFrameEncoder() : null;
+        this.maxIntervalTicks = Math.max(1, maxIntervalTicks);
+        this.requestedIntervalTicks = clampInterval(requestedIntervalTicks);
+        this.appliedIntervalTicks = this.requestedIntervalTicks;
+        this.intervalTicks = this.requestedIntervalTicks;
+    }
+
+    FlightDataProvider provider() {
+        return provider;
+    }
+
+    FrameEncoding encoding() {
+        return encoding;
+    }
+
+    boolean topic() {
+        return topic;
+    }
+
+    /**
+     * @return The delta encoder, or null unless the session opted into {@link FrameEncoding#DELTA}
+     */
+    DeltaFrameEncoder deltaEncoder() {
+        return deltaEncoder;
+    }
+
+    /**
+     * @return The snapshot providers fill in place on every frame. Encoders must not keep
+     *         references into it past the frame they are encoding.
+     */
+    FlightSnapshot snapshot() {
+        return snapshot;
+    }
+
+    int requestedIntervalTicks() {
+        return requestedIntervalTicks;
+    }
+
+    /**
+     * @return Shard ticks between frames currently in effect, possibly backed off from the requested interval
+     */
+    int intervalTicks() {
+        return intervalTicks;
+    }
+
+    void requestInterval(int ticks) {
+        requestedIntervalTicks = clampInterval(ticks);
+    }
+
+    /**
+     * Counts down one shard tick.
+     *
+     * @return True if a frame should be sent on this tick
+     */
+    boolean due() {
+        int requested = requestedIntervalTicks;
+        if (requested != appliedIntervalTicks) {
+            // A new rate was requested; back-off starts over from it
+            appliedIntervalTicks = requested;
+            intervalTicks = requested;
+            cleanFrames = 0;
+            ticksUntilDue = Math.min(ticksUntilDue, requested - 1);
+        }
+        if (ticksUntilDue > 0) {
+            ticksUntilDue--;
+            return false;
+        }
+        ticksUntilDue = intervalTicks - 1;
+        return true;
+    }
+
+    /**
+     * Adjusts the interval when a frame is due, and schedules the next one.
+     *
+     * @param lostFrames The session's running count of frames the outbound channel conflated or dropped
+     */
+    void adapt(long lostFrames) {
+        if (lostFrames > lastLostFrames) {
+            // The client could not keep up with the previous frames
+            intervalTicks = Math.min(maxIntervalTicks, intervalTicks * 2);
+            cleanFrames = 0;
+        } else if (intervalTicks > appliedIntervalTicks && ++cleanFrames >= RECOVERY_FRAMES) {
+            intervalTicks = Math.max(appliedIntervalTicks, intervalTicks / 2);
+            cleanFrames = 0;
+        }
+        lastLostFrames = lostFrames;
+        ticksUntilDue = intervalTicks - 1;
+    }
+
+    private int clampInterval(int ticks) {
+        return Math.max(1, Math.min(maxIntervalTicks, ticks));
+    }
+}
@@ -0,0 +1,136 @@
+package com.miro.aviation.service;
+
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * A partition of the broadcast sessions that is ticked and sent on its own thread.
+ * <p>
+ * Sessions are only ever ticked by the owning shard, so providers never see two
+ * concurrent ticks. Membership changes are coordinated by {@link FlightBroadcastEngine}.
+ * The random walks of the shard's simulated sessions live in its {@link SimulationBatch},
+ * which is advanced once at the start of every tick.
+ * </p>
+ */
+class BroadcastShard {
+
+    private static final Logger logger = LoggerFactory.getLogger(BroadcastShard.class);
+    private static final long OVERRUN_WARN_INTERVAL_NANOS = 10_000_000_000L;
+
+    private final int id;
+    private final long periodNanos;
+    private final Timer tickTimer;
+    private final Map<String, BroadcastSession> sessions = new ConcurrentHashMap<>();
+    private final SimulationBatch simulations = new SimulationBatch();
+
+    private final AtomicLong ticks = new AtomicLong();
+    private final AtomicLong overruns = new AtomicLong();
+    private volatile long lastTickNanos = 0;
+    private volatile long maxTickNanos = 0;
+    private long lastOverrunWarning = 0;
+
+    private volatile ScheduledExecutorService executor;
+
+    BroadcastShard(int id, long periodMillis, Timer tickTimer) {
+        this.id = id;
+        this.periodNanos = periodMillis * 1_000_000L;
+        this.tickTimer = tickTimer;
+    }
+
+    int getId() {
+        return id;
+    }
+
+    int size() {
+        return sessions.size();
+    }
+
+    Map<String, BroadcastSession> sessions() {
+        return sessions;
+    }
+
+    SimulationBatch simulations() {
+        return simulations;
+    }
+
+    void attach(ScheduledExecutorService executor) {
+        this.executor = executor;
+    }
+
+    ScheduledExecutorService detach() {
+        ScheduledExecutorService previous = executor;
+        executor = null;
+        return previous;
+    }
+
+    /**
+     * Runs a task on the shard thread, or inline if the shard is not running.
+     * Used for membership changes that must not overlap with a tick.
+     */
+    void runOnShard(Runnable task) {
+        ScheduledExecutorService current = executor;
+        if (current == null || current.isShutdown()) {
+            task.run();
+        } else {
+            current.execute(task);
+        }
+    }
+
+    /**
+     * Advances the simulation batch and every provider in the shard, and hands the resulting
+     * snapshot to the sender.
+     */
+    void tick(BiConsumer<String, BroadcastSession> sender) {
+        long start = System.nanoTime();
+
+        try {
+            simulations.advance();
+        } catch (Exception e) {
+            logger.error("Advancing simulations failed on shard {}", id, e);
+        }
+
+        sessions.forEach((sessionId, session) -> {
+            try {
+                sender.accept(sessionId, session);
+            } catch (Exception e) {
+                logger.error("Broadcast failed for session {} on shard {}", sessionId, id, e);
+            }
+        });
+
+        long duration = System.nanoTime() - start;
+        lastTickNanos = duration;
+        tickTimer.record(duration, TimeUnit.NANOSECONDS);
+        if (duration > maxTickNanos) {
+            maxTickNanos = duration;
+        }
+        ticks.incrementAndGet();
+
+        if (duration > periodNanos) {
+            overruns.incrementAndGet();
+            if (start - lastOverrunWarning > OVERRUN_WARN_INTERVAL_NANOS) {
+                lastOverrunWarning = start;
+                logger.warn("Broadcast shard {} overran its period: {} ms for {} sessions",
+                        id, duration / 1_000_000.0, sessions.size());
+            }
+        }
+    }
+
+    FlightBroadcastEngine.ShardStats stats() {
+        return new FlightBroadcastEngine.ShardStats(
+                id,
+                sessions.size(),
+                ticks.get(),
+                overruns.get(),
+                lastTickNanos / 1_000_000.0,
+                maxTickNanos / 1_000_000.0
+        );
+    }
+}
@@ -0,0 +1,182 @@
+package com.miro.aviation.service;
+
+import com.miro.aviation.model.*;
+import com.miro.aviation.utils.FlightFrameWriter;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Per-session encoder for the opt-in delta protocol.
+ * <p>
+ * Every frame carries a {@code seq} number that increases by one per frame sent. A keyframe is the
+ * full snapshot plus {@code "key":true}; any other frame only carries the properties that changed
+ * since the previous frame, nested the same way as in the snapshot, e.g.
+ * {@code {"seq":42,"timestamp":1700000000050,"attitude":{"yaw":91.5}}}. Clients merge deltas into
+ * their last state. If a client sees a gap in {@code seq} it requests a resync, and the next frame
+ * is a keyframe.
+ * </p>
+ * <p>
+ * Keyframes are also sent periodically, and whenever a nested object appears or disappears.
+ * When nothing changed, no frame is produced at all. Not thread-safe except for
+ * {@link #requestKeyframe()}; each session is encoded by its shard thread only.
+ * </p>
+ */
+public final class DeltaFrameEncoder {
+
+    /** Ticks between forced keyframes (5 s at the default 20 Hz) */
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 100;
+
+    private static final int ATTITUDE = 1;
+    private static final int ALTITUDE = 2;
+    private static final int AIR_SPEED = 3;
+    private static final int POSITION = 4;
+    private static final int PROGRESS = 5;
+    private static final String[] GROUP_NAMES = {null, "attitude", "altitude", "airSpeed", "position", "progress"};
+
+    // Flattened snapshot layout. Fields of a group are contiguous; group 0 is the top level.
+    private static final int[] GROUP = {0, ATTITUDE, ATTITUDE, ATTITUDE, ALTITUDE, ALTITUDE, AIR_SPEED,
+            POSITION, POSITION, PROGRESS, PROGRESS, PROGRESS, PROGRESS, PROGRESS, 0};
+    private static final String[] NAME = {"timestamp", "pitch", "roll", "yaw", "altitude", "kollsmanPressure",
+            "speed", "latitude", "longitude", "currentIndex", "totalSamples", "percentage", "startTime",
+            "endTime", "activeWaypointIndex"};
+    private static final boolean[] INTEGRAL = {true, false, false, false, false, false, false, false, false,
+            true, true, false, true, true, true};
+    private static final int FIELDS = NAME.length;
+
+    private final int keyframeInterval;
+    private double[] previous = new double[FIELDS];
+    private double[] current = new double[FIELDS];
+    private int previousGroups = -1; // bitmask of non-null groups in the last frame, -1 before the first
+    private long sequence = 0;
+    private int ticksSinceKeyframe = 0;
+    private volatile boolean keyframeRequested = false;
+
+    public DeltaFrameEncoder() {
+        this(DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    public DeltaFrameEncoder(int keyframeInterval) {
+        this.keyframeInterval = Math.max(1, keyframeInterval);
+    }
+
+    /**
+     * Makes the next frame a keyframe. Safe to call from any thread.
+     */
+    public void requestKeyframe() {
+        keyframeRequested = true;
+    }
+
+    /**
+     * @return Sequence number the next frame will carry
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Encodes the snapshot relative to the previous frame.
+     *
+     * @return The UTF-8 JSON frame, or null if nothing changed and no keyframe is due
+     */
+    public byte[] encode(FlightSnapshot snapshot) {
+        int groups = flatten(snapshot, current);
+        ticksSinceKeyframe++;
+
+        StringBuilder json = new StringBuilder(96).append("{\"seq\":").append(sequence);
+        if (keyframeRequested || groups != previousGroups || ticksSinceKeyframe >= keyframeInterval) {
+            keyframeRequested = false;
+            ticksSinceKeyframe = 0;
+            json.append(",\"key\":true,");
+            FlightFrameWriter.appendFields(json, snapshot);
+        } else if (!appendChanges(json, groups)) {
+            return null;
+        }
+        json.append('}');
+
+        double[] swap = previous;
+        previous = current;
+        current = swap;
+        previousGroups = groups;
+        sequence++;
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return True if at least one field changed
+     */
+    private boolean appendChanges(StringBuilder json, int groups) {
+        boolean changed = false;
+        int openGroup = 0;
+        for (int f = 0; f < FIELDS; f++) {
+            int group = GROUP[f];
+            if ((group != 0 && (groups & (1 << group)) == 0)
+                    || Double.doubleToLongBits(current[f]) == Double.doubleToLongBits(previous[f])) {
+                continue;
+            }
+            changed = true;
+
+            if (group != openGroup) {
+                if (openGroup != 0) json.append('}');
+                json.append(',');
+                if (group != 0) json.append('"').append(GROUP_NAMES[group]).append("\":{");
+                openGroup = group;
+            } else {
+                json.append(',');
+            }
+            json.append('"').append(NAME[f]).append("\":");
+            if (INTEGRAL[f]) {
+                json.append((long) current[f]);
+            } else {
+                FlightFrameWriter.number(json, current[f]);
+            }
+        }
+        if (openGroup != 0) json.append('}');
+        return changed;
+    }
+
+    /**
+     * Copies the snapshot's values into the flat layout.
+     *
+     * @return Bitmask of the nested objects that are present
+     */
+    private static int flatten(FlightSnapshot snapshot, double[] values) {
+        int groups = 0;
+        values[0] = snapshot.getTimestamp();
+
+        Attitude attitude = snapshot.getAttitude();
+        if (attitude != null) {
+            groups |= 1 << ATTITUDE;
+            values[1] = attitude.getPitch();
+            values[2] = attitude.getRoll();
+            values[3] = attitude.getYaw();
+        }
+        Altitude altitude = snapshot.getAltitude();
+        if (altitude != null) {
+            groups |= 1 << ALTITUDE;
+            values[4] = altitude.getAltitude();
+            values[5] = altitude.getKollsmanPressure();
+        }
+        AirSpeed airSpeed = snapshot.getAirSpeed();
+        if (airSpeed != null) {
+            groups |= 1 << AIR_SPEED;
+            values[6] = airSpeed.getSpeed();
+        }
+        Position position = snapshot.getPosition();
+        if (position != null) {
+            groups |= 1 << POSITION;
+            values[7] = position.getLatitude();
+            values[8] = position.getLongitude();
+        }
+        PlaybackProgress progress = snapshot.getProgress();
+        if (progress != null) {
+            groups |= 1 << PROGRESS;
+            values[9] = progress.currentIndex();
+            values[10] = progress.totalSamples();
+            values[11] = progress.percentage();
+            values[12] = progress.startTime();
+            values[13] = progress.endTime();
+        }
+        values[14] = snapshot.getActiveWaypointIndex();
+        return groups;
+    }
+}
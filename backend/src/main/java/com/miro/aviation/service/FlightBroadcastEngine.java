@@ -0,0 +1,531 @@
+package com.miro.aviation.service;
+
+import com.miro.aviation.model.FlightSnapshot;
+import com.miro.aviation.utils.BinaryFrameWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ticks every session's {@link FlightDataProvider} and pushes the resulting snapshots to the client.
+ * <p>
+ * Sessions are partitioned into shards (one per core by default). Each shard runs on its own
+ * thread at the broadcast period, so a large number of sessions no longer serializes behind a
+ * single scheduler thread. A session is pinned to the least loaded shard when its provider is
+ * registered and is only moved again by {@link #rebalance()} when the shards drift apart.
+ * </p>
+ * <p>
+ * Each session is sent frames at its own rate, a whole number of broadcast periods apart.
+ * Clients may ask for a lower rate (e.g. a map-only view or a background tab), and a session
+ * whose frames the {@link OutboundFlowControl} had to conflate or drop is backed off further,
+ * then stepped back up to its requested rate once it keeps up again.
+ * </p>
+ * <p>
+ * Simulated sessions are stepped together: their walks live in the shard's
+ * {@link SimulationBatch} and follow the session when it is moved to another shard.
+ * </p>
+ * <p>
+ * Playback groups are registered under their broker topic instead of a session id. Their
+ * frame is serialized once per tick and fanned out to every subscriber by the broker.
+ * </p>
+ * <p>
+ * Metrics: {@code aviation.broadcast.tick} (per shard), {@code aviation.broadcast.send}
+ * (handing one frame to the messaging template), {@code aviation.frames.sent} (by encoding)
+ * and {@code aviation.sessions.active} (by provider type, with playback groups counted as {@code group}).
+ * Send latency is one timer over all sessions rather than tagged per session: session ids would
+ * add a time series for every connection ever made. A session that falls behind shows up in the
+ * timer's upper percentiles, and in {@code aviation.frames.dropped} once it is conflated.
+ * </p>
+ */
+@Service
+public class FlightBroadcastEngine implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlightBroadcastEngine.class);
+
+    public static final String FLIGHT_DATA_DESTINATION = "/queue/flightData";
+
+    private static final long REBALANCE_INTERVAL_MS = 1000;
+
+    private static final String PROVIDER_SIMULATED = "simulated";
+    private static final String PROVIDER_RECORDED = "recorded";
+    private static final String PROVIDER_OTHER = "other";
+    private static final String PROVIDER_GROUP = "group";
+    /** Longest interval between frames, whether requested or backed off */
+    static final long MAX_FRAME_INTERVAL_MS = 5000;
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final OutboundFlowControl outboundFlowControl;
+    private final long periodMillis;
+    private final int maxIntervalTicks;
+    private final int rebalanceThreshold;
+    private final BroadcastShard[] shards;
+    private final Timer sendTimer;
+    private final Map<FrameEncoding, Counter> framesSent = new EnumMap<>(FrameEncoding.class);
+
+    /** Shard each session is currently pinned to */
+    private final Map<String, BroadcastShard> assignments = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService rebalancer;
+    private volatile boolean running = false;
+
+    /**
+     * Per-shard broadcast statistics.
+     *
+     * @param shard          Shard index
+     * @param sessions       Number of sessions pinned to the shard
+     * @param ticks          Completed ticks since startup
+     * @param overruns       Ticks that took longer than the broadcast period
+     * @param lastTickMillis Duration of the most recent tick
+     * @param maxTickMillis  Longest tick observed
+     */
+    public record ShardStats(
+        int shard,
+        int sessions,
+        long ticks,
+        long overruns,
+        double lastTickMillis,
+        double maxTickMillis
+    ) {}
+
+    public FlightBroadcastEngine(SimpMessagingTemplate messagingTemplate,
+                                 OutboundFlowControl outboundFlowControl,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${aviation.broadcast.shards:0}") int shardCount,
+                                 @Value("${aviation.broadcast.period-ms:50}") long periodMillis,
+                                 @Value("${aviation.broadcast.rebalance-threshold:2}") int rebalanceThreshold) {
+        this.messagingTemplate = messagingTemplate;
+        this.outboundFlowControl = outboundFlowControl;
+        this.periodMillis = periodMillis;
+        this.maxIntervalTicks = (int) Math.max(1, MAX_FRAME_INTERVAL_MS / periodMillis);
+        this.rebalanceThreshold = Math.max(1, rebalanceThreshold);
+
+        int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        this.shards = new BroadcastShard[count];
+        for (int i = 0; i < count; i++) {
+            Timer tickTimer = Timer.builder("aviation.broadcast.tick")
+                    .description("Time to tick and send every session of a shard once")
+                    .tag("shard", String.valueOf(i))
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            shards[i] = new BroadcastShard(i, periodMillis, tickTimer);
+        }
+
+        this.sendTimer = Timer.builder("aviation.broadcast.send")
+                .description("Time to hand one session's frame to the messaging template")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        for (FrameEncoding encoding : FrameEncoding.values()) {
+            framesSent.put(encoding, Counter.builder("aviation.frames.sent")
+                    .tag("encoding", encoding.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        for (String type : List.of(PROVIDER_SIMULATED, PROVIDER_RECORDED, PROVIDER_OTHER, PROVIDER_GROUP)) {
+            Gauge.builder("aviation.sessions.active", this, engine -> engine.countSessions(type))
+                    .description("Registered broadcast sessions")
+                    .tag("provider", type)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Registers (or replaces) the provider for a session using the default JSON encoding.
+     */
+    public void register(String sessionId, FlightDataProvider provider) {
+        register(sessionId, provider, FrameEncoding.JSON);
+    }
+
+    /**
+     * Registers (or replaces) the provider for a session.
+     * <p>
+     * A session that is already pinned keeps its shard; new sessions go to the least loaded one.
+     * A replaced provider is closed so it can release shared resources. Encoder state starts
+     * fresh, so a delta session receives a keyframe first. A frame rate the session
+     * requested earlier is kept.
+     * </p>
+     */
+    public synchronized void register(String sessionId, FlightDataProvider provider, FrameEncoding encoding) {
+        BroadcastShard shard = assignments.get(sessionId);
+        if (shard == null) {
+            shard = leastLoaded();
+            assignments.put(sessionId, shard);
+        }
+        BroadcastSession current = shard.sessions().get(sessionId);
+        int intervalTicks = current != null ? current.requestedIntervalTicks() : 1;
+        adopt(provider, shard);
+        BroadcastSession previous = shard.sessions().put(sessionId,
+                new BroadcastSession(provider, encoding, intervalTicks, maxIntervalTicks));
+        if (previous != null && previous.provider() != provider) {
+            previous.provider().close();
+        }
+    }
+
+    /**
+     * Registers (or replaces) a provider whose frames go to a broker topic, e.g. a
+     * {@link PlaybackGroup}'s destination, rather than to a single session. Frames are
+     * JSON-encoded, since subscribers cannot share per-client delta state; the topic is
+     * removed again with {@link #unregister(String)}.
+     */
+    public synchronized void registerTopic(String destination, FlightDataProvider provider) {
+        BroadcastShard shard = assignments.computeIfAbsent(destination, key -> leastLoaded());
+        adopt(provider, shard);
+        BroadcastSession previous = shard.sessions().put(destination,
+                new BroadcastSession(provider, FrameEncoding.JSON, 1, maxIntervalTicks, true));
+        if (previous != null && previous.provider() != provider) {
+            previous.provider().close();
+        }
+    }
+
+    public synchronized void unregister(String sessionId) {
+        BroadcastShard shard = assignments.remove(sessionId);
+        if (shard != null) {
+            BroadcastSession session = shard.sessions().remove(sessionId);
+            if (session != null) {
+                session.provider().close();
+            }
+        }
+    }
+
+    public FlightDataProvider getProvider(String sessionId) {
+        BroadcastSession session = getSession(sessionId);
+        return session != null ? session.provider() : null;
+    }
+
+    /**
+     * @return The encoding negotiated by the session, or null if it is not registered
+     */
+    public FrameEncoding getEncoding(String sessionId) {
+        BroadcastSession session = getSession(sessionId);
+        return session != null ? session.encoding() : null;
+    }
+
+    /**
+     * Makes the next frame of a delta-encoded session a keyframe, e.g. after the client
+     * detected a sequence gap. Has no effect for other encodings.
+     */
+    public void requestKeyframe(String sessionId) {
+        BroadcastSession session = getSession(sessionId);
+        if (session != null && session.deltaEncoder() != null) {
+            session.deltaEncoder().requestKeyframe();
+        }
+    }
+
+    /**
+     * Sets the rate at which the session wants frames. The rate is rounded to a whole number
+     * of broadcast periods and capped at the broadcast rate; zero, negative or missing rates
+     * restore the full broadcast rate.
+     */
+    public void setFrameRate(String sessionId, double framesPerSecond) {
+        BroadcastSession session = getSession(sessionId);
+        if (session != null) {
+            session.requestInterval(intervalTicks(framesPerSecond));
+        }
+    }
+
+    /**
+     * @return Frames per second the session currently receives, including any back-off,
+     *         or 0 if it is not registered
+     */
+    public double getFrameRate(String sessionId) {
+        BroadcastSession session = getSession(sessionId);
+        return session != null ? 1000.0 / (session.intervalTicks() * periodMillis) : 0;
+    }
+
+    /**
+     * Runs one tick of every shard on the calling thread.
+     * Used when the engine is not running (tests, manual stepping).
+     */
+    public void tickAll() {
+        for (BroadcastShard shard : shards) {
+            shard.tick(this::broadcast);
+        }
+    }
+
+    /**
+     * Moves sessions from the fullest shards to the emptiest ones until no two shards differ
+     * by more than the configured threshold. Each move runs on the source shard's thread so a
+     * provider is never ticked by two shards at once.
+     */
+    public synchronized void rebalance() {
+        int[] planned = new int[shards.length];
+        for (BroadcastShard shard : shards) {
+            planned[shard.getId()] = shard.size();
+        }
+
+        while (true) {
+            int max = 0;
+            int min = 0;
+            for (int i = 1; i < planned.length; i++) {
+                if (planned[i] > planned[max]) max = i;
+                if (planned[i] < planned[min]) min = i;
+            }
+            if (planned[max] - planned[min] <= rebalanceThreshold) {
+                return;
+            }
+
+            int moves = (planned[max] - planned[min]) / 2;
+            BroadcastShard from = shards[max];
+            BroadcastShard to = shards[min];
+            List<String> candidates = new ArrayList<>(from.sessions().keySet());
+            if (candidates.isEmpty()) {
+                return;
+            }
+
+            for (int i = 0; i < moves && i < candidates.size(); i++) {
+                migrate(candidates.get(i), from, to);
+            }
+            planned[max] -= moves;
+            planned[min] += moves;
+        }
+    }
+
+    public List<ShardStats> getShardStats() {
+        return Arrays.stream(shards).map(BroadcastShard::stats).toList();
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) return;
+
+        for (BroadcastShard shard : shards) {
+            ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "broadcast-shard-" + shard.getId());
+                thread.setDaemon(true);
+                return thread;
+            });
+            shard.attach(executor);
+            executor.scheduleAtFixedRate(() -> shard.tick(this::broadcast), periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        }
+
+        rebalancer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "broadcast-rebalancer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        rebalancer.scheduleWithFixedDelay(this::rebalanceSafely, REBALANCE_INTERVAL_MS, REBALANCE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+        running = true;
+        logger.info("Broadcast engine started with {} shards at {} ms period", shards.length, periodMillis);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) return;
+
+        rebalancer.shutdownNow();
+        for (BroadcastShard shard : shards) {
+            ScheduledExecutorService executor = shard.detach();
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+        running = false;
+        logger.info("Broadcast engine stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Builds headers that route a user-destination message to a single STOMP session.
+     */
+    public static MessageHeaders sessionHeaders(String sessionId) {
+        SimpMessageHeaderAccessor headerAccessor = SimpMessageHeaderAccessor.create();
+        headerAccessor.setSessionId(sessionId);
+        headerAccessor.setLeaveMutable(true);
+        return headerAccessor.getMessageHeaders();
+    }
+
+    /**
+     * @return The user destination {@link SimpMessagingTemplate#convertAndSendToUser} would target
+     */
+    static String userDestination(String sessionId) {
+        return "/user/" + sessionId + FLIGHT_DATA_DESTINATION;
+    }
+
+    /**
+     * Wraps an already serialized frame in a message routed to a single STOMP session.
+     * An octet-stream content type makes the STOMP handler send it as a binary WebSocket frame.
+     */
+    static Message<byte[]> frameMessage(String sessionId, byte[] frame, MimeType contentType) {
+        SimpMessageHeaderAccessor headerAccessor = SimpMessageHeaderAccessor.create();
+        headerAccessor.setSessionId(sessionId);
+        headerAccessor.setContentType(contentType);
+        headerAccessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(frame, headerAccessor.getMessageHeaders());
+    }
+
+    private BroadcastSession getSession(String sessionId) {
+        BroadcastShard shard = assignments.get(sessionId);
+        return shard != null ? shard.sessions().get(sessionId) : null;
+    }
+
+    private void broadcast(String sessionId, BroadcastSession session) {
+        FlightDataProvider provider = session.provider();
+
+        // 1. Advance the simulation/data state, every period regardless of the session's frame rate
+        provider.tick();
+        if (!session.due()) {
+            return;
+        }
+        session.adapt(outboundFlowControl.getLostFrames(sessionId));
+
+        // 2. Groups share one JSON frame, handed to the broker once for all subscribers
+        if (session.topic()) {
+            broadcastTopic(sessionId, provider, session);
+            return;
+        }
+
+        // 3. Delta sessions get only what changed since their previous frame
+        DeltaFrameEncoder deltaEncoder = session.deltaEncoder();
+        if (deltaEncoder != null) {
+            FlightSnapshot snapshot = provider.getCurrentSnapshot(session.snapshot());
+            byte[] frame = snapshot != null ? deltaEncoder.encode(snapshot) : null;
+            if (frame != null) {
+                send(sessionId, frame, FrameEncoding.DELTA);
+            }
+            return;
+        }
+
+        // 4. Send the pre-serialized frame if the provider has one, skipping the message converter
+        FrameEncoding encoding = session.encoding();
+        byte[] frame = provider.getCurrentFrame(encoding);
+        if (frame != null) {
+            send(sessionId, frame, encoding);
+            return;
+        }
+
+        // 5. Otherwise encode the snapshot resulting from that tick, filled into the session's reusable one.
+        //    Both encoders below finish with it before returning.
+        FlightSnapshot snapshot = provider.getCurrentSnapshot(session.snapshot());
+        if (snapshot == null) {
+            return;
+        }
+        if (encoding == FrameEncoding.BINARY) {
+            send(sessionId, BinaryFrameWriter.toBinary(snapshot), encoding);
+        } else {
+            long start = System.nanoTime();
+            messagingTemplate.convertAndSendToUser(sessionId, FLIGHT_DATA_DESTINATION, snapshot, sessionHeaders(sessionId));
+            recordSend(start, encoding);
+        }
+    }
+
+    private void broadcastTopic(String destination, FlightDataProvider provider, BroadcastSession session) {
+        long start = System.nanoTime();
+        byte[] frame = provider.getCurrentFrame(FrameEncoding.JSON);
+        if (frame != null) {
+            messagingTemplate.send(destination, frameMessage(null, frame, FrameEncoding.JSON.getContentType()));
+        } else {
+            FlightSnapshot snapshot = provider.getCurrentSnapshot(session.snapshot());
+            if (snapshot == null) {
+                return;
+            }
+            messagingTemplate.convertAndSend(destination, snapshot);
+        }
+        recordSend(start, FrameEncoding.JSON);
+    }
+
+    private void recordSend(long startNanos, FrameEncoding encoding) {
+        sendTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        framesSent.get(encoding).increment();
+    }
+
+    private double countSessions(String type) {
+        int count = 0;
+        for (BroadcastShard shard : shards) {
+            for (BroadcastSession session : shard.sessions().values()) {
+                String sessionType = session.topic() ? PROVIDER_GROUP : providerType(session.provider());
+                if (sessionType.equals(type)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static String providerType(FlightDataProvider provider) {
+        if (provider instanceof RecordedFlightDataProvider) return PROVIDER_RECORDED;
+        if (provider instanceof SimulatedFlightDataProvider) return PROVIDER_SIMULATED;
+        return PROVIDER_OTHER;
+    }
+
+    private int intervalTicks(double framesPerSecond) {
+        if (!(framesPerSecond > 0)) {
+            return 1;
+        }
+        long ticks = Math.round(1000.0 / (framesPerSecond * periodMillis));
+        return (int) Math.max(1, Math.min(maxIntervalTicks, ticks));
+    }
+
+    private void send(String sessionId, byte[] frame, FrameEncoding encoding) {
+        long start = System.nanoTime();
+        messagingTemplate.send(userDestination(sessionId), frameMessage(sessionId, frame, encoding.getContentType()));
+        recordSend(start, encoding);
+    }
+
+    private void migrate(String sessionId, BroadcastShard from, BroadcastShard to) {
+        from.runOnShard(() -> {
+            synchronized (this) {
+                BroadcastSession session = from.sessions().get(sessionId);
+                if (session == null || assignments.get(sessionId) != from) {
+                    return; // disconnected or moved in the meantime
+                }
+                adopt(session.provider(), to);
+                from.sessions().remove(sessionId);
+                to.sessions().put(sessionId, session);
+                assignments.put(sessionId, to);
+            }
+        });
+    }
+
+    /**
+     * Moves a simulated provider's walk into the shard's batch before the shard ticks it.
+     */
+    private static void adopt(FlightDataProvider provider, BroadcastShard shard) {
+        if (provider instanceof SimulatedFlightDataProvider simulated) {
+            simulated.attach(shard.simulations());
+        }
+    }
+
+    private void rebalanceSafely() {
+        try {
+            rebalance();
+        } catch (Exception e) {
+            logger.error("Shard rebalance failed", e);
+        }
+    }
+
+    private BroadcastShard leastLoaded() {
+        return Arrays.stream(shards)
+                .min(Comparator.comparingInt(BroadcastShard::size))
+                .orElseThrow();
+    }
+}
@@ -20,6 +20,29 @@ public interface FlightDataProvider {
 
     FlightSnapshot getCurrentSnapshot();
 
+    /**
+     * Writes the current state into a snapshot owned by the caller, so the broadcast loop can
+     * reuse one snapshot per session instead of allocating a new object graph every tick.
+     * <p>
+     * Providers that support this fill {@code target} in place (see {@link FlightSnapshot#initComponents()})
+     * and return it; the default returns a new snapshot from {@link #getCurrentSnapshot()}.
+     * </p>
+     *
+     * @return The snapshot to encode, or null if no data is available
+     */
+    default FlightSnapshot getCurrentSnapshot(FlightSnapshot target) {
+        return getCurrentSnapshot();
+    }
+
+    /**
+     * @param encoding {@link FrameEncoding#JSON} or {@link FrameEncoding#BINARY}
+     * @return The current snapshot already serialized in the given encoding, or null if the provider
+     *         has no pre-serialized form and {@link #getCurrentSnapshot()} should be encoded instead.
+     */
+    default byte[] getCurrentFrame(FrameEncoding encoding) {
+        return null;
+    }
+
     /**
      * @return The current sequence of waypoints for this flight.
      */
@@ -68,8 +91,35 @@ public interface FlightDataProvider {
 
     /**
      * Jump to a specific position in the recorded flight
+     *
+     * @param percentage Share of the flight's duration, between 0.0 and 1.0
      */
     default void setSeek(double percentage) {
         // providers may override
     }
+
+    /**
+     * Jump to the recorded sample closest to an absolute time.
+     *
+     * @param timestamp UTC epoch millis
+     */
+    default void setSeekTime(long timestamp) {
+        // providers may override
+    }
+
+    /**
+     * Jump to the recorded sample closest to a time since the start of the flight.
+     *
+     * @param elapsedMillis Millis since the first sample
+     */
+    default void setSeekElapsed(long elapsedMillis) {
+        // providers may override
+    }
+
+    /**
+     * Releases shared resources held by this provider once its session no longer uses it.
+     */
+    default void close() {
+        // providers may override
+    }
 }
@@ -0,0 +1,96 @@
+package com.miro.aviation.service;
+
+import com.miro.aviation.model.FlightRecording;
+import com.miro.aviation.model.FlightSnapshot;
+import com.miro.aviation.utils.BinaryFrameWriter;
+import com.miro.aviation.utils.FlightFrameWriter;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Pre-serialized JSON and binary frames for recent samples of a shared {@link FlightRecording}.
+ * <p>
+ * A recorded frame (including its progress block) depends only on the sample index, so every
+ * session playing the same recording can be sent the same bytes. Frames are serialized lazily
+ * the first time any session reaches a sample and then reused by the others.
+ * </p>
+ * <p>
+ * The cache is bounded, so that long memory-mapped recordings are not copied onto the heap as
+ * frames. Each encoding has a fixed number of slots, and sample {@code i} goes into slot
+ * {@code i mod slots}. Sessions move through a recording in order, so every session keeps a
+ * window of its latest samples, and sessions close together share one window. A sample evicted
+ * by a distant session is simply serialized again.
+ * </p>
+ */
+public final class FlightFrameCache {
+
+    /** Slots per encoding; a few hundred bytes per frame, so well under a megabyte each */
+    static final int DEFAULT_SLOTS = 1024;
+
+    private record Frame(int index, byte[] bytes) {
+    }
+
+    private final FlightRecording recording;
+    private final int mask;
+    private final AtomicReferenceArray<Frame> jsonFrames;
+    private final AtomicReferenceArray<Frame> binaryFrames;
+
+    public FlightFrameCache(FlightRecording recording) {
+        this(recording, DEFAULT_SLOTS);
+    }
+
+    /**
+     * @param slots Frames kept per encoding, capped at the recording's size and rounded up to a
+     *              power of two
+     */
+    FlightFrameCache(FlightRecording recording, int slots) {
+        this.recording = recording;
+        int size = Integer.highestOneBit(Math.max(1, Math.min(slots, recording.size())) * 2 - 1);
+        this.mask = size - 1;
+        this.jsonFrames = new AtomicReferenceArray<>(size);
+        this.binaryFrames = new AtomicReferenceArray<>(size);
+    }
+
+    public FlightRecording getRecording() {
+        return recording;
+    }
+
+    /**
+     * @param encoding {@link FrameEncoding#JSON} or {@link FrameEncoding#BINARY}
+     * @return The frame for the sample, or null for encodings that depend on per-session state.
+     *         Callers must not modify the returned array.
+     */
+    public byte[] frame(int index, FrameEncoding encoding) {
+        AtomicReferenceArray<Frame> frames = switch (encoding) {
+            case JSON -> jsonFrames;
+            case BINARY -> binaryFrames;
+            default -> null;
+        };
+        if (frames == null) return null;
+
+        int slot = index & mask;
+        Frame frame = frames.get(slot);
+        if (frame == null || frame.index != index) {
+            // Two sessions may race to serialize the same sample; both produce identical bytes
+            FlightSnapshot snapshot = recording.toSnapshot(index);
+            snapshot.setProgress(recording.getProgress(index));
+            frame = new Frame(index, encoding == FrameEncoding.BINARY
+                    ? BinaryFrameWriter.toBinary(snapshot)
+                    : FlightFrameWriter.toJson(snapshot));
+            frames.set(slot, frame);
+        }
+        return frame.bytes;
+    }
+
+    /**
+     * @return Frames currently held, over both encodings
+     */
+    int size() {
+        int size = 0;
+        for (int i = 0; i <= mask; i++) {
+            if (jsonFrames.get(i) != null) size++;
+            if (binaryFrames.get(i) != null) size++;
+        }
+        return size;
+    }
+}
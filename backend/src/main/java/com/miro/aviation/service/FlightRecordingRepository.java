@@ -0,0 +1,232 @@
+package com.miro.aviation.service;
+
+import com.miro.aviation.model.FlightRecording;
+import com.miro.aviation.utils.CsvFlightLoader;
+import com.miro.aviation.utils.FlightRecordingFile;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads each flight recording once and shares it between all sessions playing it back.
+ * <p>
+ * Recordings are reference-counted: every {@link #acquire(String)} must be paired with a
+ * {@link #release(FlightRecording)}. When the last session releases a recording it is evicted,
+ * so idle recordings do not stay on the heap.
+ * </p>
+ * <p>
+ * Binary {@code .avfr} recordings are memory-mapped instead of parsed. Files in the optional
+ * {@code aviation.recordings.dir} take precedence over classpath resources, and a CSV request
+ * is served from a converted {@code .avfr} with the same base name in that directory if present.
+ * </p>
+ */
+@Service
+public class FlightRecordingRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlightRecordingRepository.class);
+
+    /** Loaded (or loading) recordings keyed by resource path. Guarded by itself. */
+    private final Map<String, Entry> recordings = new HashMap<>();
+
+    /** Optional directory with recordings that override the classpath ones */
+    private final Path recordingsDir;
+
+    /** Time to parse (CSV) or map (.avfr) a recording that was not loaded yet */
+    private final Timer loadTimer;
+
+    private static final class Entry {
+        private final String resourcePath;
+        // Written under the entry's own lock while loading, read under the map lock: volatile
+        private volatile FlightRecording recording;
+        private volatile FlightFrameCache frames; // published before the recording
+        private int references;                   // guarded by the recordings map
+
+        private Entry(String resourcePath) {
+            this.resourcePath = resourcePath;
+        }
+    }
+
+    public FlightRecordingRepository() {
+        this("");
+    }
+
+    public FlightRecordingRepository(String recordingsDir) {
+        this(recordingsDir, new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public FlightRecordingRepository(@Value("${aviation.recordings.dir:}") String recordingsDir, MeterRegistry meterRegistry) {
+        this.recordingsDir = recordingsDir == null || recordingsDir.isBlank() ? null : Path.of(recordingsDir);
+        this.loadTimer = Timer.builder("aviation.data.load")
+                .description("Time to load a data set from its source")
+                .tag("dataset", "recording")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return The external recordings directory, or null if only the classpath is used
+     */
+    public Path getRecordingsDir() {
+        return recordingsDir;
+    }
+
+    /**
+     * Returns the shared recording for a classpath resource, loading it on first use.
+     *
+     * @param resourcePath Classpath location of the recording, e.g. {@code /flights/AY523.csv}
+     * @return The shared, immutable recording
+     * @throws IllegalArgumentException if the resource does not exist
+     * @throws RuntimeException if the recording cannot be parsed
+     */
+    public FlightRecording acquire(String resourcePath) {
+        Entry entry;
+        synchronized (recordings) {
+            entry = recordings.computeIfAbsent(resourcePath, Entry::new);
+            entry.references++;
+        }
+
+        // Load outside the map lock so a slow parse does not block other recordings
+        synchronized (entry) {
+            if (entry.recording == null) {
+                try {
+                    FlightRecording recording = load(resourcePath);
+                    entry.frames = new FlightFrameCache(recording);
+                    entry.recording = recording;
+                } catch (RuntimeException e) {
+                    releaseEntry(entry);
+                    throw e;
+                }
+            }
+            return entry.recording;
+        }
+    }
+
+    /**
+     * Drops one reference to a recording. The recording is evicted once no session uses it.
+     */
+    public void release(FlightRecording recording) {
+        // Empty (header-only) recordings are shared and counted too, so they are released the same way
+        if (recording == null) return;
+
+        synchronized (recordings) {
+            Entry entry = recordings.get(recording.getSource());
+            if (entry != null && entry.recording == recording) {
+                releaseEntry(entry);
+            }
+        }
+    }
+
+    /**
+     * Returns the pre-serialized frames shared by every session playing the recording.
+     *
+     * @param recording A recording obtained from {@link #acquire(String)} and not yet released
+     * @return The frame cache, or null if the recording is not held by this repository
+     */
+    public FlightFrameCache getFrames(FlightRecording recording) {
+        if (recording == null) return null;
+
+        synchronized (recordings) {
+            Entry entry = recordings.get(recording.getSource());
+            return entry != null && entry.recording == recording ? entry.frames : null;
+        }
+    }
+
+    /**
+     * @return Number of sessions currently holding the recording, or 0 if it is not loaded
+     */
+    public int getReferenceCount(String resourcePath) {
+        synchronized (recordings) {
+            Entry entry = recordings.get(resourcePath);
+            return entry != null ? entry.references : 0;
+        }
+    }
+
+    private void releaseEntry(Entry entry) {
+        synchronized (recordings) {
+            entry.references--;
+            if (entry.references <= 0 && recordings.get(entry.resourcePath) == entry) {
+                recordings.remove(entry.resourcePath);
+                logger.info("Evicted flight recording {}", entry.resourcePath);
+            }
+        }
+    }
+
+    private FlightRecording load(String resourcePath) {
+        try {
+            long start = System.nanoTime();
+            FlightRecording recording = loadExternal(resourcePath);
+            if (recording == null) {
+                recording = loadClasspath(resourcePath);
+            }
+            loadTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            logger.info("Loaded flight recording {} with {} samples", resourcePath, recording.size());
+            return recording;
+        } catch (IOException | URISyntaxException e) {
+            throw new RuntimeException("Failed to read flight recording " + resourcePath, e);
+        }
+    }
+
+    private FlightRecording loadExternal(String resourcePath) throws IOException {
+        if (recordingsDir == null) return null;
+
+        // Only the file name is used, so a request can never escape the directory
+        String fileName = Path.of(resourcePath).getFileName().toString();
+        if (fileName.endsWith(".csv")) {
+            Path converted = recordingsDir.resolve(fileName.substring(0, fileName.length() - 4) + FlightRecordingFile.EXTENSION);
+            if (Files.isRegularFile(converted)) {
+                return FlightRecordingFile.map(resourcePath, converted);
+            }
+        }
+
+        Path file = recordingsDir.resolve(fileName);
+        if (!Files.isRegularFile(file)) return null;
+        if (fileName.endsWith(FlightRecordingFile.EXTENSION)) {
+            return FlightRecordingFile.map(resourcePath, file);
+        }
+        try (InputStream is = Files.newInputStream(file)) {
+            return CsvFlightLoader.loadRecording(resourcePath, is);
+        }
+    }
+
+    private FlightRecording loadClasspath(String resourcePath) throws IOException, URISyntaxException {
+        URL url = getClass().getResource(resourcePath);
+        if (url == null) {
+            throw new IllegalArgumentException("Flight recording not found: " + resourcePath);
+        }
+
+        if (resourcePath.endsWith(FlightRecordingFile.EXTENSION)) {
+            Path file;
+            if ("file".equals(url.getProtocol())) {
+                file = Path.of(url.toURI());
+            } else {
+                // Packaged inside a jar: a mapping needs a real file
+                file = Files.createTempFile("aviation-", Path.of(resourcePath).getFileName().toString());
+                file.toFile().deleteOnExit();
+                try (InputStream is = url.openStream()) {
+                    Files.copy(is, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            return FlightRecordingFile.map(resourcePath, file);
+        }
+
+        try (InputStream is = url.openStream()) {
+            return CsvFlightLoader.loadRecording(resourcePath, is);
+        }
+    }
+}
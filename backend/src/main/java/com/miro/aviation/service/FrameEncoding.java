@@ -0,0 +1,47 @@
+package com.miro.aviation.service;
+
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+/**
+ * Wire format a session receives on {@link FlightBroadcastEngine#FLIGHT_DATA_DESTINATION},
+ * negotiated in {@code /app/switchProvider}.
+ */
+public enum FrameEncoding {
+
+    /** A full JSON snapshot every frame (default) */
+    JSON(MimeTypeUtils.APPLICATION_JSON),
+
+    /** JSON keyframes followed by frames carrying only the changed fields, see {@link DeltaFrameEncoder} */
+    DELTA(MimeTypeUtils.APPLICATION_JSON),
+
+    /**
+     * Fixed-layout little-endian struct, see {@link com.miro.aviation.utils.BinaryFrameWriter}.
+     * Sent as binary WebSocket frames, so it needs a native (non-SockJS) connection.
+     */
+    BINARY(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+
+    private final MimeType contentType;
+
+    FrameEncoding(MimeType contentType) {
+        this.contentType = contentType;
+    }
+
+    public MimeType getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return The encoding with the given (case-insensitive) name, or {@link #JSON} if unknown or null
+     */
+    public static FrameEncoding fromName(String name) {
+        if (name != null) {
+            for (FrameEncoding encoding : values()) {
+                if (encoding.name().equalsIgnoreCase(name)) {
+                    return encoding;
+                }
+            }
+        }
+        return JSON;
+    }
+}
@@ -2,15 +2,32 @@ package com.miro.aviation.service;
 
 import com.miro.aviation.model.NavPoint;
 import com.miro.aviation.utils.CsvNavDataLoader;
+import com.miro.aviation.utils.NavDataSnapshotFile;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Service responsible for loading and providing navigation data (airports, VORs, etc.).
@@ -18,15 +35,107 @@ import java.util.stream.Collectors;
  * The service loads data from a CSV resource at startup and allows querying for nearby
  * navigation points within a specified radius in nautical miles.
  * </p>
+ * <p>
+ * The points are also partitioned by {@link NavPoint#getType() type}, each type with its own
+ * index, so queries filtered by type never touch the excluded types. Filtered queries rank
+ * their results by type importance ({@link #TYPES_BY_IMPORTANCE}) and then distance, and can
+ * be capped. {@link #lodTypes(double)} picks the types worth showing at a given radius.
+ * </p>
+ * <p>
+ * With {@code aviation.nav.snapshot-file} set, the validated airports are also written to a
+ * binary {@link NavDataSnapshotFile} on first start. Later starts load the snapshot instead of
+ * parsing the CSV, for as long as the CSV's checksum still matches the one in the snapshot.
+ * </p>
+ * <p>
+ * Metrics: {@code aviation.data.load} (dataset airports), {@code aviation.nav.nearby},
+ * {@code aviation.nav.nearby.results}, the {@link NearbyQueryCache} metrics,
+ * {@code aviation.nav.nearest} and {@code aviation.nav.bbox}.
+ * </p>
  */
 @Service
 public class NavDataService {
 
     private static final Logger logger = LoggerFactory.getLogger(NavDataService.class);
 
+    static final int DEFAULT_CACHE_ENTRIES = 1024;
+
+    /**
+     * Point types from most to least important; other types rank after all of these. The CSV
+     * loader only keeps open airports, so heliports, seaplane bases etc. are not ranked.
+     */
+    public static final List<String> TYPES_BY_IMPORTANCE = List.of(
+            "large_airport", "medium_airport", "small_airport");
+
+    /**
+     * Level-of-detail tiers: up to each radius (NM), the types shown, null meaning every type;
+     * beyond the last tier only large airports. Small fields are only useful when zoomed in.
+     */
+    private static final double[] LOD_RADII_NM = {60, 250};
+    private static final List<Set<String>> LOD_TYPES = Arrays.asList(
+            null,
+            Set.of("large_airport", "medium_airport"),
+            Set.of("large_airport"));
+
     /** List of all loaded airport navigation points */
     private final List<NavPoint> airports = new ArrayList<>();
 
+    /** Spatial index over {@link #airports}, rebuilt whenever the data is (re)loaded */
+    private volatile NavGridIndex index = new NavGridIndex(List.of());
+
+    /** One index per point type, in {@link #TYPES_BY_IMPORTANCE} order, then other types by name */
+    private volatile Map<String, NavGridIndex> typeIndexes = Map.of();
+
+    /** Incremented after every reload, once the new indexes are in place */
+    private final AtomicLong version = new AtomicLong();
+
+    /** Nearby query results by quantized query, dropped whenever {@link #index} is replaced */
+    private final NearbyQueryCache nearbyCache;
+
+    /** Binary snapshot of the airports, or null to always parse the CSV */
+    private final Path snapshotFile;
+
+    private final Timer loadTimer;
+    private final Timer nearbyTimer;
+    private final Timer nearestTimer;
+    private final Timer boxTimer;
+    private final DistributionSummary nearbyResults;
+
+    public NavDataService() {
+        this(new SimpleMeterRegistry());
+    }
+
+    public NavDataService(MeterRegistry meterRegistry) {
+        this(meterRegistry, "", DEFAULT_CACHE_ENTRIES);
+    }
+
+    @Autowired
+    public NavDataService(MeterRegistry meterRegistry,
+                          @Value("${aviation.nav.snapshot-file:}") String snapshotFile,
+                          @Value("${aviation.nav.nearby-cache.max-entries:" + DEFAULT_CACHE_ENTRIES + "}") int cacheEntries) {
+        this.nearbyCache = new NearbyQueryCache(cacheEntries, meterRegistry);
+        this.nearbyCache.invalidate(index);
+        this.snapshotFile = snapshotFile == null || snapshotFile.isBlank() ? null : Path.of(snapshotFile);
+        this.loadTimer = Timer.builder("aviation.data.load")
+                .description("Time to load a data set from its source")
+                .tag("dataset", "airports")
+                .register(meterRegistry);
+        this.nearbyTimer = Timer.builder("aviation.nav.nearby")
+                .description("Nearby navigation point query latency")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.nearestTimer = Timer.builder("aviation.nav.nearest")
+                .description("Nearest navigation points query latency")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.boxTimer = Timer.builder("aviation.nav.bbox")
+                .description("Bounding box navigation point query latency")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.nearbyResults = DistributionSummary.builder("aviation.nav.nearby.results")
+                .description("Navigation points returned per nearby query")
+                .register(meterRegistry);
+    }
+
     /**
      * Initializes the navigation data engine by loading airports from CSV.
      * <p>
@@ -42,8 +151,14 @@ public class NavDataService {
                 throw new RuntimeException("airports.csv not found in resources");
             }
 
-            List<NavPoint> loaded = CsvNavDataLoader.loadAirports(is);
-            airports.addAll(loaded);
+            long start = System.nanoTime();
+            byte[] csv;
+            try (is) {
+                csv = is.readAllBytes();
+            }
+            List<NavPoint> loaded = load(csv);
+            loadTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            reload(loaded);
 
             logger.info("NavData Engine initialized with {} active airports.", airports.size());
         } catch (Exception e) {
@@ -51,8 +166,73 @@ public class NavDataService {
         }
     }
 
+    /**
+     * Loads the airports of a CSV file from its snapshot if the snapshot is up to date, otherwise
+     * parses the CSV and takes a new snapshot. A missing or unreadable snapshot only costs the
+     * parse; failing to write one is logged and otherwise ignored.
+     */
+    List<NavPoint> load(byte[] csv) {
+        if (snapshotFile == null) {
+            return CsvNavDataLoader.loadAirports(csv);
+        }
+
+        long checksum = NavDataSnapshotFile.checksum(csv);
+        try {
+            List<NavPoint> snapshot = NavDataSnapshotFile.read(snapshotFile, checksum);
+            if (snapshot != null) {
+                logger.info("Loaded {} airports from snapshot {}", snapshot.size(), snapshotFile);
+                return snapshot;
+            }
+            logger.info("Nav data snapshot {} is out of date, parsing the CSV", snapshotFile);
+        } catch (NoSuchFileException e) {
+            logger.info("No nav data snapshot at {} yet, parsing the CSV", snapshotFile);
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable nav data snapshot {}: {}", snapshotFile, e.getMessage());
+        }
+
+        List<NavPoint> parsed = CsvNavDataLoader.loadAirports(csv);
+        try {
+            NavDataSnapshotFile.write(parsed, checksum, snapshotFile);
+            logger.info("Wrote nav data snapshot {}", snapshotFile);
+        } catch (IOException e) {
+            logger.warn("Failed to write nav data snapshot {}: {}", snapshotFile, e.getMessage());
+        }
+        return parsed;
+    }
+
+    /**
+     * Replaces the loaded airports and rebuilds the spatial index over them.
+     *
+     * @param loaded Airports to serve from now on
+     */
+    public void reload(List<NavPoint> loaded) {
+        NavGridIndex rebuilt = new NavGridIndex(loaded);
+        Map<String, List<NavPoint>> byType = new HashMap<>();
+        for (NavPoint point : loaded) {
+            byType.computeIfAbsent(point.getType() == null ? "" : point.getType(), t -> new ArrayList<>()).add(point);
+        }
+        Map<String, NavGridIndex> partitioned = new LinkedHashMap<>();
+        byType.keySet().stream()
+                .sorted((a, b) -> importance(a) != importance(b) ? Integer.compare(importance(a), importance(b)) : a.compareTo(b))
+                .forEach(type -> partitioned.put(type, new NavGridIndex(byType.get(type))));
+
+        typeIndexes = partitioned;
+        synchronized (airports) {
+            airports.clear();
+            airports.addAll(loaded);
+        }
+        index = rebuilt;
+        nearbyCache.invalidate(rebuilt);
+        version.incrementAndGet();
+    }
+
     /**
      * Finds all navigation points (airports) within the specified radius of a given location.
+     * <p>
+     * Only the grid cells around the location are examined, and the result is the same, in the
+     * same order, as a haversine check of every airport. Nearby locations and radii share a
+     * cached candidate set, see {@link NearbyQueryCache}.
+     * </p>
      *
      * @param lat      Latitude of the reference point in decimal degrees
      * @param lon      Longitude of the reference point in decimal degrees
@@ -60,30 +240,111 @@ public class NavDataService {
      * @return List of {@link NavPoint} objects within the radius
      */
     public List<NavPoint> findNearby(double lat, double lon, double radiusNM) {
-        return airports.stream()
-                .filter(a -> calculateDistanceNM(lat, lon, a.getLatitude(), a.getLongitude()) <= radiusNM)
-                .collect(Collectors.toList());
+        long start = System.nanoTime();
+        List<NavPoint> result = nearbyCache.findWithin(index, lat, lon, radiusNM);
+        nearbyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        nearbyResults.record(result.size());
+        return result;
+    }
+
+    /**
+     * Finds navigation points within a radius, restricted to some types and ranked.
+     * <p>
+     * Types are visited from the most important down, each through its own index, and the
+     * search stops as soon as the limit is reached, so excluded and lower-ranked types cost
+     * nothing. Within a type, points are ordered by distance, ties in load order.
+     * </p>
+     *
+     * @param types Types to include, or null for all
+     * @param limit Maximum number of points, or 0 for no limit
+     * @return Matching points by type importance, then distance
+     */
+    public List<NavPoint> findNearby(double lat, double lon, double radiusNM, Collection<String> types, int limit) {
+        long start = System.nanoTime();
+        List<NavPoint> result = new ArrayList<>();
+        for (Map.Entry<String, NavGridIndex> partition : typeIndexes.entrySet()) {
+            if (types != null && !types.contains(partition.getKey())) {
+                continue;
+            }
+            int remaining = limit > 0 ? limit - result.size() : Integer.MAX_VALUE;
+            if (remaining <= 0) {
+                break;
+            }
+            result.addAll(partition.getValue().findNearest(lat, lon, remaining, radiusNM));
+        }
+        nearbyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        nearbyResults.record(result.size());
+        return result;
     }
 
     /**
-     * Calculates the distance between two geographic coordinates using the Haversine formula.
+     * Finds navigation points of some types in a latitude/longitude box, by type importance and
+     * then load order. Excluded types are not read.
      *
-     * @param lat1 Latitude of first point in decimal degrees
-     * @param lon1 Longitude of first point in decimal degrees
-     * @param lat2 Latitude of second point in decimal degrees
-     * @param lon2 Longitude of second point in decimal degrees
-     * @return Distance between the two points in nautical miles
+     * @param types Types to include, or null for all
+     */
+    public List<NavPoint> findInBox(double south, double west, double north, double east, Collection<String> types) {
+        long start = System.nanoTime();
+        List<NavPoint> result = new ArrayList<>();
+        for (Map.Entry<String, NavGridIndex> partition : typeIndexes.entrySet()) {
+            if (types == null || types.contains(partition.getKey())) {
+                result.addAll(partition.getValue().findInBox(south, west, north, east));
+            }
+        }
+        boxTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    /**
+     * @return A number that changes whenever the data is reloaded, for caches derived from it
      */
-    private double calculateDistanceNM(double lat1, double lon1, double lat2, double lon2) {
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * @return The point types shown at a search radius: every type (null) up to 60 NM, medium
+     *         and large airports up to 250 NM, and only large airports beyond
+     */
+    public static Set<String> lodTypes(double radiusNM) {
+        for (int i = 0; i < LOD_RADII_NM.length; i++) {
+            if (radiusNM <= LOD_RADII_NM[i]) {
+                return LOD_TYPES.get(i);
+            }
+        }
+        return LOD_TYPES.get(LOD_TYPES.size() - 1);
+    }
 
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
-                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
-                        Math.sin(dLon / 2) * Math.sin(dLon / 2);
+    private static int importance(String type) {
+        int rank = TYPES_BY_IMPORTANCE.indexOf(type);
+        return rank < 0 ? TYPES_BY_IMPORTANCE.size() : rank;
+    }
 
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    /**
+     * Finds the navigation points closest to a location.
+     *
+     * @param lat Latitude of the reference point in decimal degrees
+     * @param lon Longitude of the reference point in decimal degrees
+     * @param k   Number of points wanted
+     * @return Up to k points, nearest first
+     */
+    public List<NavPoint> findNearest(double lat, double lon, int k) {
+        long start = System.nanoTime();
+        List<NavPoint> result = index.findNearest(lat, lon, k);
+        nearestTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return result;
+    }
 
-        return 3440.065 * c; // Convert radians to nautical miles
+    /**
+     * Finds all navigation points in a latitude/longitude box, such as a map viewport. A box
+     * whose west edge is east of its east edge crosses the antimeridian.
+     *
+     * @return Points inside the box or on its edges
+     */
+    public List<NavPoint> findInBox(double south, double west, double north, double east) {
+        long start = System.nanoTime();
+        List<NavPoint> result = index.findInBox(south, west, north, east);
+        boxTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return result;
     }
 }
@@ -0,0 +1,374 @@
+package com.miro.aviation.service;
+
+import com.miro.aviation.model.NavPoint;
+import com.miro.aviation.utils.GeoUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Immutable 1°×1° latitude/longitude grid over a list of navigation points.
+ * <p>
+ * Points are bucketed into cells once, with their coordinates copied into flat arrays in cell
+ * order so that scanning a cell is a sequential read. A radius query only visits the cells
+ * overlapping the query's bounding box and then applies the exact haversine test, so it returns
+ * precisely the points a full scan would, in the same (input) order.
+ * </p>
+ * <p>
+ * The bounding box is widened to all longitudes when the search circle contains a pole, and
+ * wraps across the antimeridian otherwise.
+ * </p>
+ * <p>
+ * Nearest-neighbour queries visit cells best-first, by their exact minimum distance from the
+ * query, and stop once no unvisited cell can hold a closer point, so their cost depends on the
+ * local density rather than the data size. Box queries visit the cells overlapping the box and
+ * take cells that lie wholly inside it without testing their points.
+ * </p>
+ */
+public final class NavGridIndex {
+
+    private static final int ROWS = 180;
+    private static final int COLS = 360;
+
+    /** Widens bounding boxes so rounding never drops a point that lies on the boundary */
+    private static final double MARGIN_DEGREES = 1e-6;
+    /** Lowers cell distance bounds so rounding never prunes a cell holding a tied point */
+    private static final double MARGIN_NM = 1e-3;
+
+    /** Nearest-first, ties broken by input order */
+    private static final Comparator<Neighbour> NEAREST_FIRST =
+            Comparator.comparingDouble(Neighbour::distance).thenComparingInt(Neighbour::index);
+
+    private final List<NavPoint> points;
+
+    /** Offsets into {@link #order} per cell (row-major), length ROWS * COLS + 1 */
+    private final int[] cellStart;
+    /** Point indices grouped by cell, ascending within each cell */
+    private final int[] order;
+    private final double[] lats;
+    private final double[] lons;
+
+    public NavGridIndex(List<NavPoint> points) {
+        this.points = List.copyOf(points);
+        int n = this.points.size();
+
+        // Counting sort of the points into their cells
+        int[] cells = new int[n];
+        cellStart = new int[ROWS * COLS + 1];
+        for (int i = 0; i < n; i++) {
+            NavPoint p = this.points.get(i);
+            cells[i] = cell(row(p.getLatitude()), col(p.getLongitude()));
+            cellStart[cells[i] + 1]++;
+        }
+        for (int c = 0; c < ROWS * COLS; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+
+        order = new int[n];
+        lats = new double[n];
+        lons = new double[n];
+        int[] fill = Arrays.copyOf(cellStart, ROWS * COLS);
+        for (int i = 0; i < n; i++) {
+            int slot = fill[cells[i]]++;
+            NavPoint p = this.points.get(i);
+            order[slot] = i;
+            lats[slot] = p.getLatitude();
+            lons[slot] = p.getLongitude();
+        }
+    }
+
+    public int size() {
+        return points.size();
+    }
+
+    /**
+     * Finds all points within the radius of a location.
+     *
+     * @param lat      Latitude of the reference point in decimal degrees
+     * @param lon      Longitude of the reference point in decimal degrees
+     * @param radiusNM Radius in nautical miles
+     * @return Matching points in input order
+     */
+    public List<NavPoint> findWithin(double lat, double lon, double radiusNM) {
+        if (!(radiusNM >= 0) || points.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (!(Math.abs(lat) <= 90) || !Double.isFinite(lon)) {
+            return scanAll(lat, lon, radiusNM); // the box math assumes a valid reference point
+        }
+
+        double radiusDeg = Math.toDegrees(radiusNM / GeoUtils.EARTH_RADIUS_NM);
+        double latMin = lat - radiusDeg - MARGIN_DEGREES;
+        double latMax = lat + radiusDeg + MARGIN_DEGREES;
+
+        int colMin;
+        int colMax;
+        if (latMax >= 90 || latMin <= -90) {
+            // The circle contains a pole, so every longitude is in range
+            colMin = 0;
+            colMax = COLS - 1;
+        } else {
+            double lonRadius = Math.toDegrees(Math.asin(
+                    Math.sin(Math.toRadians(radiusDeg)) / Math.cos(Math.toRadians(lat))));
+            double lonMin = lon - lonRadius - MARGIN_DEGREES;
+            double lonMax = lon + lonRadius + MARGIN_DEGREES;
+            colMin = (int) Math.floor(lonMin + 180);
+            colMax = (int) Math.floor(lonMax + 180);
+            if (Double.isNaN(lonRadius) || colMax - colMin + 1 >= COLS) {
+                colMin = 0;
+                colMax = COLS - 1;
+            }
+        }
+
+        int rowMin = row(latMin);
+        int rowMax = row(latMax);
+        int[] matches = new int[16];
+        int count = 0;
+
+        for (int r = rowMin; r <= rowMax; r++) {
+            for (int c = colMin; c <= colMax; c++) {
+                int cell = cell(r, Math.floorMod(c, COLS)); // wraps across the antimeridian
+                for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                    if (GeoUtils.distanceNM(lat, lon, lats[k], lons[k]) <= radiusNM) {
+                        if (count == matches.length) {
+                            matches = Arrays.copyOf(matches, count * 2);
+                        }
+                        matches[count++] = order[k];
+                    }
+                }
+            }
+        }
+
+        // Restore input order so results match a linear scan exactly
+        Arrays.sort(matches, 0, count);
+        List<NavPoint> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(points.get(matches[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Finds the points closest to a location.
+     *
+     * @param lat Latitude of the reference point in decimal degrees
+     * @param lon Longitude of the reference point in decimal degrees
+     * @param k   Number of points wanted
+     * @return Up to k points, nearest first, ties in input order
+     */
+    public List<NavPoint> findNearest(double lat, double lon, int k) {
+        return findNearest(lat, lon, k, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Finds the points closest to a location, but no farther than a radius. Cells beyond the
+     * radius are never visited, so a small radius stays cheap however large k is.
+     *
+     * @param radiusNM Radius in nautical miles
+     * @return Up to k points within the radius, nearest first, ties in input order
+     */
+    public List<NavPoint> findNearest(double lat, double lon, int k, double radiusNM) {
+        if (k <= 0 || !(radiusNM >= 0) || points.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (!(Math.abs(lat) <= 90) || !Double.isFinite(lon)) {
+            return scanNearest(lat, lon, k, radiusNM); // the cell bounds assume a valid reference point
+        }
+
+        // Farthest of the best k so far on top, so it is the one replaced
+        PriorityQueue<Neighbour> best = new PriorityQueue<>(NEAREST_FIRST.reversed());
+        PriorityQueue<Neighbour> cells = new PriorityQueue<>(NEAREST_FIRST);
+        BitSet queued = new BitSet(ROWS * COLS);
+        int start = cell(row(lat), col(lon));
+        cells.add(new Neighbour(0, start));
+        queued.set(start);
+
+        while (!cells.isEmpty()) {
+            Neighbour next = cells.poll();
+            if (next.distance > radiusNM || (best.size() == k && next.distance > best.peek().distance)) {
+                break; // no unvisited cell can hold a point in range and closer than the k-th
+            }
+
+            int cell = next.index;
+            for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                Neighbour candidate = new Neighbour(GeoUtils.distanceNM(lat, lon, lats[i], lons[i]), order[i]);
+                if (candidate.distance > radiusNM) {
+                    continue;
+                }
+                if (best.size() < k) {
+                    best.add(candidate);
+                } else if (NEAREST_FIRST.compare(candidate, best.peek()) < 0) {
+                    best.poll();
+                    best.add(candidate);
+                }
+            }
+
+            // Cells within any distance form a connected region, so expanding neighbours reaches them all
+            int r = cell / COLS;
+            int c = cell % COLS;
+            for (int dr = -1; dr <= 1; dr++) {
+                for (int dc = -1; dc <= 1; dc++) {
+                    if (r + dr >= 0 && r + dr < ROWS) {
+                        enqueue(cells, queued, lat, lon, r + dr, Math.floorMod(c + dc, COLS));
+                    }
+                }
+            }
+            if (r == 0 || r == ROWS - 1) {
+                enqueue(cells, queued, lat, lon, r, (c + COLS / 2) % COLS); // across the pole
+            }
+        }
+
+        List<Neighbour> nearest = new ArrayList<>(best);
+        nearest.sort(NEAREST_FIRST);
+        List<NavPoint> result = new ArrayList<>(nearest.size());
+        for (Neighbour neighbour : nearest) {
+            result.add(points.get(neighbour.index));
+        }
+        return result;
+    }
+
+    /**
+     * Finds all points in a latitude/longitude box, edges included. A box whose west edge is
+     * east of its east edge crosses the antimeridian.
+     *
+     * @param south Southern edge in decimal degrees
+     * @param west  Western edge in decimal degrees, -180 to 180
+     * @param north Northern edge in decimal degrees
+     * @param east  Eastern edge in decimal degrees, -180 to 180
+     * @return Matching points in input order
+     */
+    public List<NavPoint> findInBox(double south, double west, double north, double east) {
+        if (!(south <= north) || !Double.isFinite(west) || !Double.isFinite(east) || points.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        boolean wraps = west > east;
+        int colMin = (int) Math.floor(west + 180);
+        int colMax = (int) Math.floor((wraps ? east + 360 : east) + 180);
+        if (colMax - colMin + 1 >= COLS) {
+            colMin = 0;
+            colMax = COLS - 1;
+        }
+        int rowMin = row(south);
+        int rowMax = row(north);
+
+        int[] matches = new int[16];
+        int count = 0;
+        for (int r = rowMin; r <= rowMax; r++) {
+            boolean rowInside = south <= r - 90 && r - 89 <= north;
+            for (int c = colMin; c <= colMax; c++) {
+                int col = Math.floorMod(c, COLS);
+                int cell = cell(r, col);
+                int from = cellStart[cell];
+                int to = cellStart[cell + 1];
+                if (from == to) {
+                    continue;
+                }
+                if (matches.length < count + (to - from)) {
+                    matches = Arrays.copyOf(matches, Math.max(matches.length * 2, count + (to - from)));
+                }
+
+                double cellWest = col - 180;
+                boolean inside = rowInside && (wraps
+                        ? (west <= cellWest && cellWest + 1 <= 180) || cellWest + 1 <= east
+                        : west <= cellWest && cellWest + 1 <= east);
+                for (int k = from; k < to; k++) {
+                    if (inside || (lats[k] >= south && lats[k] <= north
+                            && (wraps ? lons[k] >= west || lons[k] <= east : lons[k] >= west && lons[k] <= east))) {
+                        matches[count++] = order[k];
+                    }
+                }
+            }
+        }
+
+        Arrays.sort(matches, 0, count);
+        List<NavPoint> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(points.get(matches[i]));
+        }
+        return result;
+    }
+
+    private void enqueue(PriorityQueue<Neighbour> cells, BitSet queued, double lat, double lon, int row, int col) {
+        int cell = cell(row, col);
+        if (!queued.get(cell)) {
+            queued.set(cell);
+            cells.add(new Neighbour(Math.max(0, distanceToCell(lat, lon, row, col) - MARGIN_NM), cell));
+        }
+    }
+
+    /**
+     * Exact great-circle distance from a location to the nearest point of a cell. Outside the
+     * cell's longitudes the nearest point lies on the closer meridian edge, at the edge's closest
+     * latitude to the location's foot on that meridian, or at one of the edge's ends.
+     */
+    static double distanceToCell(double lat, double lon, int row, int col) {
+        double latMin = row - 90;
+        double latMax = latMin + 1;
+        double lonMin = col - 180;
+        double offset = (lon - lonMin) % 360; // eastward from the cell's west edge
+        if (offset < 0) {
+            offset += 360;
+        }
+        if (offset <= 1) {
+            return GeoUtils.distanceNM(lat, lon, Math.max(latMin, Math.min(latMax, lat)), lon);
+        }
+
+        double edgeLon = offset - 1 < 360 - offset ? lonMin + 1 : lonMin;
+        double dLon = Math.toRadians(Math.min(offset - 1, 360 - offset));
+        // Foot of the location on the edge's meridian, where cos(distance) peaks
+        double foot = Math.toDegrees(Math.atan2(Math.sin(Math.toRadians(lat)), Math.cos(Math.toRadians(lat)) * Math.cos(dLon)));
+        double distance = Math.min(GeoUtils.distanceNM(lat, lon, latMin, edgeLon), GeoUtils.distanceNM(lat, lon, latMax, edgeLon));
+        if (foot > latMin && foot < latMax) {
+            distance = Math.min(distance, GeoUtils.distanceNM(lat, lon, foot, edgeLon));
+        }
+        return distance;
+    }
+
+    private List<NavPoint> scanNearest(double lat, double lon, int k, double radiusNM) {
+        List<Neighbour> all = new ArrayList<>();
+        for (int i = 0; i < points.size(); i++) {
+            NavPoint p = points.get(i);
+            double distance = GeoUtils.distanceNM(lat, lon, p.getLatitude(), p.getLongitude());
+            if (distance <= radiusNM || radiusNM == Double.POSITIVE_INFINITY) { // NaN distances only without a radius
+                all.add(new Neighbour(distance, i));
+            }
+        }
+        all.sort(NEAREST_FIRST);
+        List<NavPoint> result = new ArrayList<>(Math.min(k, all.size()));
+        for (int i = 0; i < Math.min(k, all.size()); i++) {
+            result.add(points.get(all.get(i).index));
+        }
+        return result;
+    }
+
+    private List<NavPoint> scanAll(double lat, double lon, double radiusNM) {
+        List<NavPoint> result = new ArrayList<>();
+        for (NavPoint p : points) {
+            if (GeoUtils.distanceNM(lat, lon, p.getLatitude(), p.getLongitude()) <= radiusNM) {
+                result.add(p);
+            }
+        }
+        return result;
+    }
+
+    private static int row(double lat) {
+        return Math.max(0, Math.min(ROWS - 1, (int) Math.floor(lat + 90)));
+    }
+
+    private static int col(double lon) {
+        return Math.floorMod((int) Math.floor(lon + 180), COLS);
+    }
+
+    private static int cell(int row, int col) {
+        return row * COLS + col;
+    }
+
+    /** A point (or, while searching, a cell) and its distance from the query */
+    private record Neighbour(double distance, int index) {
+    }
+}
@@ -0,0 +1,167 @@
+package com.miro.aviation.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miro.aviation.model.NavPoint;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Serves navigation points per slippy-map tile ({@code z/x/y}, Web Mercator), ready to be
+ * cached by browsers and proxies.
+ * <p>
+ * Tiles are built on first request and memoized as serialized JSON with a strong ETag derived
+ * from their bytes, in an LRU that is dropped when the nav data is reloaded. Tiles partition
+ * the map: a point on a shared edge belongs to the tile with the higher x or y, as in the usual
+ * tile numbering, and the top and bottom rows reach the poles, so no airport beyond the
+ * Mercator range is lost. Zoomed-out
+ * tiles only carry the more important types, see {@link #tileTypes(int)}.
+ * </p>
+ * <p>
+ * Metrics: {@code aviation.nav.tiles} (result hit/miss).
+ * </p>
+ */
+@Service
+public class NavTileService {
+
+    public static final int MAX_ZOOM = 16;
+
+    /**
+     * A serialized tile.
+     *
+     * @param body JSON array of {@link NavPoint}s
+     * @param etag Strong entity tag, quoted
+     */
+    public record Tile(byte[] body, String etag) {
+    }
+
+    private final NavDataService navDataService;
+    private final ObjectMapper objectMapper;
+    private final int maxEntries;
+    private final long maxAgeSeconds;
+    private final Map<Long, Tile> tiles;
+    private final Counter hits;
+    private final Counter misses;
+
+    /** Data version the memoized tiles were built from; guarded by this */
+    private long version = -1;
+
+    public NavTileService(NavDataService navDataService, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                          @Value("${aviation.nav.tiles.cache-entries:4096}") int maxEntries,
+                          @Value("${aviation.nav.tiles.max-age-seconds:3600}") long maxAgeSeconds) {
+        this.navDataService = navDataService;
+        this.objectMapper = objectMapper;
+        this.maxEntries = maxEntries;
+        this.maxAgeSeconds = maxAgeSeconds;
+        this.tiles = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Tile> eldest) {
+                return size() > NavTileService.this.maxEntries;
+            }
+        };
+        this.hits = Counter.builder("aviation.nav.tiles")
+                .description("Tile requests by cache result")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("aviation.nav.tiles")
+                .description("Tile requests by cache result")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return How long clients may reuse a tile without asking again
+     */
+    public long getMaxAgeSeconds() {
+        return maxAgeSeconds;
+    }
+
+    /**
+     * Returns a tile, building it on first use.
+     *
+     * @return The tile, or null if the coordinates do not name one
+     */
+    public Tile getTile(int z, int x, int y) {
+        if (z < 0 || z > MAX_ZOOM || x < 0 || y < 0 || x >= 1 << z || y >= 1 << z) {
+            return null;
+        }
+
+        // Read the version before the data, so a tile is never filed under a newer version than its contents
+        long current = navDataService.getVersion();
+        long key = ((long) z << 40) | ((long) x << 20) | y;
+        synchronized (this) {
+            if (version != current) {
+                tiles.clear();
+                version = current;
+            }
+            Tile tile = tiles.get(key);
+            if (tile != null) {
+                hits.increment();
+                return tile;
+            }
+        }
+
+        misses.increment();
+        Tile tile = build(z, x, y);
+        synchronized (this) {
+            if (version == current) {
+                tiles.put(key, tile);
+            }
+        }
+        return tile;
+    }
+
+    /**
+     * @return The point types carried by tiles of a zoom level: large airports up to zoom 4,
+     *         medium and large airports up to zoom 6, and everything (null) beyond
+     */
+    public static Set<String> tileTypes(int z) {
+        if (z <= 4) {
+            return Set.of("large_airport");
+        }
+        if (z <= 6) {
+            return Set.of("large_airport", "medium_airport");
+        }
+        return null;
+    }
+
+    private Tile build(int z, int x, int y) {
+        int n = 1 << z;
+        double west = x * 360.0 / n - 180;
+        double east = (x + 1) * 360.0 / n - 180;
+        double north = y == 0 ? 90 : latitude(y, n);
+        double south = y == n - 1 ? -90 : latitude(y + 1, n);
+
+        List<NavPoint> points = new ArrayList<>();
+        for (NavPoint point : navDataService.findInBox(south, west, north, east, tileTypes(z))) {
+            // Shared edges belong to the neighbour east or south, except at the map's own edges
+            if ((point.getLongitude() < east || x == n - 1) && (point.getLatitude() > south || y == n - 1)) {
+                points.add(point);
+            }
+        }
+
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(points);
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return new Tile(body, "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"");
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Failed to build nav tile " + z + "/" + x + "/" + y, e);
+        }
+    }
+
+    /** Latitude of the top edge of tile row y */
+    private static double latitude(int y, int n) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2.0 * y / n))));
+    }
+}
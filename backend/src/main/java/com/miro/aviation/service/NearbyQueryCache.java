@@ -0,0 +1,233 @@
+package com.miro.aviation.service;
+
+import com.miro.aviation.model.NavPoint;
+import com.miro.aviation.utils.GeoUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache for nearby queries, keyed on a quantized (latitude, longitude, radius).
+ * <p>
+ * Queries whose center falls into the same 0.1° cell and whose radius rounds up to the same
+ * 5 NM step share an entry. The entry holds the points within the rounded radius plus the
+ * cell's half-diagonal of the cell's center, which by the triangle inequality includes every
+ * point within the rounded radius of any location in the cell. Candidates are kept in input
+ * order with their distance from the cell's center. A query only needs the exact haversine test
+ * of {@link NavGridIndex} for candidates whose distance the triangle inequality cannot settle
+ * with a safe margin. Those lie in a ring no wider than the cell around the query radius, so a
+ * cached answer is exactly the answer of an exact query.
+ * </p>
+ * <p>
+ * The cache is bounded both by entries and by the candidates they hold in total, since a
+ * large-radius entry copies a large share of the data set. Queries above
+ * {@link #MAX_BOUNDED_RADIUS_NM}, and entries with more than a sixteenth of the candidate
+ * budget, are answered by the index without being cached.
+ * </p>
+ * <p>
+ * Entries belong to one index. {@link #invalidate(NavGridIndex)} drops them when the data is
+ * reloaded, and a query that started against an older index neither reads nor stores entries.
+ * </p>
+ * <p>
+ * Metrics: {@code aviation.nav.nearby.cache} (result hit/miss),
+ * {@code aviation.nav.nearby.cache.size} and {@code aviation.nav.nearby.cache.candidates}.
+ * </p>
+ */
+final class NearbyQueryCache {
+
+    static final double CELL_DEGREES = 0.1;
+    static final double RADIUS_STEP_NM = 5;
+
+    /** Absorbs rounding in the triangle inequality, far above haversine's error */
+    private static final double MARGIN_NM = 0.01;
+    /**
+     * Candidate sets wider than this always use the exact test: close to antipodal distances
+     * haversine loses precision, and the margin would no longer cover its error
+     */
+    private static final double MAX_BOUNDED_RADIUS_NM = 5000;
+    /** Candidates held over all entries by default, a few tens of megabytes */
+    static final int DEFAULT_MAX_CANDIDATES = 1 << 19;
+    /** An entry may take at most this share of the candidate budget */
+    private static final int MAX_ENTRY_SHARE = 16;
+
+    private final int maxEntries;
+    private final long maxCandidates;
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Counter hits;
+    private final Counter misses;
+
+    /** Index the entries were computed from; guarded by this */
+    private NavGridIndex index;
+    /** Candidates held by all entries; guarded by this */
+    private long candidates;
+
+    NearbyQueryCache(int maxEntries, MeterRegistry meterRegistry) {
+        this(maxEntries, DEFAULT_MAX_CANDIDATES, meterRegistry);
+    }
+
+    NearbyQueryCache(int maxEntries, long maxCandidates, MeterRegistry meterRegistry) {
+        this.maxEntries = maxEntries;
+        this.maxCandidates = maxCandidates;
+        this.hits = Counter.builder("aviation.nav.nearby.cache")
+                .description("Nearby queries by cache result")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("aviation.nav.nearby.cache")
+                .description("Nearby queries by cache result")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("aviation.nav.nearby.cache.size", this, NearbyQueryCache::size)
+                .description("Cached nearby query cells")
+                .register(meterRegistry);
+        Gauge.builder("aviation.nav.nearby.cache.candidates", this, NearbyQueryCache::candidates)
+                .description("Points held by cached nearby query cells")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Same as {@link NavGridIndex#findWithin(double, double, double)} on the given index,
+     * answered from the cache where possible.
+     */
+    List<NavPoint> findWithin(NavGridIndex index, double lat, double lon, double radiusNM) {
+        if (maxEntries <= 0 || !(Math.abs(lat) < 90) || !Double.isFinite(lon)
+                || !(radiusNM >= 0) || radiusNM > MAX_BOUNDED_RADIUS_NM) {
+            return index.findWithin(lat, lon, radiusNM);
+        }
+
+        Key key = new Key((int) Math.floor(lat / CELL_DEGREES), (int) Math.floor(lon / CELL_DEGREES),
+                (int) Math.ceil(radiusNM / RADIUS_STEP_NM));
+        Entry entry;
+        synchronized (this) {
+            entry = this.index == index ? entries.get(key) : null;
+        }
+
+        if (entry != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            entry = load(index, key);
+            if (entry.bounded && entry.points.length <= maxCandidates / MAX_ENTRY_SHARE) {
+                store(index, key, entry);
+            }
+        }
+        return entry.filter(lat, lon, radiusNM);
+    }
+
+    /**
+     * Drops all entries; only queries against {@code current} are cached from now on.
+     */
+    synchronized void invalidate(NavGridIndex current) {
+        entries.clear();
+        candidates = 0;
+        index = current;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long candidates() {
+        return candidates;
+    }
+
+    private synchronized void store(NavGridIndex index, Key key, Entry entry) {
+        if (this.index != index) {
+            return;
+        }
+        Entry replaced = entries.put(key, entry);
+        candidates += entry.points.length - (replaced != null ? replaced.points.length : 0);
+
+        // Evict least recently used entries until both bounds hold
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (entries.size() > maxEntries || candidates > maxCandidates) {
+            candidates -= eldest.next().points.length;
+            eldest.remove();
+        }
+    }
+
+    private static Entry load(NavGridIndex index, Key key) {
+        double latMin = key.latCell * CELL_DEGREES;
+        double lonMin = key.lonCell * CELL_DEGREES;
+        double latMax = latMin + CELL_DEGREES;
+        double lonMax = lonMin + CELL_DEGREES;
+        double centerLat = latMin + CELL_DEGREES / 2;
+        double centerLon = lonMin + CELL_DEGREES / 2;
+
+        // A cell's farthest points from its center are its corners (cells at the poles are clamped)
+        double halfDiagonal = 0;
+        for (double cornerLat : new double[]{Math.max(-90, latMin), Math.min(90, latMax)}) {
+            for (double cornerLon : new double[]{lonMin, lonMax}) {
+                halfDiagonal = Math.max(halfDiagonal, GeoUtils.distanceNM(centerLat, centerLon, cornerLat, cornerLon));
+            }
+        }
+
+        double cover = key.radiusStep * RADIUS_STEP_NM + halfDiagonal + MARGIN_NM;
+        return new Entry(centerLat, centerLon, cover <= MAX_BOUNDED_RADIUS_NM,
+                index.findWithin(centerLat, centerLon, cover));
+    }
+
+    private record Key(int latCell, int lonCell, int radiusStep) {
+    }
+
+    /**
+     * Candidate points of a key, in input order, with their coordinates and distance from the
+     * cell's center copied for scanning
+     */
+    private static final class Entry {
+        private final double centerLat;
+        private final double centerLon;
+        /** Whether {@link #centerDistances} may be used to settle candidates without haversine */
+        private final boolean bounded;
+        private final NavPoint[] points;
+        private final double[] lats;
+        private final double[] lons;
+        private final double[] centerDistances;
+
+        private Entry(double centerLat, double centerLon, boolean bounded, List<NavPoint> candidates) {
+            this.centerLat = centerLat;
+            this.centerLon = centerLon;
+            this.bounded = bounded;
+            int n = candidates.size();
+            points = candidates.toArray(new NavPoint[0]);
+            lats = new double[n];
+            lons = new double[n];
+            centerDistances = new double[n];
+            for (int i = 0; i < n; i++) {
+                lats[i] = points[i].getLatitude();
+                lons[i] = points[i].getLongitude();
+                centerDistances[i] = GeoUtils.distanceNM(centerLat, centerLon, lats[i], lons[i]);
+            }
+        }
+
+        private List<NavPoint> filter(double lat, double lon, double radiusNM) {
+            // Candidates certainly inside or outside the radius, by the triangle inequality via the center
+            double offset = bounded ? GeoUtils.distanceNM(centerLat, centerLon, lat, lon) : Double.NaN;
+            double inside = radiusNM - offset - MARGIN_NM;
+            double outside = radiusNM + offset + MARGIN_NM;
+
+            List<NavPoint> result = new ArrayList<>();
+            for (int i = 0; i < points.length; i++) {
+                if (bounded) {
+                    double d = centerDistances[i];
+                    if (d <= inside) {
+                        result.add(points[i]);
+                        continue;
+                    }
+                    if (d > outside) {
+                        continue;
+                    }
+                }
+                if (GeoUtils.distanceNM(lat, lon, lats[i], lons[i]) <= radiusNM) {
+                    result.add(points[i]);
+                }
+            }
+            return result;
+        }
+    }
+}
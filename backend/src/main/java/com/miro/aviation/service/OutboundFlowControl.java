@@ -0,0 +1,324 @@
+package com.miro.aviation.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.time.Clock;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Per-session flow control on the {@code clientOutboundChannel}.
+ * <p>
+ * Flight data frames are conflated: at most one frame per session is being written to the
+ * socket, and a newer frame replaces one that is still waiting instead of queuing behind it.
+ * A slow client therefore only ever holds the latest frame, and does not tie up memory or
+ * delay other sessions with a backlog of stale ones. Other messages (flight plans etc.) are
+ * never conflated or dropped.
+ * </p>
+ * <p>
+ * Bytes accepted for a session but not yet written are counted. While a session is over
+ * {@code aviation.outbound.max-buffered-bytes}, new flight frames are dropped. Since conflation
+ * keeps at most one flight frame per session in flight, the limit is mostly reached by other
+ * messages piling up behind a blocked socket. A session is disconnected once it is stalled for
+ * {@code aviation.outbound.disconnect-after-ms}: one flight frame write has been in progress that
+ * long, or the session has stayed over the byte limit that long. Both are checked as new flight
+ * frames arrive for the session, which the broadcast engine produces every few ticks.
+ * </p>
+ * <p>
+ * Counting ends when a message has been handed to the transport. While another thread is
+ * flushing the session, e.g. a flight plan sent from a control message, Spring's
+ * {@code ConcurrentWebSocketSessionDecorator} only queues the message and returns, so that
+ * backlog is neither counted here nor seen as a stalled write. Spring creates the decorator
+ * inside its own handler, out of reach of this interceptor, so the backlog is bounded only by the
+ * decorator's send-buffer and send-time limits, which {@code WebSocketConfig} sets to a multiple
+ * of the limits here.
+ * </p>
+ * <p>
+ * Sessions are tracked from their CONNECT/CONNECT_ACK until their {@link SessionDisconnectEvent}.
+ * Messages for untracked sessions, such as the broker's DISCONNECT_ACK that follows the event,
+ * pass through unaccounted, so a closed session leaves nothing behind.
+ * </p>
+ * <p>
+ * Metrics: {@code aviation.frames.dropped} (by reason: conflated or over-limit),
+ * {@code aviation.sessions.disconnected}, {@code aviation.outbound.buffered} and
+ * {@code aviation.outbound.write} (time to write one flight frame to a session's socket).
+ * </p>
+ */
+@Component
+public class OutboundFlowControl implements ExecutorChannelInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboundFlowControl.class);
+
+    private final Clock clock;
+    private final WebSocketSessionRegistry sessionRegistry;
+    private final long maxBufferedBytes;
+    private final long disconnectAfterMillis;
+
+    private final Map<String, SessionFlow> flows = new ConcurrentHashMap<>();
+    private final AtomicLong conflatedFrames = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final AtomicLong disconnectedSessions = new AtomicLong();
+    private final Timer writeTimer;
+
+    /**
+     * @param conflatedFrames      Frames replaced by a newer one before they were written
+     * @param droppedFrames        Frames refused because their session was over the byte limit
+     * @param disconnectedSessions Sessions closed for a stalled write or staying over the byte limit
+     * @param bufferedBytes        Bytes currently accepted but not yet written, over all sessions
+     */
+    public record Stats(long conflatedFrames, long droppedFrames, long disconnectedSessions, long bufferedBytes) {}
+
+    private static final class SessionFlow {
+        /** Latest frame waiting to be written */
+        private final AtomicReference<Message<?>> pending = new AtomicReference<>();
+        /** Set while a thread owns writing this session's frames */
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile Message<?> inProgress;
+        /** {@link System#nanoTime()} when {@link #inProgress} started, for the write timer */
+        private volatile long inProgressSince;
+        /** {@link Clock#millis()} when {@link #inProgress} started, for stall detection */
+        private volatile long inProgressSinceMillis;
+        private final AtomicLong bufferedBytes = new AtomicLong();
+        /** Frames conflated or dropped for this session */
+        private final AtomicLong lostFrames = new AtomicLong();
+        private volatile long overLimitSince = -1;
+        private volatile boolean disconnecting = false;
+    }
+
+    public OutboundFlowControl(Clock clock,
+                               WebSocketSessionRegistry sessionRegistry,
+                               MeterRegistry meterRegistry,
+                               @Value("${aviation.outbound.max-buffered-bytes:524288}") long maxBufferedBytes,
+                               @Value("${aviation.outbound.disconnect-after-ms:5000}") long disconnectAfterMillis) {
+        this.clock = clock;
+        this.sessionRegistry = sessionRegistry;
+        this.maxBufferedBytes = maxBufferedBytes;
+        this.disconnectAfterMillis = disconnectAfterMillis;
+
+        FunctionCounter.builder("aviation.frames.dropped", conflatedFrames, AtomicLong::get)
+                .description("Flight frames not sent to a session")
+                .tag("reason", "conflated")
+                .register(meterRegistry);
+        FunctionCounter.builder("aviation.frames.dropped", droppedFrames, AtomicLong::get)
+                .description("Flight frames not sent to a session")
+                .tag("reason", "over-limit")
+                .register(meterRegistry);
+        FunctionCounter.builder("aviation.sessions.disconnected", disconnectedSessions, AtomicLong::get)
+                .description("Sessions closed for a stalled write or staying over the outbound limit")
+                .register(meterRegistry);
+        Gauge.builder("aviation.outbound.buffered", this, flowControl -> flowControl.getStats().bufferedBytes())
+                .description("Bytes accepted for sessions but not yet written")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.writeTimer = Timer.builder("aviation.outbound.write")
+                .description("Time to write one flight frame to a session's socket")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public long getMaxBufferedBytes() {
+        return maxBufferedBytes;
+    }
+
+    public long getDisconnectAfterMillis() {
+        return disconnectAfterMillis;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId == null) return message;
+
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(message.getHeaders());
+        SessionFlow flow = type == SimpMessageType.CONNECT || type == SimpMessageType.CONNECT_ACK
+                ? flows.computeIfAbsent(sessionId, id -> new SessionFlow())
+                : flows.get(sessionId);
+        if (flow == null) return message; // not connected yet, or already disconnected
+
+        long size = sizeOf(message);
+        if (isFlightFrame(message)) {
+            checkStalledWrite(sessionId, flow);
+            if (flow.bufferedBytes.get() + size > maxBufferedBytes) {
+                droppedFrames.incrementAndGet();
+                flow.lostFrames.incrementAndGet();
+                overLimit(sessionId, flow);
+                return null;
+            }
+            flow.overLimitSince = -1;
+        }
+        flow.bufferedBytes.addAndGet(size);
+        return message;
+    }
+
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        if (!isFlightFrame(message)) return message;
+        SessionFlow flow = flows.get(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()));
+        if (flow == null) return message;
+
+        Message<?> replaced = flow.pending.getAndSet(message);
+        if (replaced != null) {
+            conflatedFrames.incrementAndGet();
+            flow.lostFrames.incrementAndGet();
+            flow.bufferedBytes.addAndGet(-sizeOf(replaced));
+        }
+        // Either this thread writes the latest frame now, or the thread already writing will
+        return claimNext(flow);
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        SessionFlow flow = flows.get(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()));
+        if (flow == null) return;
+
+        if (!isFlightFrame(message)) {
+            flow.bufferedBytes.addAndGet(-sizeOf(message));
+            return;
+        }
+        if (flow.inProgress != message) {
+            return; // parked or replaced in beforeHandle, never written by this thread
+        }
+
+        // Write whatever became the latest frame while this one was being written
+        Message<?> written = message;
+        while (written != null) {
+            writeTimer.record(System.nanoTime() - flow.inProgressSince, TimeUnit.NANOSECONDS);
+            flow.bufferedBytes.addAndGet(-sizeOf(written));
+            flow.inProgress = null;
+            flow.sending.set(false);
+
+            written = claimNext(flow);
+            if (written != null) {
+                try {
+                    handler.handleMessage(written);
+                } catch (Exception e) {
+                    logger.warn("Failed to send conflated frame: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    @EventListener
+    public void handleDisconnect(SessionDisconnectEvent event) {
+        flows.remove(event.getSessionId());
+    }
+
+    /**
+     * @return Sessions currently tracked, i.e. connected and not yet disconnected
+     */
+    int getTrackedSessions() {
+        return flows.size();
+    }
+
+    public Stats getStats() {
+        long buffered = flows.values().stream().mapToLong(f -> f.bufferedBytes.get()).sum();
+        return new Stats(conflatedFrames.get(), droppedFrames.get(), disconnectedSessions.get(), buffered);
+    }
+
+    /**
+     * @return Bytes accepted for the session but not yet written
+     */
+    public long getBufferedBytes(String sessionId) {
+        SessionFlow flow = flows.get(sessionId);
+        return flow != null ? flow.bufferedBytes.get() : 0;
+    }
+
+    /**
+     * @return Flight frames conflated or dropped for the session so far. The count only grows,
+     *         so callers compare it with an earlier reading to tell whether the client fell behind.
+     */
+    public long getLostFrames(String sessionId) {
+        SessionFlow flow = flows.get(sessionId);
+        return flow != null ? flow.lostFrames.get() : 0;
+    }
+
+    /**
+     * Takes ownership of writing the session's frames, if no other thread has it.
+     *
+     * @return The frame the caller must write, or null
+     */
+    private Message<?> claimNext(SessionFlow flow) {
+        while (flow.sending.compareAndSet(false, true)) {
+            Message<?> next = flow.pending.getAndSet(null);
+            if (next != null) {
+                flow.inProgressSince = System.nanoTime();
+                flow.inProgressSinceMillis = clock.millis();
+                flow.inProgress = next;
+                return next;
+            }
+            flow.sending.set(false);
+            // A frame parked between our take and release would otherwise be stranded
+            if (flow.pending.get() == null) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Disconnects a session whose socket has not finished writing one frame for too long. Such a
+     * session never goes over the byte limit: conflation keeps replacing its pending frame.
+     */
+    private void checkStalledWrite(String sessionId, SessionFlow flow) {
+        if (flow.inProgress == null) return;
+        // The start time is published before the frame, so it is never older than the frame read above
+        long stalled = clock.millis() - flow.inProgressSinceMillis;
+        if (stalled >= disconnectAfterMillis) {
+            disconnect(sessionId, flow, "a frame write stalled for " + stalled + " ms");
+        }
+    }
+
+    private void overLimit(String sessionId, SessionFlow flow) {
+        long now = clock.millis();
+        if (flow.overLimitSince < 0) {
+            flow.overLimitSince = now;
+            logger.warn("Session {} is over its outbound limit of {} bytes, dropping flight frames", sessionId, maxBufferedBytes);
+        } else if (now - flow.overLimitSince >= disconnectAfterMillis) {
+            disconnect(sessionId, flow, (now - flow.overLimitSince) + " ms over its outbound limit");
+        }
+    }
+
+    private void disconnect(String sessionId, SessionFlow flow, String reason) {
+        if (flow.disconnecting) return;
+        flow.disconnecting = true;
+        logger.warn("Disconnecting slow session {} after {}", sessionId, reason);
+        if (sessionRegistry.close(sessionId, CloseStatus.SESSION_NOT_RELIABLE)) {
+            disconnectedSessions.incrementAndGet();
+        }
+    }
+
+    private static boolean isFlightFrame(Message<?> message) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return false;
+        }
+        // After user destination resolution this is "/queue/flightData-user<sessionId>";
+        // group frames keep their topic, fanned out by the broker to each member's session
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        return destination != null && (destination.startsWith(FlightBroadcastEngine.FLIGHT_DATA_DESTINATION)
+                || destination.startsWith(PlaybackGroup.DESTINATION_PREFIX));
+    }
+
+    private static long sizeOf(Message<?> message) {
+        return message.getPayload() instanceof byte[] bytes ? bytes.length : 0;
+    }
+}
@@ -0,0 +1,78 @@
+package com.miro.aviation.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A recording watched by several sessions in lockstep.
+ * <p>
+ * The group has a single provider, driven by its leader's playback controls, and its frames are
+ * broadcast once on {@link #getDestination()} to every subscribed member. Membership is managed
+ * by {@link PlaybackGroupService}.
+ * </p>
+ */
+public final class PlaybackGroup {
+
+    public static final String DESTINATION_PREFIX = "/topic/group/";
+
+    private final String id;
+    private final RecordedFlightDataProvider provider;
+    /** Members in joining order, so leadership passes to the longest-standing one */
+    private final Set<String> members = new LinkedHashSet<>();
+    private String leader;
+
+    PlaybackGroup(String id, String leader, RecordedFlightDataProvider provider) {
+        this.id = id;
+        this.leader = leader;
+        this.provider = provider;
+        this.members.add(leader);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getDestination() {
+        return DESTINATION_PREFIX + id;
+    }
+
+    public RecordedFlightDataProvider getProvider() {
+        return provider;
+    }
+
+    public synchronized String getLeader() {
+        return leader;
+    }
+
+    public synchronized boolean isLeader(String sessionId) {
+        return leader.equals(sessionId);
+    }
+
+    public synchronized List<String> getMembers() {
+        return new ArrayList<>(members);
+    }
+
+    synchronized void add(String sessionId) {
+        members.add(sessionId);
+    }
+
+    /**
+     * Removes a member, passing leadership on if it was the leader.
+     *
+     * @return The new leader if leadership changed hands, otherwise null
+     */
+    synchronized String remove(String sessionId) {
+        members.remove(sessionId);
+        if (!leader.equals(sessionId) || members.isEmpty()) {
+            return null;
+        }
+        leader = members.iterator().next();
+        return leader;
+    }
+
+    synchronized boolean isEmpty() {
+        return members.isEmpty();
+    }
+}
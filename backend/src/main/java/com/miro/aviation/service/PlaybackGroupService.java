@@ -0,0 +1,120 @@
+package com.miro.aviation.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Keeps track of shared playback groups.
+ * <p>
+ * Each group's provider is registered with the {@link FlightBroadcastEngine} under the group's
+ * topic, so it is ticked and serialized once per period however many sessions watch it. A
+ * session belongs to at most one group. When the leader leaves, the longest-standing member
+ * takes over; when the last member leaves, the group and its provider are closed.
+ * </p>
+ */
+@Service
+public class PlaybackGroupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlaybackGroupService.class);
+
+    private static final int ID_LENGTH = 8;
+
+    private final FlightBroadcastEngine broadcastEngine;
+
+    private final Map<String, PlaybackGroup> groups = new HashMap<>();
+    private final Map<String, PlaybackGroup> membership = new HashMap<>();
+
+    public PlaybackGroupService(FlightBroadcastEngine broadcastEngine) {
+        this.broadcastEngine = broadcastEngine;
+    }
+
+    /**
+     * Creates a group led by the given session, leaving any group it was in before. A member
+     * promoted in that group is not reported: callers that notify it {@link #leave} first.
+     */
+    public synchronized PlaybackGroup create(String leaderSessionId, RecordedFlightDataProvider provider) {
+        leave(leaderSessionId);
+
+        String id;
+        do {
+            id = UUID.randomUUID().toString().substring(0, ID_LENGTH);
+        } while (groups.containsKey(id));
+
+        PlaybackGroup group = new PlaybackGroup(id, leaderSessionId, provider);
+        groups.put(id, group);
+        membership.put(leaderSessionId, group);
+        broadcastEngine.registerTopic(group.getDestination(), provider);
+        logger.info("Session {} created playback group {}", leaderSessionId, id);
+        return group;
+    }
+
+    /**
+     * Adds a session to a group, leaving any other group it was in before. As with
+     * {@link #create}, callers that notify a promoted member {@link #leave} first.
+     *
+     * @return The group, or null if no group has that id
+     */
+    public synchronized PlaybackGroup join(String groupId, String sessionId) {
+        PlaybackGroup group = groups.get(groupId);
+        if (group == null) {
+            return null;
+        }
+        if (membership.get(sessionId) != group) {
+            leave(sessionId);
+            group.add(sessionId);
+            membership.put(sessionId, group);
+        }
+        return group;
+    }
+
+    /**
+     * Removes a session from its group, if any.
+     *
+     * @return The group's new leader if leadership passed on, otherwise null
+     */
+    public synchronized String leave(String sessionId) {
+        PlaybackGroup group = membership.remove(sessionId);
+        if (group == null) {
+            return null;
+        }
+
+        String newLeader = group.remove(sessionId);
+        if (group.isEmpty()) {
+            groups.remove(group.getId());
+            broadcastEngine.unregister(group.getDestination());
+            logger.info("Closed playback group {}", group.getId());
+        } else if (newLeader != null) {
+            logger.info("Session {} now leads playback group {}", newLeader, group.getId());
+        }
+        return newLeader;
+    }
+
+    public synchronized PlaybackGroup getGroup(String groupId) {
+        return groups.get(groupId);
+    }
+
+    /**
+     * @return The group the session belongs to, or null
+     */
+    public synchronized PlaybackGroup getGroupOf(String sessionId) {
+        return membership.get(sessionId);
+    }
+
+    /**
+     * @return The provider of the group this session leads, or null if it leads none.
+     *         Only the leader's playback controls reach a group.
+     */
+    public synchronized FlightDataProvider getLedProvider(String sessionId) {
+        PlaybackGroup group = membership.get(sessionId);
+        return group != null && group.isLeader(sessionId) ? group.getProvider() : null;
+    }
+
+    public synchronized int size() {
+        return groups.size();
+    }
+}
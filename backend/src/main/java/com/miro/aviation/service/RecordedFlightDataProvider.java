@@ -1,23 +1,29 @@
 package com.miro.aviation.service;
 
 import com.miro.aviation.model.*;
-import com.miro.aviation.utils.CsvFlightLoader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
 import java.time.Clock;
-import java.util.List;
 
 /**
  * Implementation of FlightDataProvider that plays back historical flight data from a CSV source.
  * 
- * This provider uses a "Time Anchoring" strategy to ensure smooth playback:
- * 1. It maintains a 'lastAdvanceTime' (the real-world timestamp when the current row was activated).
- * 2. It calculates a 'nextAdvanceTime' (the real-world timestamp when we should move to the next row).
- * 3. The distance between these two anchors is derived from the CSV's delta-timestamps, 
- *    scaled by the 'speedMultiplier'.
+ * The samples themselves live in a {@link FlightRecording} shared through the
+ * {@link FlightRecordingRepository}; this provider only holds a cursor (index and playback clock) into it.
+ * 
+ * This provider uses a "Virtual Clock" strategy to ensure smooth playback:
+ * 1. It maintains 'playbackMillis', the recording time elapsed since the first sample.
+ * 2. Every tick adds the real time since the previous tick, scaled by the 'speedMultiplier'.
+ *    Fractions of a millisecond are kept, so the effective speed matches the multiplier exactly.
+ * 3. The current row is the last one whose timestamp has been reached, found by binary search,
+ *    so high multipliers skip as many rows as needed in O(log n).
+ * 
+ * Ticks run on a broadcast shard thread while control messages (pause, speed, seek) arrive on
+ * inbound channel threads, so the methods that move the playback clock are synchronized, and so
+ * is reading the progress cached for the current sample.
  */
 @Component
 @Scope("prototype") // Create new instance for each client
@@ -25,193 +31,218 @@ public class RecordedFlightDataProvider implements FlightDataProvider {
 
     private static final Logger logger = LoggerFactory.getLogger(RecordedFlightDataProvider.class);
     private final Clock clock;
+    private final FlightRecordingRepository recordingRepository;
 
-    private List<FlightSnapshot> flightData = List.of();
+    private FlightRecording flightData = FlightRecording.empty();
+    private FlightFrameCache frames;
+    private boolean acquired = false;
     private int index = 0;
-    private long lastAdvanceTime = 0;
-    private long nextAdvanceTime = 0;
+    private double playbackMillis = 0;
     private long lastTickTime = 0;
     private double speedMultiplier = 1.0;
     private boolean paused = false;
+    /** Progress of the last sample it was requested for, as most ticks stay on the same sample; guarded by this */
+    private PlaybackProgress progress;
 
-    public RecordedFlightDataProvider(Clock clock) {
+    public RecordedFlightDataProvider(Clock clock, FlightRecordingRepository recordingRepository) {
         this.clock = clock;
+        this.recordingRepository = recordingRepository;
     }
 
     @Override
     public Attitude getAttitude() {
-        return flightData.get(index).getAttitude();
+        return new Attitude(0.0, 0.0, flightData.getHeading(index));
     }
 
     @Override
     public Altitude getAltitude() {
-        return flightData.get(index).getAltitude();
+        return new Altitude(flightData.getAltitude(index), FlightRecording.DEFAULT_KOLLSMAN);
     }
 
     @Override
     public AirSpeed getSpeed() {
-        return flightData.get(index).getAirSpeed();
+        return new AirSpeed(flightData.getSpeed(index));
     }
 
     @Override
     public Position getPosition() {
-        return flightData.get(index).getPosition();
+        return new Position(flightData.getLatitude(index), flightData.getLongitude(index));
     }
 
     @Override
-    public PlaybackProgress getProgress() {
+    public synchronized PlaybackProgress getProgress() {
         if (flightData.isEmpty()) return null;
-        
-        double rawPercentage = (double) index / (flightData.size() - 1);
-        // Round to 4 decimal places
-        double roundedPercentage = Math.round(rawPercentage * 10000.0) / 10000.0;
-        
-        return new PlaybackProgress(
-            index,
-            flightData.size(),
-            roundedPercentage,
-            flightData.get(0).getTimestamp(),
-            flightData.get(flightData.size() - 1).getTimestamp()
-        );
+
+        PlaybackProgress current = progress;
+        if (current == null || current.currentIndex() != index) {
+            current = flightData.getProgress(index);
+            progress = current;
+        }
+        return current;
     }
 
     @Override
     public FlightSnapshot getCurrentSnapshot() {
-        if (flightData == null || flightData.isEmpty()) return null;
-        FlightSnapshot snapshot = flightData.get(index);
-        
-        // Return a copy with current progress metadata
-        return new FlightSnapshot(
-            snapshot.getTimestamp(),
-            snapshot.getAttitude(),
-            snapshot.getAltitude(),
-            snapshot.getAirSpeed(),
-            getProgress(),
-            snapshot.getPosition(),
-                0
-        );
+        if (flightData.isEmpty()) return null;
+
+        // Materialize the current sample with progress metadata
+        FlightSnapshot snapshot = flightData.toSnapshot(index);
+        snapshot.setProgress(getProgress());
+        return snapshot;
+    }
+
+    /**
+     * Fills the session's reusable snapshot. Only the progress record is new, and only when
+     * playback reached another sample since the previous call.
+     */
+    @Override
+    public FlightSnapshot getCurrentSnapshot(FlightSnapshot target) {
+        if (flightData.isEmpty()) return null;
+
+        flightData.copyTo(index, target);
+        target.setProgress(getProgress());
+        return target;
+    }
+
+    /**
+     * Serves the current sample from the recording's shared frame cache, so the same bytes
+     * go to every session positioned on that sample.
+     */
+    @Override
+    public byte[] getCurrentFrame(FrameEncoding encoding) {
+        if (frames == null || flightData.isEmpty()) return null;
+        return frames.frame(index, encoding);
     }
     
     public void initialize(String resourcePath) {
+        close();
         try {
-            flightData = CsvFlightLoader.load(getClass().getResourceAsStream(resourcePath));
+            flightData = recordingRepository.acquire(resourcePath);
+            acquired = true;
+            frames = recordingRepository.getFrames(flightData);
             if (!flightData.isEmpty()) {
-                index = 0;
-                long now = clock.millis();
-                lastAdvanceTime = now;
-                lastTickTime = now;
-                calculateNextAdvanceTime();
+                reset();
             }
 
         } catch (Exception e) {
             logger.error("Failed to load flight data from {}", resourcePath, e);
-            flightData = List.of();
+            flightData = FlightRecording.empty();
+            frames = null;
         }
     }
 
     /**
-     * Advances the internal playback index based on the elapsed real-world time.
-     * 
-     * If the current system time has passed 'nextAdvanceTime', the provider increments 
-     * the row index and recalculates the next anchor points.
-     * 
-     * When paused, it continuously slides the schedule forward to 'freeze' the 
-     * relative progress within the current sample interval.
+     * Releases the shared recording so it can be evicted once no other session uses it.
+     * The data stays readable, so a tick already in progress can finish safely.
      */
-    public void tick() {
-        if (flightData.isEmpty() || index >= flightData.size() - 1) return;
-
-        long now = clock.millis();
-        long elapsedSinceLastTick = now - lastTickTime;
-        lastTickTime = now;
-
-        if (paused) {
-            // If paused, we simply push the scheduled times forward by 
-            // the amount of real-world time that just passed.
-            lastAdvanceTime += elapsedSinceLastTick;
-            nextAdvanceTime += elapsedSinceLastTick;
-            return;
-        }
-
-        if (now >= nextAdvanceTime) {
-            index++;
-            lastAdvanceTime = now;
-            calculateNextAdvanceTime();
+    @Override
+    public void close() {
+        if (acquired) {
+            acquired = false;
+            recordingRepository.release(flightData);
         }
     }
 
     /**
-     * Calculates when the next sample should be displayed.
+     * Advances the playback clock by the real-world time since the previous tick and moves
+     * the row index to the sample that is current at the new playback time.
      * 
-     * Logic: nextAnchor = lastAnchor + (csvDelta / multiplier)
+     * When paused, the playback clock stands still.
      */
-    private void calculateNextAdvanceTime() {
-        if (index >= flightData.size() - 1) return;
+    public synchronized void tick() {
+        if (flightData.isEmpty()) return;
+
+        advanceTo(clock.millis());
+    }
+
+    private void advanceTo(long now) {
+        long elapsedSinceLastTick = now - lastTickTime;
+        lastTickTime = now;
+
+        if (paused || elapsedSinceLastTick <= 0 || index >= flightData.size() - 1) return;
 
-        FlightSnapshot current = flightData.get(index);
-        FlightSnapshot next = flightData.get(index + 1);
-        long deltaMillis = next.getTimestamp() - current.getTimestamp();
+        playbackMillis += elapsedSinceLastTick * speedMultiplier;
+        long playbackTimestamp = flightData.getStartTime() + (long) Math.floor(playbackMillis);
 
-        this.nextAdvanceTime = lastAdvanceTime + (long) (deltaMillis / speedMultiplier);
+        // Most ticks stay on the current row; only search when the next one has been reached
+        if (flightData.getTimestamp(index + 1) <= playbackTimestamp) {
+            index = flightData.indexAt(playbackTimestamp);
+        }
     }
 
-    public void reset() {
+    public synchronized void reset() {
+        progress = null;
         index = 0;
-        long now = clock.millis();
-        lastAdvanceTime = now;
-        lastTickTime = now;
-        calculateNextAdvanceTime();
+        playbackMillis = 0;
+        lastTickTime = clock.millis();
     }
 
-    public void setPaused(boolean paused) {
+    public synchronized void setPaused(boolean paused) {
+        if (!flightData.isEmpty()) {
+            // Account for the time played (or not) under the previous state
+            advanceTo(clock.millis());
+        }
         this.paused = paused;
     }
 
     /**
      * Jumps to a specific position in the flight.
      * 
-     * To prevent "time travel" bugs where the simulation tries to catch up with 
-     * the missed time, this method re-anchors the internal clocks to the current 'now'.
+     * The percentage is a share of the flight's duration rather than of its samples, so seeking
+     * to 50% lands half way through the flight time even when sampling is irregular.
      * 
      * @param percentage Value between 0.0 and 1.0 representing flight progress.
      */
     @Override
-    public void setSeek(double percentage) {
+    public synchronized void setSeek(double percentage) {
+        if (flightData.isEmpty() || Double.isNaN(percentage)) return;
+
+        double clamped = Math.max(0.0, Math.min(1.0, percentage));
+        seekTo(flightData.getStartTime() + Math.round(clamped * flightData.getDuration()));
+    }
+
+    @Override
+    public synchronized void setSeekTime(long timestamp) {
         if (flightData.isEmpty()) return;
 
-        // 1. Calculate new index
-        int newIndex = (int) (percentage * (flightData.size() - 1));
-        this.index = Math.max(0, Math.min(flightData.size() - 1, newIndex));
+        seekTo(timestamp);
+    }
+
+    @Override
+    public synchronized void setSeekElapsed(long elapsedMillis) {
+        if (flightData.isEmpty()) return;
+
+        // Clamped first, so an absurd offset cannot overflow the timestamp
+        long clamped = Math.max(0, Math.min(flightData.getDuration(), elapsedMillis));
+        seekTo(flightData.getStartTime() + clamped);
+    }
+
+    /**
+     * Snaps to the sample closest to the timestamp, found by binary search.
+     * 
+     * To prevent "time travel" bugs where the simulation tries to catch up with 
+     * the missed time, this method re-anchors the playback clock to the current 'now'.
+     */
+    private void seekTo(long timestamp) {
+        this.index = flightData.nearestIndex(timestamp);
+
+        // Re-anchor the playback clock to the start of that sample
+        this.playbackMillis = flightData.getTimestamp(index) - flightData.getStartTime();
+        this.lastTickTime = clock.millis();
 
-        // 2. Re-anchor the clocks to the current time
-        long now = clock.millis();
-        this.lastTickTime = now;
-        this.lastAdvanceTime = now;
-        
-        // 3. Recalculate when the NEXT sample should happen
-        calculateNextAdvanceTime();
-        
-        logger.info("Seek performed to index {} ({})", index, percentage);
+        logger.info("Seek performed to index {} (timestamp {})", index, timestamp);
     }
 
     /**
-     * Updates the playback speed and re-calculates scheduled event times.
+     * Updates the playback speed.
      * 
-     * If playback is active, it re-anchors 'lastAdvanceTime' to preserve the 
-     * current relative progress within the active sample interval at the new speed.
+     * The time played so far is accounted for at the old speed first, so the current
+     * relative progress within the active sample interval is preserved.
      */
-    public void setSpeedMultiplier(double multiplier) {
-        if (!flightData.isEmpty() && index < flightData.size() - 1) {
-            long now = clock.millis();
-            long elapsedCsvTime = (long) ((now - lastAdvanceTime) * this.speedMultiplier);
-
-            this.speedMultiplier = multiplier;
-            // Re-anchor lastAdvanceTime based on the new multiplier
-            this.lastAdvanceTime = now - (long) (elapsedCsvTime / speedMultiplier);
-            
-            calculateNextAdvanceTime();
-        } else {
-            this.speedMultiplier = multiplier;
+    public synchronized void setSpeedMultiplier(double multiplier) {
+        if (!flightData.isEmpty()) {
+            advanceTo(clock.millis());
         }
+        this.speedMultiplier = multiplier;
     }
 }
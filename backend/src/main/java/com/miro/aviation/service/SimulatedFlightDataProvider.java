@@ -7,10 +7,22 @@ import org.springframework.stereotype.Component;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Continuous simulated flight: random walks for attitude, altitude and air speed.
+ * <p>
+ * On its own, the provider steps its three simulator beans on every tick. Once the
+ * {@link FlightBroadcastEngine} registers it, its walk moves into the owning shard's
+ * {@link SimulationBatch}, which advances all simulated sessions of the shard in one loop; the
+ * provider then only keeps the clock and reads its state back from the batch.
+ * </p>
+ */
 @Component
 @Scope("prototype") // // Create new instance for each client
 public class SimulatedFlightDataProvider implements FlightDataProvider {
 
+    /** A provider's place in a batch */
+    private record BatchSlot(SimulationBatch batch, int index) {}
+
     private final AttitudeSimulatorService attitudeSim;
     private final AltitudeSimulatorService altitudeSim;
     private final AirspeedSimulatorService speedSim;
@@ -22,10 +34,13 @@ public class SimulatedFlightDataProvider implements FlightDataProvider {
     private double currentLat = 60.3172;
     private double currentLon = 24.9633;
 
-    private double speedMultiplier = 1.0;
+    private volatile double speedMultiplier = 1.0;
     private long simulatedTime; // Internal clock for the simulation
 
-    private boolean paused = false;
+    private volatile boolean paused = false;
+
+    /** Null until attached to a shard's batch, and again once closed */
+    private volatile BatchSlot slot;
 
     public SimulatedFlightDataProvider(
             AttitudeSimulatorService attitudeSim,
@@ -67,19 +82,59 @@ public class SimulatedFlightDataProvider implements FlightDataProvider {
         );
     }
 
+    /**
+     * Fills the session's reusable snapshot; nothing is allocated once its components exist.
+     */
+    @Override
+    public FlightSnapshot getCurrentSnapshot(FlightSnapshot target) {
+        target.initComponents();
+        target.setTimestamp(simulatedTime);
+        BatchSlot current = slot;
+        if (current != null) {
+            current.batch().copyTo(current.index(), target.getAttitude(), target.getAltitude(), target.getAirSpeed());
+        } else {
+            attitudeSim.copyTo(target.getAttitude());
+            altitudeSim.copyTo(target.getAltitude());
+            speedSim.copyTo(target.getAirSpeed());
+        }
+        target.getPosition().setLatitude(currentLat);
+        target.getPosition().setLongitude(currentLon);
+        target.setProgress(null);
+        target.setActiveWaypointIndex(activeWaypointIndex);
+        return target;
+    }
+
     @Override
     public Attitude getAttitude() {
-        return attitudeSim.getCurrentAttitude();
+        BatchSlot current = slot;
+        if (current == null) {
+            return attitudeSim.getCurrentAttitude();
+        }
+        Attitude attitude = new Attitude();
+        current.batch().copyTo(current.index(), attitude, null, null);
+        return attitude;
     }
 
     @Override
     public Altitude getAltitude() {
-        return altitudeSim.getCurrentAltitude();
+        BatchSlot current = slot;
+        if (current == null) {
+            return altitudeSim.getCurrentAltitude();
+        }
+        Altitude altitude = new Altitude(0, 0);
+        current.batch().copyTo(current.index(), null, altitude, null);
+        return altitude;
     }
 
     @Override
     public AirSpeed getSpeed() {
-        return speedSim.getCurrentAirSpeed();
+        BatchSlot current = slot;
+        if (current == null) {
+            return speedSim.getCurrentAirSpeed();
+        }
+        AirSpeed airSpeed = new AirSpeed(0);
+        current.batch().copyTo(current.index(), null, null, airSpeed);
+        return airSpeed;
     }
 
     @Override
@@ -96,18 +151,67 @@ public class SimulatedFlightDataProvider implements FlightDataProvider {
         // Advance the simulation clock by the standard tick (50ms) scaled by speed
         simulatedTime += (long) (50 * speedMultiplier);
 
-        attitudeSim.tick(speedMultiplier);
-        altitudeSim.tick(speedMultiplier);
-        speedSim.tick(speedMultiplier);
+        // A batched walk was already advanced by the shard at the start of this tick
+        if (slot == null) {
+            attitudeSim.tick(speedMultiplier);
+            altitudeSim.tick(speedMultiplier);
+            speedSim.tick(speedMultiplier);
+        }
     }
 
     @Override
-    public void setPaused(boolean paused) {
+    public synchronized void setPaused(boolean paused) {
         this.paused = paused;
+        updateDelta();
     }
 
     @Override
-    public void setSpeedMultiplier(double multiplier) {
+    public synchronized void setSpeedMultiplier(double multiplier) {
         this.speedMultiplier = multiplier;
+        updateDelta();
+    }
+
+    /**
+     * Moves the walk into a shard's batch, from the simulator beans or from the batch of the
+     * shard it was on before. Called by the engine when the session is registered or migrated,
+     * on the thread of the shard it leaves.
+     */
+    synchronized void attach(SimulationBatch batch) {
+        BatchSlot current = slot;
+        if (current != null && current.batch() == batch) {
+            return;
+        }
+
+        Attitude attitude = getAttitude();
+        Altitude altitude = getAltitude();
+        AirSpeed airSpeed = getSpeed();
+        slot = new BatchSlot(batch, batch.add(attitude, altitude, airSpeed, delta()));
+        if (current != null) {
+            current.batch().remove(current.index());
+        }
+    }
+
+    /**
+     * Releases the batch slot. The provider is not ticked again after it was unregistered.
+     */
+    @Override
+    public synchronized void close() {
+        BatchSlot current = slot;
+        if (current != null) {
+            slot = null;
+            current.batch().remove(current.index());
+        }
+    }
+
+    private void updateDelta() {
+        BatchSlot current = slot;
+        if (current != null) {
+            current.batch().setDelta(current.index(), delta());
+        }
+    }
+
+    /** @return Simulated time per tick as the batch steps it: the speed multiplier, or 0 while paused */
+    private double delta() {
+        return paused ? 0 : speedMultiplier;
     }
 }
@@ -0,0 +1,163 @@
+package com.miro.aviation.service;
+
+import com.miro.aviation.model.AirSpeed;
+import com.miro.aviation.model.Altitude;
+import com.miro.aviation.model.Attitude;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Random-walk state of many simulated sessions, kept in parallel primitive arrays and advanced
+ * in a single loop.
+ * <p>
+ * Each {@link BroadcastShard} owns one batch and advances it once per tick, before its sessions
+ * are sent, so the simulators of all its {@link SimulatedFlightDataProvider}s are stepped without
+ * touching per-session objects. Every batch has its own generator, so shards never contend on
+ * one. The walks are the same as those of {@link AttitudeSimulatorService},
+ * {@link AltitudeSimulatorService} and {@link AirspeedSimulatorService}: given the same uniform
+ * draws, a slot produces exactly the values the three services would.
+ * </p>
+ * <p>
+ * Slots are stable for as long as a provider holds them; freed slots are reused by later
+ * sessions. All methods lock the batch, which only its shard thread contends for in steady state.
+ * </p>
+ */
+final class SimulationBatch {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final RandomGenerator random;
+
+    private double[] pitch = new double[INITIAL_CAPACITY];
+    private double[] roll = new double[INITIAL_CAPACITY];
+    private double[] yaw = new double[INITIAL_CAPACITY];
+    private double[] altitude = new double[INITIAL_CAPACITY];
+    private double[] kollsman = new double[INITIAL_CAPACITY];
+    private double[] speed = new double[INITIAL_CAPACITY];
+    /** Simulated time per tick, the provider's speed multiplier; zero while paused or free */
+    private double[] delta = new double[INITIAL_CAPACITY];
+    private boolean[] used = new boolean[INITIAL_CAPACITY];
+    /** One past the highest slot ever handed out */
+    private int limit = 0;
+    private int size = 0;
+    private int firstFree = 0;
+
+    SimulationBatch() {
+        this(new SplittableRandom());
+    }
+
+    SimulationBatch(RandomGenerator random) {
+        this.random = random;
+    }
+
+    /**
+     * Takes a slot for a session, starting from the given state.
+     *
+     * @return The slot, valid until it is {@link #remove(int) removed}
+     */
+    synchronized int add(Attitude attitude, Altitude altitude, AirSpeed airSpeed, double delta) {
+        int slot = firstFree;
+        while (slot < limit && used[slot]) {
+            slot++;
+        }
+        if (slot == pitch.length) {
+            grow();
+        }
+        used[slot] = true;
+        limit = Math.max(limit, slot + 1);
+        firstFree = slot + 1;
+        size++;
+
+        this.pitch[slot] = attitude.getPitch();
+        this.roll[slot] = attitude.getRoll();
+        this.yaw[slot] = attitude.getYaw();
+        this.altitude[slot] = altitude.getAltitude();
+        this.kollsman[slot] = altitude.getKollsmanPressure();
+        this.speed[slot] = airSpeed.getSpeed();
+        this.delta[slot] = delta;
+        return slot;
+    }
+
+    synchronized void remove(int slot) {
+        used[slot] = false;
+        delta[slot] = 0;
+        size--;
+        firstFree = Math.min(firstFree, slot);
+        while (limit > 0 && !used[limit - 1]) {
+            limit--;
+        }
+    }
+
+    synchronized void setDelta(int slot, double delta) {
+        this.delta[slot] = delta;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Advances every active slot by its own delta. Paused and free slots are skipped and
+     * draw no random numbers, just as a paused provider does not tick its simulators.
+     */
+    synchronized void advance() {
+        double[] pitch = this.pitch, roll = this.roll, yaw = this.yaw;
+        double[] altitude = this.altitude, speed = this.speed, delta = this.delta;
+        RandomGenerator random = this.random;
+
+        for (int i = 0; i < limit; i++) {
+            double d = delta[i];
+            if (d == 0) {
+                continue;
+            }
+
+            // Attitude: same draws, limits and rounding as AttitudeSimulatorService
+            double p = pitch[i] + (random.nextDouble() * 2 - 1) * (0.5 * d);
+            double r = roll[i] + (random.nextDouble() * 2 - 1) * (1.0 * d);
+            double y = yaw[i] + (random.nextDouble() * 2 - 1) * (0.2 * d);
+            pitch[i] = Math.round(Math.max(-10, Math.min(10, p)) * 100.0) / 100.0;
+            roll[i] = Math.round(Math.max(-30, Math.min(30, r)) * 100.0) / 100.0;
+            yaw[i] = Math.round(Math.max(0, Math.min(360, y)) * 100.0) / 100.0;
+
+            // Altitude, as AltitudeSimulatorService
+            double a = altitude[i] + (random.nextDouble() * 20 - 10) * d;
+            altitude[i] = Math.round(Math.max(0, Math.min(40000, a)) * 10.0) / 10.0;
+
+            // Air speed, as AirspeedSimulatorService
+            double s = speed[i] + ((random.nextDouble() - 0.5) * 5) * d;
+            speed[i] = Math.round(Math.max(40, Math.min(180, s)) * 10.0) / 10.0;
+        }
+    }
+
+    /**
+     * Writes a slot's current state into existing objects; null targets are skipped.
+     */
+    synchronized void copyTo(int slot, Attitude attitude, Altitude altitude, AirSpeed airSpeed) {
+        if (attitude != null) {
+            attitude.setPitch(pitch[slot]);
+            attitude.setRoll(roll[slot]);
+            attitude.setYaw(yaw[slot]);
+        }
+        if (altitude != null) {
+            altitude.setAltitude(this.altitude[slot]);
+            altitude.setKollsmanPressure(kollsman[slot]);
+        }
+        if (airSpeed != null) {
+            airSpeed.setSpeed(speed[slot]);
+        }
+    }
+
+    private void grow() {
+        int capacity = pitch.length * 2;
+        pitch = Arrays.copyOf(pitch, capacity);
+        roll = Arrays.copyOf(roll, capacity);
+        yaw = Arrays.copyOf(yaw, capacity);
+        altitude = Arrays.copyOf(altitude, capacity);
+        kollsman = Arrays.copyOf(kollsman, capacity);
+        speed = Arrays.copyOf(speed, capacity);
+        delta = Arrays.copyOf(delta, capacity);
+        used = Arrays.copyOf(used, capacity);
+    }
+}
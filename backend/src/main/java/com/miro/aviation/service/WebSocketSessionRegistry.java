@@ -0,0 +1,69 @@
+package com.miro.aviation.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of the open WebSocket sessions so the server can close one on its own initiative.
+ * <p>
+ * STOMP uses the WebSocket session id as its session id, so the ids match the ones seen in
+ * message headers and in {@link FlightBroadcastEngine}.
+ * </p>
+ */
+@Component
+public class WebSocketSessionRegistry implements WebSocketHandlerDecoratorFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketSessionRegistry.class);
+
+    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                sessions.put(session.getId(), session);
+                super.afterConnectionEstablished(session);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                sessions.remove(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Closes a session. The regular disconnect handling (and {@code SessionDisconnectEvent}) follows.
+     *
+     * @return True if the session was open and has been asked to close
+     */
+    public boolean close(String sessionId, CloseStatus status) {
+        WebSocketSession session = sessions.get(sessionId);
+        if (session == null || !session.isOpen()) {
+            return false;
+        }
+        try {
+            session.close(status);
+            return true;
+        } catch (IOException e) {
+            logger.warn("Failed to close session {}: {}", sessionId, e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.miro.aviation.utils;
+
+import com.miro.aviation.model.*;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Serializes {@link FlightSnapshot}s to a fixed 64-byte little-endian struct.
+ * <p>
+ * Layout (fixed-point values are rounded and saturate at the limits of their type):
+ * </p>
+ * <pre>
+ * offset 0   u8   format version (1)
+ *        1   u8   flags: bit 0 attitude, 1 altitude, 2 air speed, 3 position, 4 progress present
+ *        2   u16  active waypoint index
+ *        4   i64  timestamp (epoch millis)
+ *        12  i32  latitude (1e-7 deg)
+ *        16  i32  longitude (1e-7 deg)
+ *        20  i32  altitude (0.1 ft)
+ *        24  i16  pitch (0.01 deg)
+ *        26  i16  roll (0.01 deg)
+ *        28  u16  yaw (0.01 deg, 0-360)
+ *        30  u16  air speed (0.1 kt)
+ *        32  u16  Kollsman pressure (0.01 inHg)
+ *        34  u16  progress percentage (1e-4, 0-10000)
+ *        36  i32  progress current index
+ *        40  i32  progress total samples
+ *        44  i32  reserved
+ *        48  i64  progress start time (epoch millis)
+ *        56  i64  progress end time (epoch millis)
+ * </pre>
+ * <p>
+ * Fields of an absent group are zero.
+ * </p>
+ */
+public class BinaryFrameWriter {
+
+    public static final int VERSION = 1;
+    public static final int FRAME_BYTES = 64;
+
+    public static final int FLAG_ATTITUDE = 1;
+    public static final int FLAG_ALTITUDE = 1 << 1;
+    public static final int FLAG_AIR_SPEED = 1 << 2;
+    public static final int FLAG_POSITION = 1 << 3;
+    public static final int FLAG_PROGRESS = 1 << 4;
+
+    public static final double COORDINATE_SCALE = 1e7;
+    public static final double ALTITUDE_SCALE = 10;
+    public static final double ANGLE_SCALE = 100;
+    public static final double SPEED_SCALE = 10;
+    public static final double PRESSURE_SCALE = 100;
+    public static final double PERCENTAGE_SCALE = 10_000;
+
+    // Write straight into the payload array without a ByteBuffer wrapper
+    private static final VarHandle SHORT = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * @return A new {@value #FRAME_BYTES}-byte frame for the snapshot
+     */
+    public static byte[] toBinary(FlightSnapshot snapshot) {
+        byte[] frame = new byte[FRAME_BYTES];
+        int flags = 0;
+
+        frame[0] = VERSION;
+        SHORT.set(frame, 2, (short) unsigned16(snapshot.getActiveWaypointIndex()));
+        LONG.set(frame, 4, snapshot.getTimestamp());
+
+        Position position = snapshot.getPosition();
+        if (position != null) {
+            flags |= FLAG_POSITION;
+            INT.set(frame, 12, fixed32(position.getLatitude(), COORDINATE_SCALE));
+            INT.set(frame, 16, fixed32(position.getLongitude(), COORDINATE_SCALE));
+        }
+        Altitude altitude = snapshot.getAltitude();
+        if (altitude != null) {
+            flags |= FLAG_ALTITUDE;
+            INT.set(frame, 20, fixed32(altitude.getAltitude(), ALTITUDE_SCALE));
+            SHORT.set(frame, 32, (short) unsigned16(Math.round(altitude.getKollsmanPressure() * PRESSURE_SCALE)));
+        }
+        Attitude attitude = snapshot.getAttitude();
+        if (attitude != null) {
+            flags |= FLAG_ATTITUDE;
+            SHORT.set(frame, 24, fixed16(attitude.getPitch(), ANGLE_SCALE));
+            SHORT.set(frame, 26, fixed16(attitude.getRoll(), ANGLE_SCALE));
+            double yaw = attitude.getYaw() % 360;
+            SHORT.set(frame, 28, (short) unsigned16(Math.round((yaw < 0 ? yaw + 360 : yaw) * ANGLE_SCALE) % 36000));
+        }
+        AirSpeed airSpeed = snapshot.getAirSpeed();
+        if (airSpeed != null) {
+            flags |= FLAG_AIR_SPEED;
+            SHORT.set(frame, 30, (short) unsigned16(Math.round(airSpeed.getSpeed() * SPEED_SCALE)));
+        }
+        PlaybackProgress progress = snapshot.getProgress();
+        if (progress != null) {
+            flags |= FLAG_PROGRESS;
+            SHORT.set(frame, 34, (short) unsigned16(Math.round(progress.percentage() * PERCENTAGE_SCALE)));
+            INT.set(frame, 36, progress.currentIndex());
+            INT.set(frame, 40, progress.totalSamples());
+            LONG.set(frame, 48, progress.startTime());
+            LONG.set(frame, 56, progress.endTime());
+        }
+
+        frame[1] = (byte) flags;
+        return frame;
+    }
+
+    private static int fixed32(double value, double scale) {
+        long scaled = Math.round(value * scale); // NaN rounds to 0
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, scaled));
+    }
+
+    private static short fixed16(double value, double scale) {
+        long scaled = Math.round(value * scale);
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, scaled));
+    }
+
+    private static int unsigned16(long value) {
+        return (int) Math.max(0, Math.min(0xFFFF, value));
+    }
+}
@@ -1,73 +1,64 @@
 package com.miro.aviation.utils;
 
-import com.miro.aviation.model.AirSpeed;
-import com.miro.aviation.model.Altitude;
-import com.miro.aviation.model.Attitude;
+import com.miro.aviation.model.FlightRecording;
 import com.miro.aviation.model.FlightSnapshot;
-import com.miro.aviation.model.Position;
-import com.opencsv.CSVReaderHeaderAware;
 
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 public class CsvFlightLoader {
 
-    private static final double DEFAULT_KOLLSMAN = 29.92;
-
     public static List<FlightSnapshot> load(InputStream is) {
-        List<FlightSnapshot> snapshots = new ArrayList<>();
-
-        try (CSVReaderHeaderAware reader =
-                     new CSVReaderHeaderAware(new InputStreamReader(is))) {
+        FlightRecording recording = loadRecording("", is);
 
-            Map<String, String> row;
-            while ((row = reader.readMap()) != null) {
+        List<FlightSnapshot> snapshots = new ArrayList<>(recording.size());
+        for (int i = 0; i < recording.size(); i++) {
+            snapshots.add(recording.toSnapshot(i));
+        }
+        return snapshots;
+    }
 
-                long timestampSeconds = Long.parseLong(row.get("Timestamp"));
-                double altitudeFt = Double.parseDouble(row.get("Altitude"));
-                double speedKt = Double.parseDouble(row.get("Speed"));
-                double heading = Double.parseDouble(row.get("Direction"));
-                
-                // Parse "lat,lon" from the Position column
-                Position position = new Position(0, 0);
-                String posStr = row.get("Position");
-                if (posStr != null && posStr.contains(",")) {
-                    String[] parts = posStr.replace("\"", "").split(",");
-                    position.setLatitude(Double.parseDouble(parts[0].trim()));
-                    position.setLongitude(Double.parseDouble(parts[1].trim()));
-                }
+    /**
+     * Parses a flight CSV straight into columnar storage, without building per-row snapshots.
+     * Values are parsed in place by {@link CsvParser}, so no strings are created per row.
+     *
+     * @param source Identifier stored with the recording (usually the resource path)
+     * @param is     CSV input with {@code Timestamp, Position, Altitude, Speed, Direction} columns
+     * @return The loaded recording
+     */
+    public static FlightRecording loadRecording(String source, InputStream is) {
+        FlightRecording.Builder builder = FlightRecording.builder(source);
 
-                // Attitude (limited data → simulate roll/pitch)
-                Attitude attitude = new Attitude(
-                        0.0,        // roll
-                        0.0,        // pitch
-                        heading     // yaw
-                );
+        try (CsvParser csv = new CsvParser(is)) {
+            int timestamp = csv.requireColumn("Timestamp");
+            int altitude = csv.requireColumn("Altitude");
+            int speed = csv.requireColumn("Speed");
+            int direction = csv.requireColumn("Direction");
+            int position = csv.column("Position");
 
-                Altitude altitude = new Altitude(
-                        altitudeFt,
-                        DEFAULT_KOLLSMAN
-                );
+            while (csv.next()) {
 
-                AirSpeed airSpeed = new AirSpeed(speedKt);
+                long timestampSeconds = csv.getLong(timestamp);
+                double altitudeFt = csv.getDouble(altitude);
+                double speedKt = csv.getDouble(speed);
+                double heading = csv.getDouble(direction);
 
-                FlightSnapshot snapshot = new FlightSnapshot();
-                snapshot.setTimestamp(timestampSeconds * 1000); // convert to millis
-                snapshot.setAttitude(attitude);
-                snapshot.setAltitude(altitude);
-                snapshot.setAirSpeed(airSpeed);
-                snapshot.setPosition(position); // Set parsed position
+                // Parse "lat,lon" from the Position column
+                double latitude = 0;
+                double longitude = 0;
+                if (csv.contains(position, ",")) {
+                    latitude = csv.getDouble(position, 0, ',');
+                    longitude = csv.getDouble(position, 1, ',');
+                }
 
-                snapshots.add(snapshot);
+                builder.add(timestampSeconds * 1000, latitude, longitude, altitudeFt, speedKt, heading); // convert to millis
             }
 
         } catch (Exception e) {
             throw new RuntimeException("Failed to load flight CSV", e);
         }
 
-        return snapshots;
+        return builder.build();
     }
 }
@@ -1,64 +1,109 @@
 package com.miro.aviation.utils;
 
 import com.miro.aviation.model.NavPoint;
-import com.opencsv.CSVReaderHeaderAware;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads airports from an OurAirports-style CSV file.
+ * <p>
+ * The file is read into memory and split into ranges of whole rows that are parsed in parallel
+ * on a {@link ForkJoinPool}, a few per worker so that uneven ranges balance out. The airports
+ * are merged in file order, so the result is the same as parsing the file serially. Rows that
+ * are not airports, closed, or have out-of-range coordinates are skipped.
+ * </p>
+ */
 public class CsvNavDataLoader {
 
     private static final Logger logger = LoggerFactory.getLogger(CsvNavDataLoader.class);
 
+    /** Files are not split into ranges smaller than this, which are quicker to parse than to hand off */
+    static final int MIN_CHUNK_BYTES = 1 << 18;
+    private static final int CHUNKS_PER_THREAD = 4;
+
     public static List<NavPoint> loadAirports(InputStream is) {
-        List<NavPoint> airports = new ArrayList<>();
+        return loadAirports(is, ForkJoinPool.commonPool());
+    }
 
-        try (CSVReaderHeaderAware reader = new CSVReaderHeaderAware(new InputStreamReader(is))) {
-            Map<String, String> row;
-            int rowNum = 0;
+    public static List<NavPoint> loadAirports(InputStream is, ForkJoinPool pool) {
+        return loadAirports(is, pool, MIN_CHUNK_BYTES);
+    }
 
-            while ((row = reader.readMap()) != null) {
-                rowNum++;
-                try {
-                    String type = row.get("type");
-                    if (type == null || !type.contains("airport") || type.equals("closed")) {
-                        continue; // skip non-airports or closed airports
-                    }
+    static List<NavPoint> loadAirports(InputStream is, ForkJoinPool pool, int minChunkBytes) {
+        byte[] data;
+        try (is) {
+            data = is.readAllBytes();
+        } catch (Exception e) {
+            logger.error("Failed to load navigation database", e);
+            throw new RuntimeException("Failed to load navigation database", e);
+        }
+        return loadAirports(data, pool, minChunkBytes);
+    }
 
-                    String ident = row.get("ident");
-                    String latStr = row.get("latitude_deg");
-                    String lonStr = row.get("longitude_deg");
+    /**
+     * Loads airports from a CSV file already held in memory.
+     */
+    public static List<NavPoint> loadAirports(byte[] data) {
+        return loadAirports(data, ForkJoinPool.commonPool(), MIN_CHUNK_BYTES);
+    }
 
-                    if (latStr == null || lonStr == null) continue;
+    static List<NavPoint> loadAirports(byte[] data, ForkJoinPool pool, int minChunkBytes) {
+        List<NavPoint> airports = new ArrayList<>();
 
-                    // Normalize decimal separators (comma → dot)
-                    latStr = latStr.replace(',', '.').trim();
-                    lonStr = lonStr.replace(',', '.').trim();
+        try {
+            long start = System.nanoTime();
+            CsvParser csv = CsvParser.of(data);
+            Columns columns = new Columns(csv);
+
+            int chunks = Math.min(pool.getParallelism() * CHUNKS_PER_THREAD, Math.max(1, data.length / minChunkBytes));
+            int[] boundaries = csv.split(chunks, pool);
+            List<Callable<Chunk>> tasks = new ArrayList<>(boundaries.length - 1);
+            for (int i = 0; i < boundaries.length - 1; i++) {
+                CsvParser rows = csv.rows(boundaries[i], boundaries[i + 1]);
+                tasks.add(() -> parse(rows, columns));
+            }
 
-                    double lat = Double.parseDouble(latStr);
-                    double lon = Double.parseDouble(lonStr);
+            List<Chunk> parsed = new ArrayList<>(tasks.size());
+            if (tasks.size() == 1) {
+                parsed.add(tasks.get(0).call());
+            } else {
+                for (Future<Chunk> future : pool.invokeAll(tasks)) {
+                    parsed.add(future.get());
+                }
+            }
 
-                    // Sanity check
-                    if (lat < -90 || lat > 90 || lon < -180 || lon > 180) {
-                        logger.warn("Skipping invalid coordinates at row {}: {},{}", rowNum, latStr, lonStr);
-                        continue;
+            // Merge in file order; skipped rows are logged here, once their row numbers are known
+            int rowNum = 0;
+            for (Chunk chunk : parsed) {
+                airports.addAll(chunk.airports);
+                for (Skipped skipped : chunk.skipped) {
+                    if (skipped.error != null) {
+                        logger.warn("Skipping malformed row {}: {}", rowNum + skipped.row, skipped.error);
+                    } else {
+                        logger.warn("Skipping invalid coordinates at row {}: {},{}", rowNum + skipped.row, skipped.lat, skipped.lon);
                     }
-
-                    logger.debug("Loaded airport {} at coordinates: {},{}", ident, lat, lon);
-
-                    airports.add(new NavPoint(ident, type, lat, lon));
-
-                } catch (Exception e) {
-                    logger.warn("Skipping malformed row {}: {}", rowNum, e.getMessage());
                 }
+                rowNum += chunk.rows;
             }
 
-            logger.info("Loaded {} airports successfully.", airports.size());
+            long elapsed = System.nanoTime() - start;
+            logger.info("Loaded {} airports from {} rows in {} ms ({} rows/s, {} chunks).", airports.size(), rowNum,
+                    TimeUnit.NANOSECONDS.toMillis(elapsed), Math.round(rowNum * 1e9 / Math.max(1, elapsed)), parsed.size());
+        } catch (ExecutionException e) {
+            logger.error("Failed to load navigation database", e.getCause());
+            throw new RuntimeException("Failed to load navigation database", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while loading navigation database", e);
         } catch (Exception e) {
             logger.error("Failed to load navigation database", e);
             throw new RuntimeException("Failed to load navigation database", e);
@@ -66,4 +111,59 @@ public class CsvNavDataLoader {
 
         return airports;
     }
+
+    private static Chunk parse(CsvParser csv, Columns columns) throws Exception {
+        Chunk chunk = new Chunk();
+
+        while (csv.next()) {
+            chunk.rows++;
+            try {
+                // Filter on the raw bytes, so skipped rows never become strings
+                if (!csv.contains(columns.type, "airport") || csv.contentEquals(columns.type, "closed")) {
+                    continue; // skip non-airports or closed airports
+                }
+
+                if (!csv.isPresent(columns.lat) || !csv.isPresent(columns.lon)) continue;
+
+                // Accepts comma decimal separators as well as dots
+                double lat = csv.getLenientDouble(columns.lat);
+                double lon = csv.getLenientDouble(columns.lon);
+
+                // Sanity check
+                if (lat < -90 || lat > 90 || lon < -180 || lon > 180) {
+                    chunk.skipped.add(new Skipped(chunk.rows, lat, lon, null));
+                    continue;
+                }
+
+                String ident = csv.getString(columns.ident);
+                String type = csv.getString(columns.type);
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Loaded airport {} at coordinates: {},{}", ident, lat, lon);
+                }
+
+                chunk.airports.add(new NavPoint(ident, type, lat, lon));
+
+            } catch (Exception e) {
+                chunk.skipped.add(new Skipped(chunk.rows, 0, 0, e.getMessage()));
+            }
+        }
+        return chunk;
+    }
+
+    /** Column indices, resolved once from the header and shared by every chunk */
+    private record Columns(int ident, int type, int lat, int lon) {
+        Columns(CsvParser csv) {
+            this(csv.column("ident"), csv.column("type"), csv.column("latitude_deg"), csv.column("longitude_deg"));
+        }
+    }
+
+    /** A row skipped with a warning, numbered within its chunk */
+    private record Skipped(int row, double lat, double lon, String error) {
+    }
+
+    private static final class Chunk {
+        final List<NavPoint> airports = new ArrayList<>();
+        final List<Skipped> skipped = new ArrayList<>();
+        int rows = 0;
+    }
 }
@@ -0,0 +1,99 @@
+package com.miro.aviation.utils;
+
+import com.miro.aviation.model.*;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serializes {@link FlightSnapshot}s to UTF-8 JSON without going through Jackson.
+ * <p>
+ * The output has the same properties and number formatting as the default Jackson mapping
+ * used by the STOMP message converter, so clients cannot tell the two apart. Frames produced
+ * here are meant to be cached and sent as-is to many sessions.
+ * </p>
+ */
+public class FlightFrameWriter {
+
+    /**
+     * @return The snapshot as a UTF-8 encoded JSON object
+     */
+    public static byte[] toJson(FlightSnapshot snapshot) {
+        StringBuilder json = new StringBuilder(320).append('{');
+        return appendFields(json, snapshot).append('}').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Appends the snapshot's properties without the enclosing braces, so callers can add
+     * envelope fields of their own to the same object.
+     */
+    public static StringBuilder appendFields(StringBuilder json, FlightSnapshot snapshot) {
+        json.append("\"timestamp\":").append(snapshot.getTimestamp());
+
+        Attitude attitude = snapshot.getAttitude();
+        json.append(",\"attitude\":");
+        if (attitude == null) {
+            json.append("null");
+        } else {
+            json.append("{\"pitch\":");
+            number(json, attitude.getPitch()).append(",\"roll\":");
+            number(json, attitude.getRoll()).append(",\"yaw\":");
+            number(json, attitude.getYaw()).append('}');
+        }
+
+        Altitude altitude = snapshot.getAltitude();
+        json.append(",\"altitude\":");
+        if (altitude == null) {
+            json.append("null");
+        } else {
+            json.append("{\"altitude\":");
+            number(json, altitude.getAltitude()).append(",\"kollsmanPressure\":");
+            number(json, altitude.getKollsmanPressure()).append('}');
+        }
+
+        AirSpeed airSpeed = snapshot.getAirSpeed();
+        json.append(",\"airSpeed\":");
+        if (airSpeed == null) {
+            json.append("null");
+        } else {
+            json.append("{\"speed\":");
+            number(json, airSpeed.getSpeed()).append('}');
+        }
+
+        Position position = snapshot.getPosition();
+        json.append(",\"position\":");
+        if (position == null) {
+            json.append("null");
+        } else {
+            json.append("{\"latitude\":");
+            number(json, position.getLatitude()).append(",\"longitude\":");
+            number(json, position.getLongitude()).append('}');
+        }
+
+        PlaybackProgress progress = snapshot.getProgress();
+        json.append(",\"progress\":");
+        if (progress == null) {
+            json.append("null");
+        } else {
+            json.append("{\"currentIndex\":").append(progress.currentIndex())
+                .append(",\"totalSamples\":").append(progress.totalSamples())
+                .append(",\"percentage\":");
+            number(json, progress.percentage())
+                .append(",\"startTime\":").append(progress.startTime())
+                .append(",\"endTime\":").append(progress.endTime())
+                .append('}');
+        }
+
+        return json.append(",\"activeWaypointIndex\":").append(snapshot.getActiveWaypointIndex());
+    }
+
+    /**
+     * Appends a double the way Jackson writes it.
+     */
+    public static StringBuilder number(StringBuilder json, double value) {
+        // Jackson quotes non-finite values by default (WRITE_NAN_AS_STRINGS)
+        if (Double.isFinite(value)) {
+            return json.append(value);
+        }
+        return json.append('"').append(value).append('"');
+    }
+}
@@ -0,0 +1,62 @@
+package com.miro.aviation.utils;
+
+import com.miro.aviation.model.FlightRecording;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Command-line converter from flight CSV recordings to the binary {@code .avfr} format.
+ * <p>
+ * Usage: {@code FlightRecordingConverter <input.csv | input dir> <output dir>}.
+ * Run it through Gradle with {@code ./gradlew convertFlights -Pin=... -Pout=...}.
+ * </p>
+ */
+public class FlightRecordingConverter {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: FlightRecordingConverter <input.csv | input dir> <output dir>");
+            System.exit(1);
+        }
+
+        Path input = Path.of(args[0]);
+        Path outputDir = Path.of(args[1]);
+
+        List<Path> sources;
+        if (Files.isDirectory(input)) {
+            try (Stream<Path> files = Files.list(input)) {
+                sources = files.filter(p -> p.getFileName().toString().endsWith(".csv")).sorted().toList();
+            }
+        } else {
+            sources = List.of(input);
+        }
+
+        for (Path source : sources) {
+            Path target = convert(source, outputDir);
+            System.out.printf("%s -> %s%n", source, target);
+        }
+    }
+
+    /**
+     * Converts one CSV recording into {@code outputDir}, keeping the base file name.
+     *
+     * @return Path of the written binary recording
+     */
+    public static Path convert(Path csv, Path outputDir) throws IOException {
+        String name = csv.getFileName().toString();
+        String baseName = name.endsWith(".csv") ? name.substring(0, name.length() - 4) : name;
+        Path target = outputDir.resolve(baseName + FlightRecordingFile.EXTENSION);
+
+        FlightRecording recording;
+        try (InputStream is = Files.newInputStream(csv)) {
+            recording = CsvFlightLoader.loadRecording(csv.toString(), is);
+        }
+        FlightRecordingFile.write(recording, target);
+        return target;
+    }
+}
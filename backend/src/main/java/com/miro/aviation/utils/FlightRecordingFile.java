@@ -0,0 +1,145 @@
+package com.miro.aviation.utils;
+
+import com.miro.aviation.model.FlightRecording;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Compact fixed-width binary format for flight recordings ({@code .avfr}).
+ * <p>
+ * Layout (little-endian), one column after another so each column is a contiguous array:
+ * </p>
+ * <pre>
+ * offset 0   magic "AVFR"
+ *        4   int   format version
+ *        8   int   sample count n
+ *        12  int   reserved
+ *        16  long[n]  timestamps (epoch millis)
+ *            int[n]   latitudes (microdegrees)
+ *            int[n]   longitudes (microdegrees)
+ *            float[n] altitudes (ft)
+ *            float[n] speeds (kt)
+ *            float[n] headings (deg)
+ * </pre>
+ * <p>
+ * Files are opened with {@link #map(String, Path)}, which memory-maps them read-only. Opening
+ * costs the same regardless of recording length, and the pages live in the OS page cache, so
+ * they are shared between sessions and survive JVM restarts.
+ * </p>
+ */
+public class FlightRecordingFile {
+
+    public static final String EXTENSION = ".avfr";
+
+    private static final int MAGIC = 0x52465641; // "AVFR" read as a little-endian int
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int BYTES_PER_SAMPLE = Long.BYTES + 5 * Integer.BYTES;
+
+    /**
+     * Writes a recording in the binary format, replacing the target atomically.
+     */
+    public static void write(FlightRecording recording, Path target) throws IOException {
+        int n = recording.size();
+        ByteBuffer buffer = ByteBuffer.allocate(fileSize(n)).order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(0);
+        for (int i = 0; i < n; i++) buffer.putLong(recording.getTimestamp(i));
+        for (int i = 0; i < n; i++) buffer.putInt(recording.getLatitudeMicros(i));
+        for (int i = 0; i < n; i++) buffer.putInt(recording.getLongitudeMicros(i));
+        for (int i = 0; i < n; i++) buffer.putFloat((float) recording.getAltitude(i));
+        for (int i = 0; i < n; i++) buffer.putFloat((float) recording.getSpeed(i));
+        for (int i = 0; i < n; i++) buffer.putFloat((float) recording.getHeading(i));
+        buffer.flip();
+
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Memory-maps a binary recording. Only the header is read up front.
+     *
+     * @param source Identifier stored with the recording (usually the resource path)
+     * @param file   Path to an {@code .avfr} file
+     * @throws IOException if the file cannot be mapped or is not a valid recording
+     */
+    public static FlightRecording map(String source, Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a flight recording file: " + file);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported flight recording version " + buffer.getInt(4) + ": " + file);
+        }
+        int n = buffer.getInt(8);
+        if (n < 0 || buffer.capacity() != fileSize(n)) {
+            throw new IOException("Truncated flight recording file: " + file);
+        }
+
+        return FlightRecording.of(source, new MappedColumns(buffer, n));
+    }
+
+    private static int fileSize(int samples) {
+        return Math.toIntExact(HEADER_BYTES + (long) samples * BYTES_PER_SAMPLE);
+    }
+
+    /**
+     * Columns read straight from the mapped file with absolute (thread-safe) gets.
+     */
+    private static final class MappedColumns implements FlightRecording.Columns {
+
+        private final ByteBuffer buffer;
+        private final int size;
+        private final int latitudes;
+        private final int longitudes;
+        private final int altitudes;
+        private final int speeds;
+        private final int headings;
+
+        private MappedColumns(ByteBuffer buffer, int size) {
+            this.buffer = buffer;
+            this.size = size;
+            this.latitudes = HEADER_BYTES + size * Long.BYTES;
+            this.longitudes = latitudes + size * Integer.BYTES;
+            this.altitudes = longitudes + size * Integer.BYTES;
+            this.speeds = altitudes + size * Float.BYTES;
+            this.headings = speeds + size * Float.BYTES;
+        }
+
+        @Override public int size() { return size; }
+        @Override public long timestamp(int index) { return buffer.getLong(HEADER_BYTES + checkIndex(index) * Long.BYTES); }
+        @Override public int latitudeMicros(int index) { return buffer.getInt(latitudes + checkIndex(index) * Integer.BYTES); }
+        @Override public int longitudeMicros(int index) { return buffer.getInt(longitudes + checkIndex(index) * Integer.BYTES); }
+        @Override public float altitude(int index) { return buffer.getFloat(altitudes + checkIndex(index) * Float.BYTES); }
+        @Override public float speed(int index) { return buffer.getFloat(speeds + checkIndex(index) * Float.BYTES); }
+        @Override public float heading(int index) { return buffer.getFloat(headings + checkIndex(index) * Float.BYTES); }
+
+        private int checkIndex(int index) {
+            // Without this an out-of-range index would silently read a neighbouring column
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+            }
+            return index;
+        }
+    }
+}
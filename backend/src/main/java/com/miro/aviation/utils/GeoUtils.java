@@ -0,0 +1,32 @@
+package com.miro.aviation.utils;
+
+/**
+ * Great-circle helpers shared by the navigation data queries.
+ */
+public class GeoUtils {
+
+    /** Mean Earth radius in nautical miles */
+    public static final double EARTH_RADIUS_NM = 3440.065;
+
+    /**
+     * Calculates the distance between two geographic coordinates using the Haversine formula.
+     *
+     * @param lat1 Latitude of first point in decimal degrees
+     * @param lon1 Longitude of first point in decimal degrees
+     * @param lat2 Latitude of second point in decimal degrees
+     * @param lon2 Longitude of second point in decimal degrees
+     * @return Distance between the two points in nautical miles
+     */
+    public static double distanceNM(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
+                        Math.sin(dLon / 2) * Math.sin(dLon / 2);
+
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+
+        return EARTH_RADIUS_NM * c; // Convert radians to nautical miles
+    }
+}
@@ -0,0 +1,225 @@
+package com.miro.aviation.utils;
+
+import com.miro.aviation.model.NavPoint;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary snapshot of the validated airport set ({@code .avnd}), so startup does not have to
+ * parse and validate the airport CSV again.
+ * <p>
+ * Layout (little-endian), one column after another:
+ * </p>
+ * <pre>
+ * offset 0   magic "AVND"
+ *        4   int   format version
+ *        8   int   airport count n
+ *        12  int   type count t
+ *        16  long  CRC32C of the source CSV
+ *        24  int   ident blob length b
+ *        28  int   CRC32C of everything after the header
+ *        32  double[n] latitudes
+ *            double[n] longitudes
+ *            int[n + 1] ident offsets into the blob
+ *            short[n]   type indices
+ *            t x (short length, UTF-8 bytes) type names
+ *            byte[b]    idents, UTF-8, back to back
+ * </pre>
+ * <p>
+ * A snapshot is only valid for the CSV whose checksum it carries: {@link #read(Path, long)}
+ * returns null for any other, so an updated CSV is parsed again. The format version is bumped
+ * whenever the loader's validation rules change, which invalidates older snapshots too. The
+ * body's own checksum is verified before any airport is read, so a torn or damaged file is
+ * rejected rather than loaded. Airports are read in their original order and share one
+ * {@link String} per type.
+ * </p>
+ * <p>
+ * Usage: {@code NavDataSnapshotFile <airports.csv> <snapshot file>}.
+ * Run it through Gradle with {@code ./gradlew snapshotNavData -Pin=... -Pout=...}.
+ * </p>
+ */
+public class NavDataSnapshotFile {
+
+    public static final String EXTENSION = ".avnd";
+
+    private static final int MAGIC = 0x444E5641; // "AVND" read as a little-endian int
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 32;
+    private static final int BODY_CHECKSUM_OFFSET = 28;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: NavDataSnapshotFile <airports.csv> <snapshot file>");
+            System.exit(1);
+        }
+
+        byte[] csv = Files.readAllBytes(Path.of(args[0]));
+        List<NavPoint> airports = CsvNavDataLoader.loadAirports(csv);
+        Path target = Path.of(args[1]);
+        write(airports, checksum(csv), target);
+        System.out.printf("%s -> %s (%d airports)%n", args[0], target, airports.size());
+    }
+
+    /**
+     * @return Checksum identifying a source CSV, as stored in its snapshot
+     */
+    public static long checksum(byte[] csv) {
+        CRC32C crc = new CRC32C();
+        crc.update(csv);
+        return crc.getValue();
+    }
+
+    /**
+     * Writes a snapshot of already validated airports, replacing the target atomically. The
+     * snapshot is written to a uniquely named temporary file next to the target first, so
+     * processes sharing the directory never write into each other's files.
+     *
+     * @param sourceChecksum {@link #checksum(byte[])} of the CSV the airports were loaded from
+     */
+    public static void write(List<NavPoint> airports, long sourceChecksum, Path target) throws IOException {
+        int n = airports.size();
+        Map<String, Integer> typeIndex = new HashMap<>();
+        List<byte[]> types = new ArrayList<>();
+        short[] typeOf = new short[n];
+        byte[][] idents = new byte[n][];
+        long blobLength = 0;
+        long typeBytes = 0;
+
+        for (int i = 0; i < n; i++) {
+            NavPoint airport = airports.get(i);
+            String type = airport.getType() == null ? "" : airport.getType();
+            Integer index = typeIndex.get(type);
+            if (index == null) {
+                byte[] name = type.getBytes(StandardCharsets.UTF_8);
+                if (types.size() > Short.MAX_VALUE || name.length > Short.MAX_VALUE) {
+                    throw new IOException("Too many or too long airport types for a snapshot");
+                }
+                index = types.size();
+                typeIndex.put(type, index);
+                types.add(name);
+                typeBytes += Short.BYTES + name.length;
+            }
+            typeOf[i] = index.shortValue();
+            idents[i] = airport.getIdent() == null ? new byte[0] : airport.getIdent().getBytes(StandardCharsets.UTF_8);
+            blobLength += idents[i].length;
+        }
+
+        int size = Math.toIntExact(HEADER_BYTES + (long) n * (2 * Double.BYTES + Integer.BYTES + Short.BYTES)
+                + Integer.BYTES + typeBytes + blobLength);
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(types.size())
+                .putLong(sourceChecksum).putInt((int) blobLength).putInt(0);
+        for (NavPoint airport : airports) buffer.putDouble(airport.getLatitude());
+        for (NavPoint airport : airports) buffer.putDouble(airport.getLongitude());
+        int offset = 0;
+        for (byte[] ident : idents) {
+            buffer.putInt(offset);
+            offset += ident.length;
+        }
+        buffer.putInt(offset);
+        for (short type : typeOf) buffer.putShort(type);
+        for (byte[] name : types) buffer.putShort((short) name.length).put(name);
+        for (byte[] ident : idents) buffer.put(ident);
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), HEADER_BYTES, size - HEADER_BYTES);
+        buffer.putInt(BODY_CHECKSUM_OFFSET, (int) crc.getValue());
+        buffer.flip();
+
+        Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, target.getFileName() + ".", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Reads the airports of a snapshot, if it was taken of the given CSV.
+     *
+     * @param sourceChecksum {@link #checksum(byte[])} of the current CSV
+     * @return The airports in their original order, or null if the snapshot is of another CSV
+     *         or another format version
+     * @throws IOException if the file cannot be mapped, is not a snapshot, or is damaged
+     */
+    public static List<NavPoint> read(Path file, long sourceChecksum) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a nav data snapshot: " + file);
+        }
+        if (buffer.getInt(4) != VERSION || buffer.getLong(16) != sourceChecksum) {
+            return null;
+        }
+        int n = buffer.getInt(8);
+        int typeCount = buffer.getInt(12);
+        int blobLength = buffer.getInt(24);
+        if (n < 0 || typeCount < 0 || blobLength < 0) {
+            throw new IOException("Corrupt nav data snapshot: " + file);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(HEADER_BYTES, buffer.capacity() - HEADER_BYTES));
+        if ((int) crc.getValue() != buffer.getInt(BODY_CHECKSUM_OFFSET)) {
+            throw new IOException("Damaged nav data snapshot (checksum mismatch): " + file);
+        }
+
+        try {
+            int latitudes = HEADER_BYTES;
+            int longitudes = latitudes + n * Double.BYTES;
+            int offsets = longitudes + n * Double.BYTES;
+            int typeIndices = offsets + (n + 1) * Integer.BYTES;
+
+            buffer.position(typeIndices + n * Short.BYTES);
+            String[] types = new String[typeCount];
+            for (int t = 0; t < typeCount; t++) {
+                byte[] name = new byte[buffer.getShort()];
+                buffer.get(name);
+                types[t] = new String(name, StandardCharsets.UTF_8);
+            }
+            byte[] blob = new byte[blobLength];
+            buffer.get(blob);
+            if (buffer.hasRemaining()) {
+                throw new IOException("Trailing bytes in nav data snapshot: " + file);
+            }
+
+            List<NavPoint> airports = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                int from = buffer.getInt(offsets + i * Integer.BYTES);
+                int to = buffer.getInt(offsets + (i + 1) * Integer.BYTES);
+                String ident = new String(blob, from, to - from, StandardCharsets.UTF_8);
+                String type = types[buffer.getShort(typeIndices + i * Short.BYTES)];
+                airports.add(new NavPoint(ident, type,
+                        buffer.getDouble(latitudes + i * Double.BYTES), buffer.getDouble(longitudes + i * Double.BYTES)));
+            }
+            return airports;
+        } catch (IndexOutOfBoundsException | BufferUnderflowException | NegativeArraySizeException | IllegalArgumentException e) {
+            throw new IOException("Truncated nav data snapshot: " + file, e);
+        }
+    }
+}
@@ -1,8 +1,13 @@
 package com.miro.aviation.controller;
 
 import com.miro.aviation.model.FlightSnapshot;
+import com.miro.aviation.service.FlightBroadcastEngine;
+import com.miro.aviation.service.FrameEncoding;
+import com.miro.aviation.service.OutboundFlowControl;
+import com.miro.aviation.service.PlaybackGroupService;
 import com.miro.aviation.service.RecordedFlightDataProvider;
 import com.miro.aviation.service.SimulatedFlightDataProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -14,7 +19,9 @@ import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 
 import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -24,6 +31,8 @@ class FlightDataWebSocketControllerTest {
     private SimpMessagingTemplate messagingTemplate;
     private ObjectProvider<SimulatedFlightDataProvider> simulatedProviderFactory;
     private ObjectProvider<RecordedFlightDataProvider> recordedProviderFactory;
+    private FlightBroadcastEngine broadcastEngine;
+    private PlaybackGroupService groupService;
 
     private SimulatedFlightDataProvider mockSimulatedProvider;
     private RecordedFlightDataProvider mockRecordedProvider;
@@ -42,10 +51,16 @@ class FlightDataWebSocketControllerTest {
         when(simulatedProviderFactory.getObject()).thenReturn(mockSimulatedProvider);
         when(recordedProviderFactory.getObject()).thenReturn(mockRecordedProvider);
 
+        // Engine is never started, so ticks are driven explicitly via tickAll()
+        broadcastEngine = new FlightBroadcastEngine(messagingTemplate, mock(OutboundFlowControl.class), new SimpleMeterRegistry(), 2, 50, 2);
+        groupService = new PlaybackGroupService(broadcastEngine);
+
         controller = new FlightDataWebSocketController(
                 messagingTemplate,
                 simulatedProviderFactory,
-                recordedProviderFactory
+                recordedProviderFactory,
+                broadcastEngine,
+                groupService
         );
     }
 
@@ -67,11 +82,11 @@ class FlightDataWebSocketControllerTest {
         // Mock snapshots
         FlightSnapshot snap1 = mock(FlightSnapshot.class);
         FlightSnapshot snap2 = mock(FlightSnapshot.class);
-        when(mockRecordedProvider.getCurrentSnapshot()).thenReturn(snap1);
-        when(mockSimulatedProvider.getCurrentSnapshot()).thenReturn(snap2);
+        when(mockRecordedProvider.getCurrentSnapshot(any())).thenReturn(snap1);
+        when(mockSimulatedProvider.getCurrentSnapshot(any())).thenReturn(snap2);
 
         // Run broadcast
-        controller.broadcastFlightData();
+        broadcastEngine.tickAll();
 
         // Verify ticks occurred
         verify(mockRecordedProvider).tick();
@@ -104,7 +119,7 @@ class FlightDataWebSocketControllerTest {
         controller.handleDisconnect(disconnectEvent);
 
         // Broadcast should no longer trigger ticks for this session
-        controller.broadcastFlightData();
+        broadcastEngine.tickAll();
         verify(mockSimulatedProvider, never()).tick();
     }
 
@@ -183,4 +198,135 @@ class FlightDataWebSocketControllerTest {
         // Verification
         verify(mockRecordedProvider).setSeek(0.75);
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldSeekByTimestampOrElapsedTime() {
+        SimpMessageHeaderAccessor header = SimpMessageHeaderAccessor.create();
+        header.setSessionId("user-seek-time");
+        controller.switchProvider(Map.of("type", "recorded"), header);
+
+        controller.seek(Map.of("timestamp", 1_766_916_000_000L), header);
+        controller.seek(Map.of("timestamp", "2025-12-28T10:00:01Z"), header);
+        controller.seek(Map.of("timestamp", "not a time"), header);
+        controller.seek(Map.of("elapsed", 90_000), header);
+
+        verify(mockRecordedProvider).setSeekTime(1_766_916_000_000L);
+        verify(mockRecordedProvider).setSeekTime(1_766_916_001_000L);
+        verify(mockRecordedProvider).setSeekElapsed(90_000L);
+        verify(mockRecordedProvider, never()).setSeek(anyDouble());
+    }
+
+    @Test
+    void shouldNegotiateFrameEncodingPerSession() {
+        SimpMessageHeaderAccessor delta = SimpMessageHeaderAccessor.create();
+        delta.setSessionId("delta-session");
+        SimpMessageHeaderAccessor plain = SimpMessageHeaderAccessor.create();
+        plain.setSessionId("plain-session");
+
+        controller.switchProvider(Map.of("type", "simulated", "encoding", "delta"), delta);
+        controller.switchProvider(Map.of("type", "simulated"), plain);
+
+        assertEquals(FrameEncoding.DELTA, broadcastEngine.getEncoding("delta-session"));
+        assertEquals(FrameEncoding.JSON, broadcastEngine.getEncoding("plain-session"));
+        assertDoesNotThrow(() -> controller.resync(delta));
+    }
+
+    @Test
+    void shouldApplyRequestedFrameRate() {
+        SimpMessageHeaderAccessor header = SimpMessageHeaderAccessor.create();
+        header.setSessionId("map-only");
+
+        controller.switchProvider(Map.of("type", "simulated", "rate", 2), header);
+        broadcastEngine.tickAll();
+        assertEquals(2.0, broadcastEngine.getFrameRate("map-only"), 1e-9);
+
+        controller.setRate(Map.of("rate", 1.0), header);
+        broadcastEngine.tickAll();
+        assertEquals(1.0, broadcastEngine.getFrameRate("map-only"), 1e-9);
+    }
+
+    @Test
+    void shouldShareGroupPlaybackDrivenByLeader() {
+        SimpMessageHeaderAccessor leader = SimpMessageHeaderAccessor.create();
+        leader.setSessionId("leader");
+        SimpMessageHeaderAccessor viewer = SimpMessageHeaderAccessor.create();
+        viewer.setSessionId("viewer");
+
+        controller.switchProvider(Map.of("type", "simulated"), viewer);
+        controller.createGroup(Map.of("fileName", "test.csv", "speed", 2), leader);
+        String groupId = groupService.getGroupOf("leader").getId();
+        controller.joinGroup(Map.of("groupId", groupId), viewer);
+
+        // The viewer's own stream is closed; both follow the group topic
+        assertNull(broadcastEngine.getProvider("viewer"));
+        verify(mockSimulatedProvider).close();
+        verify(mockRecordedProvider).initialize("/flights/test.csv");
+        verify(mockRecordedProvider).setSpeedMultiplier(2.0);
+
+        when(mockRecordedProvider.getCurrentFrame(FrameEncoding.JSON)).thenReturn(new byte[] {'{', '}'});
+        broadcastEngine.tickAll();
+        verify(mockRecordedProvider).tick();
+        verify(messagingTemplate).send(eq("/topic/group/" + groupId), any());
+
+        // Only the leader's controls reach the group
+        controller.setPaused(Map.of("paused", true), viewer);
+        verify(mockRecordedProvider, never()).setPaused(anyBoolean());
+        controller.setPaused(Map.of("paused", true), leader);
+        verify(mockRecordedProvider).setPaused(true);
+
+        // Leadership passes on, and the group closes with its last member
+        SessionDisconnectEvent disconnectEvent = mock(SessionDisconnectEvent.class);
+        when(disconnectEvent.getSessionId()).thenReturn("leader");
+        controller.handleDisconnect(disconnectEvent);
+        assertEquals("viewer", groupService.getGroup(groupId).getLeader());
+
+        controller.leaveGroup(viewer);
+        assertNull(groupService.getGroup(groupId));
+        verify(mockRecordedProvider).close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldNotifyMemberPromotedWhenLeaderMovesToAnotherGroup() {
+        SimpMessageHeaderAccessor leader = SimpMessageHeaderAccessor.create();
+        leader.setSessionId("leader");
+        SimpMessageHeaderAccessor viewer = SimpMessageHeaderAccessor.create();
+        viewer.setSessionId("viewer");
+        SimpMessageHeaderAccessor other = SimpMessageHeaderAccessor.create();
+        other.setSessionId("other");
+
+        controller.createGroup(Map.of("fileName", "test.csv"), leader);
+        String first = groupService.getGroupOf("leader").getId();
+        controller.joinGroup(Map.of("groupId", first), viewer);
+        controller.createGroup(Map.of("fileName", "test.csv"), other);
+        String second = groupService.getGroupOf("other").getId();
+
+        // Joining another group hands the first one to the viewer
+        controller.joinGroup(Map.of("groupId", second), leader);
+        assertEquals("viewer", groupService.getGroup(first).getLeader());
+        ArgumentCaptor<Map<String, Object>> state = ArgumentCaptor.forClass(Map.class);
+        verify(messagingTemplate, times(2)).convertAndSendToUser(eq("viewer"), eq("/queue/group"), state.capture(), anyMap());
+        assertEquals(first, state.getValue().get("groupId"));
+        assertEquals(true, state.getValue().get("leader"));
+
+        // So does creating one
+        controller.joinGroup(Map.of("groupId", first), leader);
+        clearInvocations(messagingTemplate);
+        controller.createGroup(Map.of("fileName", "test.csv"), viewer);
+        assertEquals("leader", groupService.getGroup(first).getLeader());
+        verify(messagingTemplate).convertAndSendToUser(eq("leader"), eq("/queue/group"),
+                eq(Map.of("groupId", first, "destination", "/topic/group/" + first, "leader", true)), anyMap());
+    }
+
+    @Test
+    void shouldIgnoreJoiningUnknownGroup() {
+        SimpMessageHeaderAccessor header = SimpMessageHeaderAccessor.create();
+        header.setSessionId("lost");
+        controller.switchProvider(Map.of("type", "simulated"), header);
+
+        controller.joinGroup(Map.of("groupId", "missing"), header);
+
+        assertEquals(mockSimulatedProvider, broadcastEngine.getProvider("lost"));
+        assertNull(groupService.getGroupOf("lost"));
+    }
+}
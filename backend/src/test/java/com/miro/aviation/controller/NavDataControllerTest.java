@@ -2,17 +2,24 @@ package com.miro.aviation.controller;
 
 import com.miro.aviation.model.NavPoint;
 import com.miro.aviation.service.NavDataService;
+import com.miro.aviation.service.NavTileService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
+import java.util.Set;
 
 import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(NavDataController.class)
@@ -24,6 +31,9 @@ class NavDataControllerTest {
     @MockBean
     private NavDataService navDataService;
 
+    @MockBean
+    private NavTileService navTileService;
+
     @Test
     void testGetNearby() throws Exception {
         when(navDataService.findNearby(anyDouble(), anyDouble(), anyDouble()))
@@ -35,4 +45,102 @@ class NavDataControllerTest {
                         .param("radius", "50"))
                 .andExpect(status().isOk());
     }
+
+    @Test
+    void testGetNearby_RadiusClampedOrRejected() throws Exception {
+        mockMvc.perform(get("/api/nav/nearby")
+                        .param("lat", "60.0")
+                        .param("lon", "25.0")
+                        .param("radius", "1e12"))
+                .andExpect(status().isOk());
+        verify(navDataService).findNearby(60.0, 25.0, NavDataController.MAX_RADIUS_NM);
+
+        mockMvc.perform(get("/api/nav/nearby")
+                        .param("lat", "60.0")
+                        .param("lon", "25.0")
+                        .param("radius", "-5"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetNearest() throws Exception {
+        when(navDataService.findNearest(60.0, 25.0, 3))
+                .thenReturn(Collections.singletonList(new NavPoint("EFHK", "large_airport", 60.31, 24.96)));
+
+        mockMvc.perform(get("/api/nav/nearest")
+                        .param("lat", "60.0")
+                        .param("lon", "25.0")
+                        .param("k", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].ident").value("EFHK"));
+
+        mockMvc.perform(get("/api/nav/nearest")
+                        .param("lat", "60.0")
+                        .param("lon", "25.0")
+                        .param("k", "1000000"))
+                .andExpect(status().isOk());
+        verify(navDataService).findNearest(eq(60.0), eq(25.0), eq(NavDataController.MAX_NEAREST));
+    }
+
+    @Test
+    void testGetInBox() throws Exception {
+        when(navDataService.findInBox(-20.0, 170.0, -10.0, -170.0))
+                .thenReturn(Collections.singletonList(new NavPoint("NFFN", "large_airport", -17.75, 177.44)));
+
+        mockMvc.perform(get("/api/nav/bbox")
+                        .param("south", "-20")
+                        .param("west", "170")
+                        .param("north", "-10")
+                        .param("east", "-170"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].ident").value("NFFN"));
+    }
+
+    @Test
+    void testGetNearbyWithLevelOfDetail() throws Exception {
+        when(navDataService.findNearby(60.0, 25.0, 300.0, Set.of("large_airport"), 20))
+                .thenReturn(Collections.singletonList(new NavPoint("EFHK", "large_airport", 60.31, 24.96)));
+
+        mockMvc.perform(get("/api/nav/nearby")
+                        .param("lat", "60.0")
+                        .param("lon", "25.0")
+                        .param("radius", "300")
+                        .param("lod", "true")
+                        .param("limit", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].ident").value("EFHK"));
+
+        mockMvc.perform(get("/api/nav/nearby")
+                        .param("lat", "60.0")
+                        .param("lon", "25.0")
+                        .param("types", "small_airport,heliport"))
+                .andExpect(status().isOk());
+        verify(navDataService).findNearby(60.0, 25.0, 200.0, Set.of("small_airport", "heliport"), 0);
+    }
+
+    @Test
+    void testGetTile() throws Exception {
+        byte[] body = "[{\"ident\":\"EFHK\"}]".getBytes(StandardCharsets.UTF_8);
+        when(navTileService.getTile(7, 72, 36)).thenReturn(new NavTileService.Tile(body, "\"abc\""));
+        when(navTileService.getMaxAgeSeconds()).thenReturn(3600L);
+
+        mockMvc.perform(get("/api/nav/tiles/7/72/36"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"abc\""))
+                .andExpect(header().string("Cache-Control", "max-age=3600, public"))
+                .andExpect(jsonPath("$[0].ident").value("EFHK"));
+
+        mockMvc.perform(get("/api/nav/tiles/7/72/36").header("If-None-Match", "\"old\", W/\"abc\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"abc\""));
+
+        mockMvc.perform(get("/api/nav/tiles/7/72/36").header("If-None-Match", "\"old\""))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testGetTile_Invalid() throws Exception {
+        mockMvc.perform(get("/api/nav/tiles/3/8/0"))
+                .andExpect(status().isBadRequest());
+    }
 }
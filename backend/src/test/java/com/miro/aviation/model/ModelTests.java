@@ -73,5 +73,76 @@ class ModelTests {
         PlaybackProgress progress = new PlaybackProgress(1, 10, 10.0, 0, 100);
         fs.setProgress(progress);
         assertEquals(progress, fs.getProgress());
+
+        // Existing components are kept, missing ones created
+        FlightSnapshot partial = new FlightSnapshot();
+        partial.setAttitude(att);
+        assertSame(partial, partial.initComponents());
+        assertSame(att, partial.getAttitude());
+        assertNotNull(partial.getAltitude());
+        assertNotNull(partial.getAirSpeed());
+        assertNotNull(partial.getPosition());
+        assertNull(partial.getProgress());
+    }
+
+    @Test
+    void testAttitude() {
+        Attitude att = new Attitude();
+        att.setPitch(1.5);
+        att.setRoll(-2.5);
+        att.setYaw(270.0);
+        assertEquals(1.5, att.getPitch());
+        assertEquals(-2.5, att.getRoll());
+        assertEquals(270.0, att.getYaw());
+    }
+
+    @Test
+    void testFlightRecording() {
+        FlightRecording.Builder builder = FlightRecording.builder("/flights/test.csv");
+        // Enough samples to force the columns to grow
+        for (int i = 0; i < 100; i++) {
+            builder.add(1000L * i, 60.321041, -24.967543, 100 * i, 250, 137);
+        }
+        FlightRecording recording = builder.build();
+
+        assertEquals("/flights/test.csv", recording.getSource());
+        assertEquals(100, recording.size());
+        assertEquals(0L, recording.getStartTime());
+        assertEquals(99_000L, recording.getEndTime());
+        // Coordinates round-trip exactly at the source's 6 decimals
+        assertEquals(60.321041, recording.getLatitude(42));
+        assertEquals(-24.967543, recording.getLongitude(42));
+        assertEquals(4200.0, recording.getAltitude(42));
+
+        FlightSnapshot snapshot = recording.toSnapshot(42);
+        assertEquals(42_000L, snapshot.getTimestamp());
+        assertEquals(137.0, snapshot.getAttitude().getYaw());
+        assertEquals(250.0, snapshot.getAirSpeed().getSpeed());
+        assertEquals(FlightRecording.DEFAULT_KOLLSMAN, snapshot.getAltitude().getKollsmanPressure());
+        assertNull(snapshot.getProgress());
+
+        FlightSnapshot reused = new FlightSnapshot();
+        assertSame(reused, recording.copyTo(42, reused));
+        assertEquals(42_000L, reused.getTimestamp());
+        assertEquals(137.0, reused.getAttitude().getYaw());
+        assertEquals(4200.0, reused.getAltitude().getAltitude());
+        assertEquals(-24.967543, reused.getPosition().getLongitude());
+        recording.copyTo(7, reused);
+        assertEquals(7_000L, reused.getTimestamp());
+        assertEquals(700.0, reused.getAltitude().getAltitude());
+
+        // Last sample at or before a timestamp, clamped to the recording
+        assertEquals(0, recording.indexAt(-5));
+        assertEquals(41, recording.indexAt(41_999L));
+        assertEquals(42, recording.indexAt(42_000L));
+        assertEquals(99, recording.indexAt(1_000_000L));
+
+        assertEquals(99_000L, recording.getDuration());
+        assertEquals(41, recording.nearestIndex(41_499L));
+        assertEquals(42, recording.nearestIndex(41_501L));
+        assertEquals(0, recording.nearestIndex(Long.MIN_VALUE));
+        assertEquals(99, recording.nearestIndex(Long.MAX_VALUE));
+
+        assertTrue(FlightRecording.empty().isEmpty());
     }
 }
@@ -0,0 +1,111 @@
+package com.miro.aviation.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.miro.aviation.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeltaFrameEncoderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static FlightSnapshot snapshot(long timestamp, double yaw, double altitude, PlaybackProgress progress) {
+        return new FlightSnapshot(timestamp, new Attitude(1.5, -2.0, yaw), new Altitude(altitude, 29.92),
+                new AirSpeed(250), progress, new Position(60.3, 24.9), 0);
+    }
+
+    private JsonNode read(byte[] frame) throws Exception {
+        return objectMapper.readTree(frame);
+    }
+
+    /** Applies a frame the way a client would: keyframes replace, deltas deep-merge */
+    private static void merge(ObjectNode state, JsonNode frame) {
+        Iterator<Map.Entry<String, JsonNode>> fields = frame.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (field.getValue().isObject() && state.get(field.getKey()) instanceof ObjectNode nested) {
+                merge(nested, field.getValue());
+            } else {
+                state.set(field.getKey(), field.getValue());
+            }
+        }
+    }
+
+    @Test
+    void shouldStartWithKeyframeAndThenSendOnlyChanges() throws Exception {
+        DeltaFrameEncoder encoder = new DeltaFrameEncoder();
+
+        JsonNode key = read(encoder.encode(snapshot(1000, 90, 5000, null)));
+        assertEquals(0, key.get("seq").asLong());
+        assertTrue(key.get("key").asBoolean());
+        assertEquals(29.92, key.get("altitude").get("kollsmanPressure").asDouble());
+
+        JsonNode delta = read(encoder.encode(snapshot(1050, 91, 5000, null)));
+        assertEquals(1, delta.get("seq").asLong());
+        assertNull(delta.get("key"));
+        assertEquals(1050, delta.get("timestamp").asLong());
+        assertEquals(91.0, delta.get("attitude").get("yaw").asDouble());
+        assertEquals(1, delta.get("attitude").size(), "Only yaw changed");
+        assertNull(delta.get("altitude"));
+        assertNull(delta.get("position"));
+    }
+
+    @Test
+    void shouldSkipFramesWhenNothingChanged() {
+        DeltaFrameEncoder encoder = new DeltaFrameEncoder();
+        encoder.encode(snapshot(1000, 90, 5000, null));
+
+        assertNull(encoder.encode(snapshot(1000, 90, 5000, null)));
+        assertEquals(1, encoder.getSequence(), "Skipped frames must not consume sequence numbers");
+    }
+
+    @Test
+    void shouldSendKeyframeOnRequestAndPeriodically() throws Exception {
+        DeltaFrameEncoder encoder = new DeltaFrameEncoder(3);
+        encoder.encode(snapshot(1000, 90, 5000, null));
+
+        encoder.requestKeyframe();
+        assertTrue(read(encoder.encode(snapshot(1000, 90, 5000, null))).has("key"));
+
+        assertFalse(read(encoder.encode(snapshot(1050, 90, 5000, null))).has("key"));
+        assertFalse(read(encoder.encode(snapshot(1100, 90, 5000, null))).has("key"));
+        assertTrue(read(encoder.encode(snapshot(1150, 90, 5000, null))).has("key"));
+    }
+
+    @Test
+    void shouldSendKeyframeWhenStructureChanges() throws Exception {
+        DeltaFrameEncoder encoder = new DeltaFrameEncoder();
+        encoder.encode(snapshot(1000, 90, 5000, null));
+
+        JsonNode frame = read(encoder.encode(snapshot(1000, 90, 5000, new PlaybackProgress(0, 10, 0.0, 1000, 9000))));
+        assertTrue(frame.has("key"));
+        assertEquals(10, frame.get("progress").get("totalSamples").asInt());
+    }
+
+    @Test
+    void mergedDeltasShouldReproduceFullSnapshots() throws Exception {
+        DeltaFrameEncoder encoder = new DeltaFrameEncoder(1000);
+        ObjectNode state = objectMapper.createObjectNode();
+
+        for (int i = 0; i < 50; i++) {
+            PlaybackProgress progress = new PlaybackProgress(i / 5, 10, (i / 5) / 9.0, 1000, 9000);
+            FlightSnapshot snapshot = snapshot(1000 + (i / 2) * 50L, 90 + (i % 7), 5000 + (i / 3), progress);
+            byte[] frame = encoder.encode(snapshot);
+            if (frame != null) {
+                merge(state, read(frame));
+            }
+
+            JsonNode expected = objectMapper.readTree(objectMapper.writeValueAsBytes(snapshot));
+            ObjectNode actual = state.deepCopy();
+            actual.remove("seq");
+            actual.remove("key");
+            assertEquals(expected, actual, "State after frame " + i);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.miro.aviation.service;
+
+import com.miro.aviation.model.Attitude;
+import com.miro.aviation.model.FlightSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class FlightBroadcastEngineTest {
+
+    private SimpMessagingTemplate messagingTemplate;
+    private OutboundFlowControl outboundFlowControl;
+    private SimpleMeterRegistry meterRegistry;
+    private FlightBroadcastEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        outboundFlowControl = mock(OutboundFlowControl.class);
+        meterRegistry = new SimpleMeterRegistry();
+        engine = new FlightBroadcastEngine(messagingTemplate, outboundFlowControl, meterRegistry, 4, 50, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.stop();
+    }
+
+    @Test
+    void shouldSpreadSessionsEvenlyAcrossShards() {
+        for (int i = 0; i < 8; i++) {
+            engine.register("session-" + i, mock(FlightDataProvider.class));
+        }
+
+        List<FlightBroadcastEngine.ShardStats> stats = engine.getShardStats();
+        assertEquals(4, stats.size());
+        stats.forEach(s -> assertEquals(2, s.sessions()));
+    }
+
+    @Test
+    void shouldKeepSessionPinnedWhenProviderIsReplaced() {
+        FlightDataProvider first = mock(FlightDataProvider.class);
+        FlightDataProvider second = mock(FlightDataProvider.class);
+
+        engine.register("session-1", first);
+        engine.register("session-1", second);
+
+        assertSame(second, engine.getProvider("session-1"));
+        assertEquals(1, engine.getShardStats().stream().mapToInt(FlightBroadcastEngine.ShardStats::sessions).sum());
+    }
+
+    @Test
+    void shouldTickAndSendEverySession() {
+        FlightDataProvider provider = mock(FlightDataProvider.class);
+        FlightSnapshot snapshot = new FlightSnapshot();
+        when(provider.getCurrentSnapshot(any())).thenReturn(snapshot);
+
+        engine.register("session-1", provider);
+        engine.tickAll();
+
+        verify(provider).tick();
+        verify(messagingTemplate).convertAndSendToUser(eq("session-1"), eq("/queue/flightData"), eq(snapshot), anyMap());
+        assertTrue(engine.getShardStats().stream().allMatch(s -> s.ticks() == 1));
+    }
+
+    @Test
+    void shouldRecordBroadcastMetrics() {
+        FlightDataProvider provider = mock(FlightDataProvider.class);
+        when(provider.getCurrentFrame(FrameEncoding.JSON)).thenReturn(new byte[] {'{', '}'});
+        RecordedFlightDataProvider recorded = mock(RecordedFlightDataProvider.class);
+        when(recorded.getCurrentFrame(FrameEncoding.BINARY)).thenReturn(new byte[64]);
+
+        engine.register("session-1", provider);
+        engine.register("session-2", recorded, FrameEncoding.BINARY);
+        engine.tickAll();
+        engine.tickAll();
+
+        assertEquals(2.0, meterRegistry.get("aviation.frames.sent").tag("encoding", "json").counter().count());
+        assertEquals(2.0, meterRegistry.get("aviation.frames.sent").tag("encoding", "binary").counter().count());
+        assertEquals(4, meterRegistry.get("aviation.broadcast.send").timer().count());
+        assertEquals(8, meterRegistry.get("aviation.broadcast.tick").timers().stream().mapToLong(t -> t.count()).sum());
+        assertEquals(1.0, meterRegistry.get("aviation.sessions.active").tag("provider", "recorded").gauge().value());
+        assertEquals(1.0, meterRegistry.get("aviation.sessions.active").tag("provider", "other").gauge().value());
+        assertEquals(0.0, meterRegistry.get("aviation.sessions.active").tag("provider", "simulated").gauge().value());
+    }
+
+    @Test
+    void shouldSendFramesAtRequestedRateWhileTickingEveryPeriod() {
+        FlightDataProvider provider = mock(FlightDataProvider.class);
+        when(provider.getCurrentFrame(FrameEncoding.JSON)).thenReturn(new byte[] {'{', '}'});
+
+        engine.register("session-1", provider);
+        engine.setFrameRate("session-1", 2); // every 10th tick at 50 ms
+        for (int i = 0; i < 40; i++) {
+            engine.tickAll();
+        }
+
+        verify(provider, times(40)).tick();
+        verify(messagingTemplate, times(4)).send(anyString(), any(Message.class));
+        assertEquals(2.0, engine.getFrameRate("session-1"), 1e-9);
+    }
+
+    @Test
+    void shouldKeepRequestedRateWhenProviderIsReplaced() {
+        engine.register("session-1", mock(FlightDataProvider.class));
+        engine.setFrameRate("session-1", 1);
+        engine.register("session-1", mock(FlightDataProvider.class), FrameEncoding.BINARY);
+
+        assertEquals(1.0, engine.getFrameRate("session-1"), 1e-9);
+
+        engine.setFrameRate("session-1", 0);
+        engine.tickAll();
+        assertEquals(20.0, engine.getFrameRate("session-1"), 1e-9);
+    }
+
+    @Test
+    void shouldBackOffSlowSessionAndRecoverOnceItKeepsUp() {
+        FlightDataProvider provider = mock(FlightDataProvider.class);
+        when(provider.getCurrentFrame(FrameEncoding.JSON)).thenReturn(new byte[] {'{', '}'});
+        engine.register("session-1", provider);
+
+        // The outbound channel conflated frames since the last send: halve the rate
+        when(outboundFlowControl.getLostFrames("session-1")).thenReturn(3L);
+        engine.tickAll();
+        assertEquals(10.0, engine.getFrameRate("session-1"), 1e-9);
+        when(outboundFlowControl.getLostFrames("session-1")).thenReturn(5L);
+        engine.tickAll();
+        engine.tickAll();
+        assertEquals(5.0, engine.getFrameRate("session-1"), 1e-9);
+
+        // No further losses: the rate steps back up to the requested one
+        for (int i = 0; i < 4 * BroadcastSession.RECOVERY_FRAMES * 4; i++) {
+            engine.tickAll();
+        }
+        assertEquals(20.0, engine.getFrameRate("session-1"), 1e-9);
+    }
+
+    @Test
+    void shouldSendPreSerializedFrameWithoutConversion() {
+        FlightDataProvider provider = mock(FlightDataProvider.class);
+        byte[] frame = "{\"timestamp\":1}".getBytes();
+        when(provider.getCurrentFrame(FrameEncoding.JSON)).thenReturn(frame);
+
+        engine.register("session-1", provider);
+        engine.tickAll();
+
+        ArgumentCaptor<Message<?>> message = ArgumentCaptor.forClass(Message.class);
+        verify(messagingTemplate).send(eq("/user/session-1/queue/flightData"), message.capture());
+        assertSame(frame, message.getValue().getPayload());
+        assertEquals("session-1", SimpMessageHeaderAccessor.getSessionId(message.getValue().getHeaders()));
+        assertEquals(MimeTypeUtils.APPLICATION_JSON, message.getValue().getHeaders().get(MessageHeaders.CONTENT_TYPE));
+        verify(messagingTemplate, never()).convertAndSendToUser(anyString(), anyString(), any(), anyMap());
+        verify(provider, never()).getCurrentSnapshot(any());
+    }
+
+    @Test
+    void shouldSendDeltaFramesToOptedInSessions() {
+        FlightDataProvider provider = mock(FlightDataProvider.class);
+        when(provider.getCurrentSnapshot(any())).thenAnswer(invocation ->
+                new FlightSnapshot(1000, new Attitude(0, 0, 90), null, null, null, null, 0));
+
+        engine.register("session-1", provider, FrameEncoding.DELTA);
+        engine.tickAll(); // keyframe
+        engine.tickAll(); // unchanged, nothing sent
+        engine.requestKeyframe("session-1");
+        engine.tickAll(); // resync keyframe
+
+        ArgumentCaptor<Message<?>> message = ArgumentCaptor.forClass(Message.class);
+        verify(messagingTemplate, times(2)).send(eq("/user/session-1/queue/flightData"), message.capture());
+        String resync = new String((byte[]) message.getAllValues().get(1).getPayload());
+        assertTrue(resync.startsWith("{\"seq\":1,\"key\":true,"), resync);
+        verify(provider, never()).getCurrentFrame(any());
+    }
+
+    @Test
+    void shouldEncodeBinaryFramesAsOctetStream() {
+        FlightDataProvider provider = mock(FlightDataProvider.class);
+        when(provider.getCurrentSnapshot(any())).thenReturn(new FlightSnapshot(1000, null, null, null, null, null, 0));
+
+        engine.register("session-1", provider, FrameEncoding.BINARY);
+        engine.tickAll();
+
+        ArgumentCaptor<Message<?>> message = ArgumentCaptor.forClass(Message.class);
+        verify(messagingTemplate).send(eq("/user/session-1/queue/flightData"), message.capture());
+        assertEquals(64, ((byte[]) message.getValue().getPayload()).length);
+        assertEquals(MimeTypeUtils.APPLICATION_OCTET_STREAM, message.getValue().getHeaders().get(MessageHeaders.CONTENT_TYPE));
+        verify(messagingTemplate, never()).convertAndSendToUser(anyString(), anyString(), any(), anyMap());
+    }
+
+    @Test
+    void shouldSendGroupFrameOnceToItsTopic() {
+        FlightDataProvider provider = mock(RecordedFlightDataProvider.class);
+        byte[] frame = "{\"timestamp\":1}".getBytes();
+        when(provider.getCurrentFrame(FrameEncoding.JSON)).thenReturn(frame);
+
+        engine.registerTopic("/topic/group/abc", provider);
+        engine.tickAll();
+
+        ArgumentCaptor<Message<?>> message = ArgumentCaptor.forClass(Message.class);
+        verify(messagingTemplate).send(eq("/topic/group/abc"), message.capture());
+        assertSame(frame, message.getValue().getPayload());
+        assertNull(SimpMessageHeaderAccessor.getSessionId(message.getValue().getHeaders()));
+        assertEquals(1.0, meterRegistry.get("aviation.sessions.active").tag("provider", "group").gauge().value());
+        assertEquals(0.0, meterRegistry.get("aviation.sessions.active").tag("provider", "recorded").gauge().value());
+
+        engine.unregister("/topic/group/abc");
+        verify(provider).close();
+    }
+
+    @Test
+    void shouldNotSendWhenProviderHasNoSnapshot() {
+        engine.register("session-1", mock(FlightDataProvider.class));
+        engine.tickAll();
+
+        verifyNoInteractions(messagingTemplate);
+    }
+
+    @Test
+    void shouldRebalanceAfterShardsBecomeUneven() {
+        for (int i = 0; i < 8; i++) {
+            engine.register("session-" + i, mock(FlightDataProvider.class));
+        }
+        // Disconnect everything pinned to the first two shards
+        for (int i = 0; i < 8; i++) {
+            if (i % 4 < 2) engine.unregister("session-" + i);
+        }
+
+        engine.rebalance();
+
+        List<FlightBroadcastEngine.ShardStats> stats = engine.getShardStats();
+        int max = stats.stream().mapToInt(FlightBroadcastEngine.ShardStats::sessions).max().orElseThrow();
+        int min = stats.stream().mapToInt(FlightBroadcastEngine.ShardStats::sessions).min().orElseThrow();
+        assertTrue(max - min <= 1, "Shards should be within the rebalance threshold: " + stats);
+        for (int i = 0; i < 8; i++) {
+            if (i % 4 >= 2) assertNotNull(engine.getProvider("session-" + i), "Session should survive migration");
+        }
+    }
+
+    @Test
+    void shouldStepSimulatedSessionsInTheirShardsBatch() {
+        SimulatedFlightDataProvider provider = new SimulatedFlightDataProvider(
+                new AttitudeSimulatorService(), new AltitudeSimulatorService(), new AirspeedSimulatorService());
+        engine.register("session-1", provider);
+
+        // A single step can round to no change, so look for any change over a few
+        boolean changed = false;
+        for (int i = 0; i < 5; i++) {
+            double altitude = provider.getAltitude().getAltitude();
+            engine.tickAll();
+            changed |= altitude != provider.getAltitude().getAltitude();
+        }
+        assertTrue(changed);
+        double stepped = provider.getAltitude().getAltitude();
+
+        provider.setPaused(true);
+        engine.tickAll();
+        assertEquals(stepped, provider.getAltitude().getAltitude());
+    }
+
+    @Test
+    void shouldIsolateFailingSessions() {
+        FlightDataProvider failing = mock(FlightDataProvider.class);
+        FlightDataProvider healthy = mock(FlightDataProvider.class);
+        doThrow(new IllegalStateException("boom")).when(failing).tick();
+
+        engine.register("a", failing);
+        engine.register("b", healthy);
+
+        assertDoesNotThrow(engine::tickAll);
+        verify(healthy).tick();
+    }
+
+    @Test
+    void shouldTickShardsOnTheirOwnThreadsWhenStarted() throws InterruptedException {
+        CountDownLatch ticked = new CountDownLatch(3);
+        FlightDataProvider provider = mock(FlightDataProvider.class);
+        doAnswer(invocation -> {
+            assertTrue(Thread.currentThread().getName().startsWith("broadcast-shard-"));
+            ticked.countDown();
+            return null;
+        }).when(provider).tick();
+
+        engine.register("session-1", provider);
+        engine.start();
+
+        assertTrue(engine.isRunning());
+        assertTrue(ticked.await(2, TimeUnit.SECONDS), "Shard thread should tick the provider");
+    }
+}
@@ -0,0 +1,52 @@
+package com.miro.aviation.service;
+
+import com.miro.aviation.model.FlightRecording;
+import com.miro.aviation.model.FlightSnapshot;
+import com.miro.aviation.utils.FlightFrameWriter;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightFrameCacheTest {
+
+    @Test
+    void shouldShareFramesBetweenSessions() {
+        FlightRecording recording = recording(100);
+        FlightFrameCache cache = new FlightFrameCache(recording);
+
+        byte[] json = cache.frame(42, FrameEncoding.JSON);
+        assertSame(json, cache.frame(42, FrameEncoding.JSON));
+        assertNotSame(json, cache.frame(42, FrameEncoding.BINARY));
+        assertNull(cache.frame(42, FrameEncoding.DELTA));
+
+        FlightSnapshot snapshot = recording.toSnapshot(42);
+        snapshot.setProgress(recording.getProgress(42));
+        assertArrayEquals(FlightFrameWriter.toJson(snapshot), json);
+    }
+
+    @Test
+    void shouldHoldAtMostItsSlotsWhilePlayingThroughLongRecording() {
+        FlightFrameCache cache = new FlightFrameCache(recording(10_000), 64);
+
+        for (int i = 0; i < 10_000; i++) {
+            cache.frame(i, FrameEncoding.JSON);
+            cache.frame(i, FrameEncoding.BINARY);
+        }
+        assertEquals(2 * 64, cache.size());
+
+        // The latest window is still shared; older samples are serialized again, with the same bytes
+        byte[] recent = cache.frame(9_990, FrameEncoding.JSON);
+        assertSame(recent, cache.frame(9_990, FrameEncoding.JSON));
+        byte[] old = cache.frame(10, FrameEncoding.JSON);
+        assertArrayEquals(old, new FlightFrameCache(recording(10_000)).frame(10, FrameEncoding.JSON));
+        assertEquals(2 * 64, cache.size());
+    }
+
+    private static FlightRecording recording(int samples) {
+        FlightRecording.Builder builder = FlightRecording.builder("/flights/test.csv");
+        for (int i = 0; i < samples; i++) {
+            builder.add(1000L * i, 60.321041, -24.967543, 100 * i, 250, 137);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,109 @@
+package com.miro.aviation.service;
+
+import com.miro.aviation.model.FlightRecording;
+import com.miro.aviation.utils.FlightRecordingFile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightRecordingRepositoryTest {
+
+    private static final String TEST_CSV = "/flights/test_flight.csv";
+
+    private FlightRecordingRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new FlightRecordingRepository();
+    }
+
+    @Test
+    void shouldShareOneInstanceBetweenSessions() {
+        FlightRecording first = repository.acquire(TEST_CSV);
+        FlightRecording second = repository.acquire(TEST_CSV);
+
+        assertSame(first, second, "Both sessions should see the same parsed recording");
+        assertEquals(3, first.size());
+        assertEquals(2, repository.getReferenceCount(TEST_CSV));
+    }
+
+    @Test
+    void shouldTimeOnlyActualLoads() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        FlightRecordingRepository metered = new FlightRecordingRepository("", meterRegistry);
+
+        metered.acquire(TEST_CSV);
+        metered.acquire(TEST_CSV);
+
+        assertEquals(1, meterRegistry.get("aviation.data.load").tag("dataset", "recording").timer().count());
+    }
+
+    @Test
+    void shouldEvictWhenLastSessionReleases() {
+        FlightRecording first = repository.acquire(TEST_CSV);
+        FlightRecording second = repository.acquire(TEST_CSV);
+
+        repository.release(first);
+        assertEquals(1, repository.getReferenceCount(TEST_CSV));
+
+        repository.release(second);
+        assertEquals(0, repository.getReferenceCount(TEST_CSV));
+
+        // A new viewer reloads from scratch
+        assertNotSame(first, repository.acquire(TEST_CSV));
+    }
+
+    @Test
+    void shouldNotLeakReferencesForMissingRecordings() {
+        assertThrows(IllegalArgumentException.class, () -> repository.acquire("/flights/missing.csv"));
+        assertEquals(0, repository.getReferenceCount("/flights/missing.csv"));
+    }
+
+    @Test
+    void shouldIgnoreReleaseOfEmptyRecording() {
+        assertDoesNotThrow(() -> repository.release(FlightRecording.empty()));
+        assertDoesNotThrow(() -> repository.release(null));
+    }
+
+    @Test
+    void shouldEvictHeaderOnlyRecordingWhenReleased(@TempDir Path dir) throws IOException {
+        Files.writeString(dir.resolve("empty.csv"), "Timestamp,Altitude,Speed,Direction,Position\n");
+        FlightRecordingRepository external = new FlightRecordingRepository(dir.toString());
+
+        FlightRecording recording = external.acquire("/flights/empty.csv");
+        assertTrue(recording.isEmpty());
+        assertEquals(1, external.getReferenceCount("/flights/empty.csv"));
+
+        external.release(recording);
+        assertEquals(0, external.getReferenceCount("/flights/empty.csv"));
+    }
+
+    @Test
+    void shouldPreferConvertedBinaryFromRecordingsDir(@TempDir Path dir) throws IOException {
+        FlightRecording converted = FlightRecording.builder("x")
+                .add(5000, 61.0, 25.0, 1234, 222, 45)
+                .build();
+        FlightRecordingFile.write(converted, dir.resolve("test_flight.avfr"));
+        FlightRecordingRepository external = new FlightRecordingRepository(dir.toString());
+
+        FlightRecording recording = external.acquire(TEST_CSV);
+
+        assertEquals(1, recording.size(), "The mapped binary should shadow the classpath CSV");
+        assertEquals(1234.0, recording.getAltitude(0));
+        assertEquals(TEST_CSV, recording.getSource());
+    }
+
+    @Test
+    void shouldFallBackToClasspathWhenNotInRecordingsDir(@TempDir Path dir) {
+        FlightRecordingRepository external = new FlightRecordingRepository(dir.toString());
+
+        assertEquals(3, external.acquire(TEST_CSV).size());
+    }
+}
@@ -1,12 +1,19 @@
 package com.miro.aviation.service;
 
 import com.miro.aviation.model.NavPoint;
+import com.miro.aviation.utils.NavDataSnapshotFile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.springframework.test.util.ReflectionTestUtils;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -23,7 +30,7 @@ class NavDataServiceTest {
                 new NavPoint("EFNU", "small_airport", 60.3339, 24.2964),
                 new NavPoint("KJFK", "large_airport", 40.6413, -73.7781)
         );
-        ReflectionTestUtils.setField(navDataService, "airports", airports);
+        navDataService.reload(airports);
     }
 
     @Test
@@ -51,6 +58,20 @@ class NavDataServiceTest {
         assertTrue(nearby.isEmpty());
     }
 
+    @Test
+    void testFindNearby_RecordsMetrics() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        NavDataService service = new NavDataService(meterRegistry);
+        service.reload(List.of(new NavPoint("EFHK", "large_airport", 60.3183, 24.9633)));
+
+        service.findNearby(60.3183, 24.9633, 1.0);
+        service.findNearby(0, 0, 1.0);
+
+        assertEquals(2, meterRegistry.get("aviation.nav.nearby").timer().count());
+        assertEquals(2, meterRegistry.get("aviation.nav.nearby.results").summary().count());
+        assertEquals(1.0, meterRegistry.get("aviation.nav.nearby.results").summary().totalAmount());
+    }
+
     @Test
     void testInit_FileNotFound() {
         NavDataService service = new NavDataService();
@@ -59,4 +80,97 @@ class NavDataServiceTest {
         // but we can test that it doesn't crash the application if file is missing.
         assertDoesNotThrow(service::init);
     }
+
+    @Test
+    void testLoad_UsesSnapshotUntilCsvChanges(@TempDir Path tempDir) throws IOException {
+        Path snapshot = tempDir.resolve("airports.avnd");
+        NavDataService service = new NavDataService(new SimpleMeterRegistry(), snapshot.toString(), 0);
+        byte[] csv = ("ident,type,latitude_deg,longitude_deg\n" +
+                "EFHK,large_airport,60.3183,24.9633\n" +
+                "TEST,heliport,10.0,20.0\n").getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(1, service.load(csv).size());
+        assertTrue(Files.exists(snapshot));
+
+        // A snapshot matching the CSV is used as is, even if its contents differ from a fresh parse
+        NavDataSnapshotFile.write(List.of(new NavPoint("SNAP", "small_airport", 1, 2)),
+                NavDataSnapshotFile.checksum(csv), snapshot);
+        assertEquals("SNAP", service.load(csv).get(0).getIdent());
+
+        // A changed CSV is parsed again and replaces the snapshot
+        byte[] changed = ("ident,type,latitude_deg,longitude_deg\n" +
+                "EFNU,small_airport,60.3339,24.2964\n").getBytes(StandardCharsets.UTF_8);
+        assertEquals("EFNU", service.load(changed).get(0).getIdent());
+        assertEquals("EFNU", NavDataSnapshotFile.read(snapshot, NavDataSnapshotFile.checksum(changed)).get(0).getIdent());
+    }
+
+    @Test
+    void testLoad_IgnoresCorruptSnapshot(@TempDir Path tempDir) throws IOException {
+        Path snapshot = tempDir.resolve("airports.avnd");
+        Files.writeString(snapshot, "not a snapshot");
+        NavDataService service = new NavDataService(new SimpleMeterRegistry(), snapshot.toString(), 0);
+
+        List<NavPoint> loaded = service.load("ident,type,latitude_deg,longitude_deg\nEFHK,large_airport,60.3183,24.9633\n"
+                .getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("EFHK", loaded.get(0).getIdent());
+    }
+
+    @Test
+    void testFindNearby_CacheIsInvalidatedOnReload() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        NavDataService service = new NavDataService(meterRegistry, "", 16);
+        service.reload(List.of(new NavPoint("EFHK", "large_airport", 60.3183, 24.9633)));
+
+        assertEquals(1, service.findNearby(60.3183, 24.9633, 10).size());
+        assertEquals(1, service.findNearby(60.3184, 24.9634, 10).size());
+        assertEquals(1.0, meterRegistry.get("aviation.nav.nearby.cache").tag("result", "hit").counter().count());
+
+        service.reload(List.of(new NavPoint("EFNU", "small_airport", 60.3339, 24.2964)));
+
+        assertTrue(service.findNearby(60.3184, 24.9634, 10).isEmpty());
+        assertEquals(2.0, meterRegistry.get("aviation.nav.nearby.cache").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void testFindNearestAndInBox() {
+        assertEquals(List.of("EFNU", "EFHK"),
+                navDataService.findNearest(60.3, 24.0, 2).stream().map(NavPoint::getIdent).toList());
+        assertEquals(List.of("KJFK"),
+                navDataService.findInBox(40, -74, 41, -73).stream().map(NavPoint::getIdent).toList());
+    }
+
+    @Test
+    void testFindNearby_FilteredRankedAndCapped() {
+        List<NavPoint> points = new java.util.ArrayList<>();
+        points.add(new NavPoint("SMALL_NEAR", "small_airport", 60.0, 25.0));
+        points.add(new NavPoint("LARGE_FAR", "large_airport", 61.0, 25.0));
+        points.add(new NavPoint("HELI", "heliport", 60.0, 25.01));
+        points.add(new NavPoint("MEDIUM", "medium_airport", 60.5, 25.0));
+        points.add(new NavPoint("LARGE_NEAR", "large_airport", 60.2, 25.0));
+        points.add(new NavPoint("SMALL_FAR", "small_airport", 60.1, 25.0));
+        points.add(new NavPoint("OTHER", "fictional", 60.0, 25.0));
+        navDataService.reload(points);
+
+        // Unranked types follow, by type name
+        assertEquals(List.of("LARGE_NEAR", "LARGE_FAR", "MEDIUM", "SMALL_NEAR", "SMALL_FAR", "OTHER", "HELI"),
+                idents(navDataService.findNearby(60.0, 25.0, 100, null, 0)));
+        assertEquals(List.of("LARGE_NEAR", "LARGE_FAR", "MEDIUM"),
+                idents(navDataService.findNearby(60.0, 25.0, 100, null, 3)));
+        assertEquals(List.of("SMALL_NEAR", "SMALL_FAR"),
+                idents(navDataService.findNearby(60.0, 25.0, 100, Set.of("small_airport", "heliport"), 2)));
+        assertEquals(List.of("LARGE_NEAR"),
+                idents(navDataService.findNearby(60.0, 25.0, 20, Set.of("large_airport"), 0)));
+    }
+
+    @Test
+    void testLodTypes() {
+        assertNull(NavDataService.lodTypes(20), "Every type, including unranked ones");
+        assertEquals(Set.of("large_airport", "medium_airport"), NavDataService.lodTypes(200));
+        assertEquals(Set.of("large_airport"), NavDataService.lodTypes(1000));
+    }
+
+    private static List<String> idents(List<NavPoint> points) {
+        return points.stream().map(NavPoint::getIdent).toList();
+    }
 }
@@ -0,0 +1,206 @@
+package com.miro.aviation.service;
+
+import com.miro.aviation.model.NavPoint;
+import com.miro.aviation.utils.GeoUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NavGridIndexTest {
+
+    /** Reference implementation: the linear scan the index replaces */
+    static List<NavPoint> linearScan(List<NavPoint> points, double lat, double lon, double radiusNM) {
+        List<NavPoint> result = new ArrayList<>();
+        for (NavPoint p : points) {
+            if (GeoUtils.distanceNM(lat, lon, p.getLatitude(), p.getLongitude()) <= radiusNM) {
+                result.add(p);
+            }
+        }
+        return result;
+    }
+
+    static List<NavPoint> randomPoints(Random random, int count) {
+        List<NavPoint> points = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            double lat = Math.toDegrees(Math.asin(2 * random.nextDouble() - 1)); // uniform on the sphere
+            double lon = random.nextDouble() * 360 - 180;
+            points.add(new NavPoint("P" + i, "small_airport", lat, lon));
+        }
+        return points;
+    }
+
+    @Test
+    void shouldMatchLinearScanForRandomQueries() {
+        Random random = new Random(42);
+        List<NavPoint> points = randomPoints(random, 5000);
+        NavGridIndex index = new NavGridIndex(points);
+
+        for (int q = 0; q < 500; q++) {
+            double lat = random.nextDouble() * 180 - 90;
+            double lon = random.nextDouble() * 360 - 180;
+            double radius = random.nextDouble() * 600;
+            assertEquals(linearScan(points, lat, lon, radius), index.findWithin(lat, lon, radius),
+                    "Mismatch at " + lat + "," + lon + " r=" + radius);
+        }
+    }
+
+    @Test
+    void shouldFindPointsAcrossTheAntimeridian() {
+        List<NavPoint> points = List.of(
+                new NavPoint("WEST", "small_airport", -16.5, 179.9),
+                new NavPoint("EAST", "small_airport", -16.5, -179.9),
+                new NavPoint("FAR", "small_airport", -16.5, 170.0));
+        NavGridIndex index = new NavGridIndex(points);
+
+        List<NavPoint> nearby = index.findWithin(-16.5, -179.95, 20);
+
+        assertEquals(List.of(points.get(0), points.get(1)), nearby);
+    }
+
+    @Test
+    void shouldSearchAllLongitudesWhenCircleContainsPole() {
+        List<NavPoint> points = List.of(
+                new NavPoint("A", "small_airport", 89.5, 0),
+                new NavPoint("B", "small_airport", 89.5, 180),
+                new NavPoint("C", "small_airport", 89.5, -90),
+                new NavPoint("SOUTH", "small_airport", -89.5, 0));
+        NavGridIndex index = new NavGridIndex(points);
+
+        assertEquals(points.subList(0, 3), index.findWithin(89.9, 45, 60));
+        assertEquals(List.of(points.get(3)), index.findWithin(-90, 0, 60));
+    }
+
+    @Test
+    void shouldMatchLinearScanNearPolesAndDateLine() {
+        Random random = new Random(7);
+        List<NavPoint> points = randomPoints(random, 3000);
+        NavGridIndex index = new NavGridIndex(points);
+
+        double[][] queries = {{88, 179}, {-88, -179}, {70, 180}, {-60, -180}, {90, 0}, {0, 180}};
+        for (double[] query : queries) {
+            for (double radius : new double[]{50, 300, 1500, 6000, 12000}) {
+                assertEquals(linearScan(points, query[0], query[1], radius),
+                        index.findWithin(query[0], query[1], radius));
+            }
+        }
+    }
+
+    @Test
+    void shouldHandleDegenerateQueries() {
+        List<NavPoint> points = List.of(new NavPoint("EFHK", "large_airport", 60.3183, 24.9633));
+        NavGridIndex index = new NavGridIndex(points);
+
+        assertTrue(index.findWithin(60.3183, 24.9633, -1).isEmpty());
+        assertTrue(index.findWithin(Double.NaN, 24.9633, 10).isEmpty());
+        assertEquals(points, index.findWithin(0, 0, Double.POSITIVE_INFINITY));
+        assertTrue(new NavGridIndex(List.of()).findWithin(0, 0, 100).isEmpty());
+    }
+
+    /** Reference: every point sorted by distance, ties in input order */
+    static List<NavPoint> linearNearest(List<NavPoint> points, double lat, double lon, int k) {
+        List<Integer> indices = new ArrayList<>();
+        for (int i = 0; i < points.size(); i++) indices.add(i);
+        indices.sort(Comparator.<Integer>comparingDouble(i -> GeoUtils.distanceNM(lat, lon,
+                points.get(i).getLatitude(), points.get(i).getLongitude())).thenComparingInt(i -> i));
+        return indices.stream().limit(k).map(points::get).toList();
+    }
+
+    @Test
+    void nearestShouldMatchLinearScan() {
+        Random random = new Random(11);
+        List<NavPoint> points = randomPoints(random, 5000);
+        // Duplicates make ties, which must come back in input order
+        points.add(new NavPoint("DUP1", "small_airport", 10.5, 20.5));
+        points.add(new NavPoint("DUP2", "small_airport", 10.5, 20.5));
+        NavGridIndex index = new NavGridIndex(points);
+
+        for (int q = 0; q < 300; q++) {
+            double lat = q % 10 == 0 ? (q % 20 == 0 ? 89.9 : -89.9) : random.nextDouble() * 180 - 90;
+            double lon = q % 7 == 0 ? 179.99 : random.nextDouble() * 360 - 180;
+            int k = 1 + random.nextInt(q % 50 == 0 ? 6000 : 30);
+            assertEquals(linearNearest(points, lat, lon, k), index.findNearest(lat, lon, k),
+                    "Mismatch at " + lat + "," + lon + " k=" + k);
+        }
+        assertEquals(List.of("DUP1", "DUP2"),
+                index.findNearest(10.5, 20.5, 2).stream().map(NavPoint::getIdent).toList());
+    }
+
+    @Test
+    void nearestShouldHandleSparseDataAndEdgeCases() {
+        List<NavPoint> points = List.of(
+                new NavPoint("NORTH", "small_airport", 89.5, 0),
+                new NavPoint("SOUTH", "small_airport", -89.5, 100));
+        NavGridIndex index = new NavGridIndex(points);
+
+        assertEquals("NORTH", index.findNearest(89.9, 179.5, 1).get(0).getIdent(), "Found across the pole");
+        assertEquals(List.of("SOUTH", "NORTH"), index.findNearest(-10, 100, 5).stream().map(NavPoint::getIdent).toList());
+        assertTrue(index.findNearest(0, 0, 0).isEmpty());
+        assertEquals(2, index.findNearest(Double.NaN, 0, 2).size());
+    }
+
+    @Test
+    void distanceToCellShouldBoundEveryPointOfTheCell() {
+        Random random = new Random(3);
+        for (int q = 0; q < 2000; q++) {
+            double lat = random.nextDouble() * 180 - 90;
+            double lon = random.nextDouble() * 360 - 180;
+            int row = random.nextInt(180);
+            int col = random.nextInt(360);
+            double bound = NavGridIndex.distanceToCell(lat, lon, row, col);
+            for (int p = 0; p < 20; p++) {
+                double pointLat = row - 90 + random.nextDouble();
+                double pointLon = col - 180 + random.nextDouble();
+                assertTrue(bound <= GeoUtils.distanceNM(lat, lon, pointLat, pointLon) + 1e-9,
+                        "Bound " + bound + " from " + lat + "," + lon + " to cell " + row + "/" + col);
+            }
+        }
+    }
+
+    @Test
+    void boxShouldMatchLinearFilter() {
+        Random random = new Random(5);
+        List<NavPoint> points = randomPoints(random, 5000);
+        NavGridIndex index = new NavGridIndex(points);
+
+        for (int q = 0; q < 300; q++) {
+            double south = random.nextDouble() * 180 - 90;
+            double north = Math.min(90, south + random.nextDouble() * 40);
+            double west = q % 5 == 0 ? 170 + random.nextDouble() * 10 : random.nextDouble() * 360 - 180;
+            double east = q % 5 == 0 ? -180 + random.nextDouble() * 10 : Math.min(180, west + random.nextDouble() * 60);
+            boolean wraps = west > east;
+            List<NavPoint> expected = points.stream()
+                    .filter(p -> p.getLatitude() >= south && p.getLatitude() <= north)
+                    .filter(p -> wraps ? p.getLongitude() >= west || p.getLongitude() <= east
+                            : p.getLongitude() >= west && p.getLongitude() <= east)
+                    .toList();
+            assertEquals(expected, index.findInBox(south, west, north, east),
+                    "Mismatch for " + south + "," + west + " - " + north + "," + east);
+        }
+        assertEquals(points, index.findInBox(-90, -180, 90, 180));
+        assertTrue(index.findInBox(10, 0, 5, 10).isEmpty());
+    }
+
+    @Test
+    void nearestWithinRadiusShouldMatchFilteredLinearScan() {
+        Random random = new Random(13);
+        List<NavPoint> points = randomPoints(random, 5000);
+        NavGridIndex index = new NavGridIndex(points);
+
+        for (int q = 0; q < 200; q++) {
+            double lat = random.nextDouble() * 180 - 90;
+            double lon = random.nextDouble() * 360 - 180;
+            double radius = random.nextDouble() * 800;
+            int k = 1 + random.nextInt(q % 2 == 0 ? 10 : 10000);
+            List<NavPoint> expected = linearNearest(points, lat, lon, points.size()).stream()
+                    .filter(p -> GeoUtils.distanceNM(lat, lon, p.getLatitude(), p.getLongitude()) <= radius)
+                    .limit(k)
+                    .toList();
+            assertEquals(expected, index.findNearest(lat, lon, k, radius), "Mismatch at " + lat + "," + lon);
+        }
+    }
+}
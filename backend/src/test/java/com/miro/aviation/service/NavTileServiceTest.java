@@ -0,0 +1,105 @@
+package com.miro.aviation.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miro.aviation.model.NavPoint;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NavTileServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private SimpleMeterRegistry meterRegistry;
+    private NavDataService navDataService;
+    private NavTileService navTileService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        navDataService = new NavDataService();
+        navDataService.reload(Arrays.asList(
+                new NavPoint("EFHK", "large_airport", 60.3183, 24.9633),
+                new NavPoint("EFNU", "small_airport", 60.3339, 24.2964),
+                new NavPoint("KJFK", "large_airport", 40.6413, -73.7781),
+                new NavPoint("POLE", "large_airport", 89.5, 0),
+                new NavPoint("NULL", "large_airport", 0, 0)
+        ));
+        navTileService = new NavTileService(navDataService, objectMapper, meterRegistry, 16, 3600);
+    }
+
+    @Test
+    void testGetTile_ContainsPointsOfTile() throws IOException {
+        // Helsinki at zoom 7
+        assertEquals(List.of("EFHK", "EFNU"), idents(navTileService.getTile(7, 72, 36)));
+        assertEquals(List.of(), idents(navTileService.getTile(7, 72, 37)));
+    }
+
+    @Test
+    void testGetTile_PartitionsMap() throws IOException {
+        // Every large airport exactly once, including the pole beyond the Mercator range and
+        // Null Island on the corner of all four tiles
+        List<String> all = new ArrayList<>();
+        for (int x = 0; x < 2; x++) {
+            for (int y = 0; y < 2; y++) {
+                all.addAll(idents(navTileService.getTile(1, x, y)));
+            }
+        }
+        all.sort(null);
+        assertEquals(List.of("EFHK", "KJFK", "NULL", "POLE"), all);
+        assertEquals(List.of("NULL"), idents(navTileService.getTile(1, 1, 1)));
+        assertEquals(List.of("EFHK", "KJFK", "NULL", "POLE"), sorted(idents(navTileService.getTile(0, 0, 0))));
+    }
+
+    @Test
+    void testGetTile_LevelOfDetail() throws IOException {
+        assertEquals(List.of("EFHK"), idents(navTileService.getTile(4, 9, 4)));
+        assertEquals(List.of("EFHK", "EFNU"), idents(navTileService.getTile(7, 72, 36)));
+    }
+
+    @Test
+    void testGetTile_MemoizedUntilReload() {
+        NavTileService.Tile first = navTileService.getTile(7, 72, 36);
+        assertSame(first, navTileService.getTile(7, 72, 36));
+        assertEquals(1.0, meterRegistry.get("aviation.nav.tiles").tag("result", "hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("aviation.nav.tiles").tag("result", "miss").counter().count());
+
+        // Same data: a new tile, but the same ETag
+        navDataService.reload(navDataService.findInBox(-90, -180, 90, 180));
+        NavTileService.Tile rebuilt = navTileService.getTile(7, 72, 36);
+        assertNotSame(first, rebuilt);
+        assertEquals(first.etag(), rebuilt.etag());
+
+        navDataService.reload(List.of(new NavPoint("EFHK", "large_airport", 60.3183, 24.9633)));
+        NavTileService.Tile changed = navTileService.getTile(7, 72, 36);
+        assertNotEquals(first.etag(), changed.etag());
+        assertTrue(changed.etag().matches("\"[0-9a-f]{32}\""));
+    }
+
+    @Test
+    void testGetTile_Invalid() {
+        assertNull(navTileService.getTile(-1, 0, 0));
+        assertNull(navTileService.getTile(NavTileService.MAX_ZOOM + 1, 0, 0));
+        assertNull(navTileService.getTile(3, 8, 0));
+        assertNull(navTileService.getTile(3, 0, -1));
+    }
+
+    private List<String> idents(NavTileService.Tile tile) throws IOException {
+        List<String> idents = new ArrayList<>();
+        for (NavPoint point : objectMapper.readValue(tile.body(), NavPoint[].class)) {
+            idents.add(point.getIdent());
+        }
+        return idents;
+    }
+
+    private static List<String> sorted(List<String> list) {
+        list.sort(null);
+        return list;
+    }
+}
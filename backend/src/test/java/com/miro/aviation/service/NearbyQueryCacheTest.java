@@ -0,0 +1,120 @@
+package com.miro.aviation.service;
+
+import com.miro.aviation.model.NavPoint;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NearbyQueryCacheTest {
+
+    @Test
+    void cachedResultsShouldMatchExactQueries() {
+        Random random = new Random(7);
+        List<NavPoint> points = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            // Dense clusters around the antimeridian, a pole and Helsinki, plus a global scatter
+            double lat;
+            double lon;
+            switch (i % 4) {
+                case 0 -> { lat = random.nextDouble() * 10 - 5; lon = random.nextDouble() * 10 + 175; }
+                case 1 -> { lat = 85 + random.nextDouble() * 5; lon = random.nextDouble() * 360 - 180; }
+                case 2 -> { lat = 59 + random.nextDouble() * 3; lon = 23 + random.nextDouble() * 4; }
+                default -> { lat = random.nextDouble() * 180 - 90; lon = random.nextDouble() * 360 - 180; }
+            }
+            points.add(new NavPoint("P" + i, "small_airport", lat, lon > 180 ? lon - 360 : lon));
+        }
+        NavGridIndex index = new NavGridIndex(points);
+        NearbyQueryCache cache = new NearbyQueryCache(64, new SimpleMeterRegistry());
+        cache.invalidate(index);
+
+        for (int q = 0; q < 5000; q++) {
+            NavPoint anchor = points.get(random.nextInt(points.size()));
+            // Small moves around a point, so queries hit each other's cells and land on boundaries
+            double lat = Math.max(-89.99, Math.min(89.99, anchor.getLatitude() + random.nextGaussian() * 0.05));
+            double lon = anchor.getLongitude() + random.nextGaussian() * 0.05;
+            double radius = random.nextInt(4) == 0 ? random.nextInt(40) * 5.0 : random.nextDouble() * 300;
+
+            assertEquals(index.findWithin(lat, lon, radius), cache.findWithin(index, lat, lon, radius),
+                    "lat=" + lat + " lon=" + lon + " radius=" + radius);
+        }
+    }
+
+    @Test
+    void shouldCountHitsAndMisses() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        NavGridIndex index = new NavGridIndex(List.of(new NavPoint("EFHK", "large_airport", 60.3183, 24.9633)));
+        NearbyQueryCache cache = new NearbyQueryCache(16, meterRegistry);
+        cache.invalidate(index);
+
+        cache.findWithin(index, 60.31, 24.91, 20);
+        cache.findWithin(index, 60.39, 24.99, 18);  // same cell and radius step
+        cache.findWithin(index, 60.31, 24.91, 26);  // next radius step
+
+        assertEquals(1.0, meterRegistry.get("aviation.nav.nearby.cache").tag("result", "hit").counter().count());
+        assertEquals(2.0, meterRegistry.get("aviation.nav.nearby.cache").tag("result", "miss").counter().count());
+        assertEquals(2.0, meterRegistry.get("aviation.nav.nearby.cache.size").gauge().value());
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedEntries() {
+        NavGridIndex index = new NavGridIndex(List.of(new NavPoint("EFHK", "large_airport", 60.3183, 24.9633)));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        NearbyQueryCache cache = new NearbyQueryCache(2, meterRegistry);
+        cache.invalidate(index);
+
+        cache.findWithin(index, 10.05, 10.05, 10);
+        cache.findWithin(index, 20.05, 20.05, 10);
+        cache.findWithin(index, 10.05, 10.05, 10); // touch the first entry
+        cache.findWithin(index, 30.05, 30.05, 10); // evicts the second
+
+        assertEquals(2, cache.size());
+        cache.findWithin(index, 10.05, 10.05, 10);
+        assertEquals(2.0, meterRegistry.get("aviation.nav.nearby.cache").tag("result", "hit").counter().count());
+        cache.findWithin(index, 20.05, 20.05, 10);
+        assertEquals(4.0, meterRegistry.get("aviation.nav.nearby.cache").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void shouldNotCacheQueriesAgainstAStaleIndex() {
+        NavGridIndex old = new NavGridIndex(List.of(new NavPoint("OLD", "small_airport", 60, 25)));
+        NavGridIndex current = new NavGridIndex(List.of(new NavPoint("NEW", "small_airport", 60, 25)));
+        NearbyQueryCache cache = new NearbyQueryCache(16, new SimpleMeterRegistry());
+        cache.invalidate(current);
+
+        assertEquals("OLD", cache.findWithin(old, 60, 25, 10).get(0).getIdent());
+        assertEquals(0, cache.size());
+        assertEquals("NEW", cache.findWithin(current, 60, 25, 10).get(0).getIdent());
+    }
+
+    @Test
+    void shouldBoundTotalCachedCandidates() {
+        Random random = new Random(11);
+        List<NavPoint> points = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            points.add(new NavPoint("P" + i, "small_airport", random.nextDouble() * 20 + 50, random.nextDouble() * 20));
+        }
+        NavGridIndex index = new NavGridIndex(points);
+        NearbyQueryCache cache = new NearbyQueryCache(1024, 16000, new SimpleMeterRegistry());
+        cache.invalidate(index);
+
+        // Wide queries from many cells: each entry holds hundreds of points
+        for (int q = 0; q < 200; q++) {
+            double lat = 55 + q * 0.1;
+            double lon = 10 + (q % 7) * 0.1;
+            assertEquals(index.findWithin(lat, lon, 60), cache.findWithin(index, lat, lon, 60));
+            assertTrue(cache.candidates() <= 16000, "candidates=" + cache.candidates());
+        }
+        assertTrue(cache.size() < 200);
+
+        // An entry above a sixteenth of the budget, or a radius beyond the bounded range, is not stored
+        int before = cache.size();
+        cache.findWithin(index, 60, 10, 600);
+        cache.findWithin(index, 60, 10, 6000);
+        assertEquals(before, cache.size());
+    }
+}
@@ -0,0 +1,232 @@
+package com.miro.aviation.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class OutboundFlowControlTest {
+
+    private static final String SESSION_ID = "session-1";
+
+    private TestClock clock;
+    private WebSocketSessionRegistry sessionRegistry;
+    private MessageChannel channel;
+    private MessageHandler handler;
+    private SimpleMeterRegistry meterRegistry;
+    private OutboundFlowControl flowControl;
+
+    @BeforeEach
+    void setUp() {
+        clock = new TestClock();
+        sessionRegistry = mock(WebSocketSessionRegistry.class);
+        when(sessionRegistry.close(any(), any())).thenReturn(true);
+        channel = mock(MessageChannel.class);
+        handler = mock(MessageHandler.class);
+        meterRegistry = new SimpleMeterRegistry();
+        flowControl = new OutboundFlowControl(clock, sessionRegistry, meterRegistry, 100, 1000);
+        connect();
+    }
+
+    @Test
+    void shouldSendOnlyLatestFrameQueuedWhileWriting() {
+        Message<?> first = flightFrame(10);
+        Message<?> second = flightFrame(10);
+        Message<?> third = flightFrame(10);
+        flowControl.preSend(first, channel);
+        flowControl.preSend(second, channel);
+        flowControl.preSend(third, channel);
+
+        // First frame is written, the next two arrive while it is still on the socket
+        assertSame(first, flowControl.beforeHandle(first, channel, handler));
+        assertNull(flowControl.beforeHandle(second, channel, handler));
+        assertNull(flowControl.beforeHandle(third, channel, handler));
+        flowControl.afterMessageHandled(second, channel, handler, null);
+        flowControl.afterMessageHandled(third, channel, handler, null);
+        verifyNoInteractions(handler);
+
+        // Finishing the first write sends the latest frame only
+        flowControl.afterMessageHandled(first, channel, handler, null);
+
+        verify(handler).handleMessage(third);
+        verifyNoMoreInteractions(handler);
+        assertEquals(1, flowControl.getStats().conflatedFrames());
+        assertEquals(0, flowControl.getBufferedBytes(SESSION_ID));
+        assertEquals(1.0, meterRegistry.get("aviation.frames.dropped").tag("reason", "conflated").functionCounter().count());
+        assertEquals(2, meterRegistry.get("aviation.outbound.write").timer().count());
+
+        // Nothing is being written any more, so the next frame goes straight through
+        Message<?> fourth = flightFrame(10);
+        flowControl.preSend(fourth, channel);
+        assertSame(fourth, flowControl.beforeHandle(fourth, channel, handler));
+    }
+
+    @Test
+    void shouldDropFramesOverLimitAndDisconnectPersistentlySlowSession() {
+        Message<?> first = flightFrame(60);
+        assertSame(first, flowControl.preSend(first, channel));
+        assertNull(flowControl.preSend(flightFrame(60), channel));
+        assertEquals(1, flowControl.getStats().droppedFrames());
+        verifyNoInteractions(sessionRegistry);
+
+        clock.advance(Duration.ofMillis(1000));
+        assertNull(flowControl.preSend(flightFrame(60), channel));
+        assertNull(flowControl.preSend(flightFrame(60), channel));
+
+        verify(sessionRegistry, times(1)).close(SESSION_ID, CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(3, flowControl.getStats().droppedFrames());
+        assertEquals(1, flowControl.getStats().disconnectedSessions());
+        assertEquals(3.0, meterRegistry.get("aviation.frames.dropped").tag("reason", "over-limit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("aviation.sessions.disconnected").functionCounter().count());
+        assertEquals(60.0, meterRegistry.get("aviation.outbound.buffered").gauge().value());
+    }
+
+    @Test
+    void shouldResetSlowTimerOnceSessionCatchesUp() {
+        Message<?> first = flightFrame(60);
+        flowControl.preSend(first, channel);
+        assertNull(flowControl.preSend(flightFrame(60), channel));
+
+        // The backlog drains before the timeout
+        clock.advance(Duration.ofMillis(500));
+        flowControl.beforeHandle(first, channel, handler);
+        flowControl.afterMessageHandled(first, channel, handler, null);
+        assertNotNull(flowControl.preSend(flightFrame(60), channel));
+
+        clock.advance(Duration.ofMillis(600));
+        assertNull(flowControl.preSend(flightFrame(60), channel));
+        verifyNoInteractions(sessionRegistry);
+    }
+
+    @Test
+    void shouldConflateGroupFramesPerSubscriber() {
+        Message<?> first = message(SimpMessageType.MESSAGE, PlaybackGroup.DESTINATION_PREFIX + "abc", 10);
+        Message<?> second = message(SimpMessageType.MESSAGE, PlaybackGroup.DESTINATION_PREFIX + "abc", 10);
+        flowControl.preSend(first, channel);
+        flowControl.preSend(second, channel);
+
+        assertSame(first, flowControl.beforeHandle(first, channel, handler));
+        assertNull(flowControl.beforeHandle(second, channel, handler));
+        flowControl.afterMessageHandled(first, channel, handler, null);
+
+        verify(handler).handleMessage(second);
+        assertEquals(0, flowControl.getStats().conflatedFrames());
+    }
+
+    @Test
+    void shouldNeverConflateOrDropOtherMessages() {
+        flowControl.preSend(flightFrame(90), channel);
+
+        Message<?> plan = message(SimpMessageType.MESSAGE, "/queue/flightPlan-user" + SESSION_ID, 50);
+        Message<?> receipt = message(SimpMessageType.HEARTBEAT, null, 0);
+        assertSame(plan, flowControl.preSend(plan, channel));
+        assertSame(plan, flowControl.beforeHandle(plan, channel, handler));
+        assertSame(receipt, flowControl.beforeHandle(receipt, channel, handler));
+        assertEquals(140, flowControl.getBufferedBytes(SESSION_ID));
+
+        flowControl.afterMessageHandled(plan, channel, handler, null);
+        assertEquals(90, flowControl.getBufferedBytes(SESSION_ID));
+        assertEquals(0, flowControl.getStats().droppedFrames());
+    }
+
+    @Test
+    void shouldForgetSessionOnDisconnect() {
+        flowControl.preSend(flightFrame(60), channel);
+        assertEquals(60, flowControl.getStats().bufferedBytes());
+
+        SessionDisconnectEvent event = mock(SessionDisconnectEvent.class);
+        when(event.getSessionId()).thenReturn(SESSION_ID);
+        flowControl.handleDisconnect(event);
+
+        assertEquals(0, flowControl.getBufferedBytes(SESSION_ID));
+        assertEquals(0, flowControl.getStats().bufferedBytes());
+    }
+
+    @Test
+    void shouldNotTrackSessionAgainAfterDisconnect() {
+        SessionDisconnectEvent event = mock(SessionDisconnectEvent.class);
+        when(event.getSessionId()).thenReturn(SESSION_ID);
+        flowControl.handleDisconnect(event);
+
+        // The broker acknowledges the disconnect after the event; a late shard frame may follow
+        Message<?> ack = message(SimpMessageType.DISCONNECT_ACK, null, 0);
+        Message<?> late = flightFrame(60);
+        assertSame(ack, flowControl.preSend(ack, channel));
+        assertSame(late, flowControl.preSend(late, channel));
+        assertSame(late, flowControl.beforeHandle(late, channel, handler));
+        flowControl.afterMessageHandled(late, channel, handler, null);
+
+        assertEquals(0, flowControl.getTrackedSessions());
+        assertEquals(0, flowControl.getStats().bufferedBytes());
+    }
+
+    @Test
+    void shouldDisconnectSessionWhoseWriteStalls() {
+        Message<?> stuck = flightFrame(10);
+        flowControl.preSend(stuck, channel);
+        assertSame(stuck, flowControl.beforeHandle(stuck, channel, handler));
+
+        // Newer frames are conflated behind the stuck write and never reach the byte limit
+        clock.advance(Duration.ofMillis(999));
+        Message<?> next = flightFrame(10);
+        assertSame(next, flowControl.preSend(next, channel));
+        assertNull(flowControl.beforeHandle(next, channel, handler));
+        verifyNoInteractions(sessionRegistry);
+
+        clock.advance(Duration.ofMillis(1));
+        flowControl.preSend(flightFrame(10), channel);
+        flowControl.preSend(flightFrame(10), channel);
+
+        verify(sessionRegistry, times(1)).close(SESSION_ID, CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(0, flowControl.getStats().droppedFrames());
+        assertEquals(1, flowControl.getStats().disconnectedSessions());
+    }
+
+    private void connect() {
+        Message<?> ack = message(SimpMessageType.CONNECT_ACK, null, 0);
+        flowControl.preSend(ack, channel);
+        flowControl.afterMessageHandled(ack, channel, handler, null);
+    }
+
+    private static Message<byte[]> flightFrame(int size) {
+        return message(SimpMessageType.MESSAGE, FlightBroadcastEngine.FLIGHT_DATA_DESTINATION + "-user" + SESSION_ID, size);
+    }
+
+    private static Message<byte[]> message(SimpMessageType type, String destination, int size) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setSessionId(SESSION_ID);
+        if (destination != null) {
+            accessor.setDestination(destination);
+        }
+        return MessageBuilder.createMessage(new byte[size], accessor.getMessageHeaders());
+    }
+
+    private static class TestClock extends Clock {
+        private Instant now = Instant.parse("2026-01-01T12:00:00Z");
+
+        public void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override public Instant instant() { return now; }
+        @Override public long millis() { return now.toEpochMilli(); }
+        @Override public ZoneId getZone() { return ZoneId.of("UTC"); }
+        @Override public Clock withZone(ZoneId zone) { return this; }
+    }
+}
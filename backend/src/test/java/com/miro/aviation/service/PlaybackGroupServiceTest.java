@@ -0,0 +1,79 @@
+package com.miro.aviation.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PlaybackGroupServiceTest {
+
+    private FlightBroadcastEngine broadcastEngine;
+    private RecordedFlightDataProvider provider;
+    private PlaybackGroupService groupService;
+
+    @BeforeEach
+    void setUp() {
+        broadcastEngine = mock(FlightBroadcastEngine.class);
+        provider = mock(RecordedFlightDataProvider.class);
+        groupService = new PlaybackGroupService(broadcastEngine);
+    }
+
+    @Test
+    void shouldRegisterGroupUnderItsTopic() {
+        PlaybackGroup group = groupService.create("leader", provider);
+
+        assertEquals("/topic/group/" + group.getId(), group.getDestination());
+        assertTrue(group.isLeader("leader"));
+        assertSame(group, groupService.getGroupOf("leader"));
+        verify(broadcastEngine).registerTopic(group.getDestination(), provider);
+    }
+
+    @Test
+    void shouldOnlyLetLeaderControlPlayback() {
+        PlaybackGroup group = groupService.create("leader", provider);
+        assertSame(group, groupService.join(group.getId(), "viewer"));
+
+        assertSame(provider, groupService.getLedProvider("leader"));
+        assertNull(groupService.getLedProvider("viewer"));
+        assertNull(groupService.join("missing", "viewer"));
+    }
+
+    @Test
+    void shouldPassLeadershipToLongestStandingMember() {
+        PlaybackGroup group = groupService.create("leader", provider);
+        groupService.join(group.getId(), "first");
+        groupService.join(group.getId(), "second");
+
+        assertNull(groupService.leave("second"));
+        assertEquals("first", groupService.leave("leader"));
+        assertSame(provider, groupService.getLedProvider("first"));
+        assertEquals(1, group.getMembers().size());
+    }
+
+    @Test
+    void shouldCloseGroupWithItsLastMember() {
+        PlaybackGroup group = groupService.create("leader", provider);
+        groupService.join(group.getId(), "viewer");
+
+        groupService.leave("viewer");
+        groupService.leave("leader");
+
+        assertNull(groupService.getGroup(group.getId()));
+        assertEquals(0, groupService.size());
+        verify(broadcastEngine).unregister(group.getDestination());
+    }
+
+    @Test
+    void shouldLeavePreviousGroupWhenJoiningAnother() {
+        PlaybackGroup first = groupService.create("leader-1", provider);
+        PlaybackGroup second = groupService.create("leader-2", mock(RecordedFlightDataProvider.class));
+        groupService.join(first.getId(), "viewer");
+
+        groupService.join(second.getId(), "viewer");
+
+        assertEquals(1, first.getMembers().size());
+        assertEquals(2, second.getMembers().size());
+        assertSame(second, groupService.getGroupOf("viewer"));
+    }
+}
@@ -1,8 +1,14 @@
 package com.miro.aviation.service;
 
+import com.miro.aviation.model.FlightRecording;
 import com.miro.aviation.model.FlightSnapshot;
+import com.miro.aviation.utils.FlightRecordingFile;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
 
 import java.time.Clock;
 import java.time.Duration;
@@ -15,12 +21,14 @@ class RecordedFlightDataProviderTest {
 
     private RecordedFlightDataProvider provider;
     private TestClock testClock;
+    private FlightRecordingRepository recordingRepository;
     private static final String TEST_CSV = "/flights/test_flight.csv";
 
     @BeforeEach
     void setUp() {
         testClock = new TestClock();
-        provider = new RecordedFlightDataProvider(testClock);
+        recordingRepository = new FlightRecordingRepository();
+        provider = new RecordedFlightDataProvider(testClock, recordingRepository);
     }
 
     @Test
@@ -53,6 +61,52 @@ class RecordedFlightDataProviderTest {
         assertEquals(1, progress2.currentIndex());
     }
 
+    @Test
+    void shouldFillReusedSnapshotAndCacheProgressPerSample() {
+        provider.initialize(TEST_CSV);
+        FlightSnapshot reused = new FlightSnapshot();
+
+        FlightSnapshot first = provider.getCurrentSnapshot(reused);
+        FlightSnapshot expected = provider.getCurrentSnapshot();
+        assertSame(reused, first);
+        assertEquals(expected.getTimestamp(), first.getTimestamp());
+        assertEquals(expected.getAirSpeed().getSpeed(), first.getAirSpeed().getSpeed());
+        assertEquals(expected.getPosition().getLatitude(), first.getPosition().getLatitude());
+        assertEquals(expected.getAttitude().getYaw(), first.getAttitude().getYaw());
+        assertEquals(expected.getProgress(), first.getProgress());
+
+        // Same sample: the progress record is not rebuilt
+        var progress = first.getProgress();
+        assertSame(progress, provider.getCurrentSnapshot(reused).getProgress());
+
+        provider.setSeek(1.0);
+        FlightSnapshot last = provider.getCurrentSnapshot(reused);
+        assertSame(reused, last);
+        assertEquals(2, last.getProgress().currentIndex());
+        assertEquals(provider.getCurrentSnapshot().getTimestamp(), last.getTimestamp());
+    }
+
+    @Test
+    void shouldServeSharedPreSerializedFrames() {
+        RecordedFlightDataProvider other = new RecordedFlightDataProvider(testClock, recordingRepository);
+        provider.initialize(TEST_CSV);
+        other.initialize(TEST_CSV);
+
+        byte[] frame = provider.getCurrentFrame(FrameEncoding.JSON);
+        assertNotNull(frame);
+        assertSame(frame, other.getCurrentFrame(FrameEncoding.JSON), "Sessions on the same sample should share one frame");
+
+        provider.setSeek(1.0);
+        String json = new String(provider.getCurrentFrame(FrameEncoding.JSON), java.nio.charset.StandardCharsets.UTF_8);
+        assertTrue(json.contains("\"currentIndex\":2"));
+        assertTrue(json.contains("\"speed\":300.0"));
+
+        byte[] binary = provider.getCurrentFrame(FrameEncoding.BINARY);
+        assertEquals(64, binary.length);
+        assertSame(binary, provider.getCurrentFrame(FrameEncoding.BINARY));
+        assertNull(provider.getCurrentFrame(FrameEncoding.DELTA), "Delta frames are per session");
+    }
+
     @Test
     void seekShouldHandleOutOfBoundsGracefully() {
         provider.initialize(TEST_CSV);
@@ -177,6 +231,141 @@ class RecordedFlightDataProviderTest {
         assertDoesNotThrow(() -> provider.tick());
     }
 
+    @Test
+    void shouldReleaseSharedRecordingOnClose() {
+        provider.initialize(TEST_CSV);
+        assertEquals(1, recordingRepository.getReferenceCount(TEST_CSV));
+
+        provider.close();
+        provider.close(); // must not release twice
+        assertEquals(0, recordingRepository.getReferenceCount(TEST_CSV));
+    }
+
+    @Test
+    void shouldReleasePreviousRecordingOnReinitialize() {
+        RecordedFlightDataProvider other = new RecordedFlightDataProvider(testClock, recordingRepository);
+        other.initialize(TEST_CSV);
+        provider.initialize(TEST_CSV);
+        assertEquals(2, recordingRepository.getReferenceCount(TEST_CSV));
+
+        provider.initialize("/non/existent/file.csv");
+        assertEquals(1, recordingRepository.getReferenceCount(TEST_CSV));
+        assertNull(provider.getCurrentSnapshot());
+    }
+
+    /**
+     * Provider over a one-hour recording with one sample per second, served from a recordings dir.
+     */
+    private RecordedFlightDataProvider hourLongRecording(Path dir) throws IOException {
+        FlightRecording.Builder builder = FlightRecording.builder("hour");
+        for (int i = 0; i <= 3600; i++) {
+            builder.add(1000L * i, 60, 25, i, 250, 90);
+        }
+        FlightRecordingFile.write(builder.build(), dir.resolve("hour.avfr"));
+
+        RecordedFlightDataProvider hour = new RecordedFlightDataProvider(testClock, new FlightRecordingRepository(dir.toString()));
+        hour.initialize("/flights/hour.avfr");
+        return hour;
+    }
+
+    @Test
+    void shouldNotKeepCachedProgressOfPreviousRecording(@TempDir Path dir) throws IOException {
+        FlightRecordingFile.write(FlightRecording.builder("other")
+                .add(5000, 61.0, 25.0, 1234, 222, 45)
+                .add(6000, 61.1, 25.1, 1300, 222, 45)
+                .build(), dir.resolve("other.avfr"));
+        RecordedFlightDataProvider switching = new RecordedFlightDataProvider(testClock, new FlightRecordingRepository(dir.toString()));
+
+        switching.initialize(TEST_CSV);
+        assertEquals(3, switching.getProgress().totalSamples());
+
+        // Same sample index in another recording: the cached progress must not be reused
+        switching.initialize("/flights/other.avfr");
+        assertEquals(2, switching.getProgress().totalSamples());
+        assertEquals(5000, switching.getProgress().startTime());
+    }
+
+    @Test
+    void shouldSeekByTimeOnIrregularlySampledRecording(@TempDir Path dir) throws IOException {
+        // Dense samples during the first 10 s, then one every 100 s until 1000 s
+        FlightRecording.Builder builder = FlightRecording.builder("irregular");
+        for (int i = 0; i < 10; i++) {
+            builder.add(1_700_000_000_000L + 1000L * i, 60, 25, i, 250, 90);
+        }
+        for (int i = 1; i <= 10; i++) {
+            builder.add(1_700_000_000_000L + 100_000L * i, 60, 25, 100 * i, 250, 90);
+        }
+        FlightRecordingFile.write(builder.build(), dir.resolve("irregular.avfr"));
+        RecordedFlightDataProvider irregular = new RecordedFlightDataProvider(testClock, new FlightRecordingRepository(dir.toString()));
+        irregular.initialize("/flights/irregular.avfr");
+
+        // Half the flight time is 500 s (index 14), not the middle sample (index 9)
+        irregular.setSeek(0.5);
+        assertEquals(14, irregular.getProgress().currentIndex());
+        assertEquals(0.5, irregular.getProgress().percentage());
+
+        // Snaps to the nearest sample on either side
+        irregular.setSeekElapsed(640_000);
+        assertEquals(15, irregular.getProgress().currentIndex());
+        irregular.setSeekElapsed(660_000);
+        assertEquals(16, irregular.getProgress().currentIndex());
+
+        irregular.setSeekTime(1_700_000_000_000L + 3_400);
+        assertEquals(3, irregular.getProgress().currentIndex());
+        irregular.setSeekTime(0);
+        assertEquals(0, irregular.getProgress().currentIndex());
+        irregular.setSeekTime(Long.MAX_VALUE);
+        assertEquals(19, irregular.getProgress().currentIndex());
+        // Elapsed time past either end clamps instead of overflowing the timestamp
+        irregular.setSeekElapsed(Long.MAX_VALUE);
+        assertEquals(19, irregular.getProgress().currentIndex());
+        irregular.setSeekElapsed(Long.MIN_VALUE);
+        assertEquals(0, irregular.getProgress().currentIndex());
+
+        // Playback continues from the sample seeked to
+        irregular.setSeekElapsed(5_000);
+        testClock.advance(Duration.ofMillis(1000));
+        irregular.tick();
+        assertEquals(6, irregular.getProgress().currentIndex());
+    }
+
+    @Test
+    void shouldSkipSamplesAtHighSpeedMultipliers(@TempDir Path dir) throws IOException {
+        RecordedFlightDataProvider hour = hourLongRecording(dir);
+        hour.setSpeedMultiplier(1000.0);
+
+        // One 50 ms tick at 1000x covers 50 s of recording
+        testClock.advance(Duration.ofMillis(50));
+        hour.tick();
+        assertEquals(50, hour.getProgress().currentIndex());
+
+        testClock.advance(Duration.ofMillis(50));
+        hour.tick();
+        assertEquals(100, hour.getProgress().currentIndex());
+
+        // Far past the end clamps to the last sample
+        testClock.advance(Duration.ofSeconds(10));
+        hour.tick();
+        assertEquals(3600, hour.getProgress().currentIndex());
+    }
+
+    @Test
+    void shouldKeepFractionalProgressBetweenTicks(@TempDir Path dir) throws IOException {
+        RecordedFlightDataProvider hour = hourLongRecording(dir);
+        hour.setSpeedMultiplier(1.5);
+
+        // 20 ticks of 33 ms at 1.5x is 990 ms of recording; truncating per tick would lose 10 ms
+        for (int i = 0; i < 20; i++) {
+            testClock.advance(Duration.ofMillis(33));
+            hour.tick();
+        }
+        assertEquals(0, hour.getProgress().currentIndex());
+
+        testClock.advance(Duration.ofMillis(7)); // 990 + 10.5 ms
+        hour.tick();
+        assertEquals(1, hour.getProgress().currentIndex());
+    }
+
     /**
      * Helper class to control time deterministically in tests.
      */
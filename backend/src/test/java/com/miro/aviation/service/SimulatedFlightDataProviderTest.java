@@ -54,6 +54,78 @@ class SimulatedFlightDataProviderTest {
         verify(speedSim).getCurrentAirSpeed();
     }
 
+    @Test
+    void shouldFillReusedSnapshotInPlace() {
+        SimulatedFlightDataProvider real = new SimulatedFlightDataProvider(
+                new AttitudeSimulatorService(), new AltitudeSimulatorService(), new AirspeedSimulatorService());
+        FlightSnapshot reused = new FlightSnapshot();
+
+        real.tick();
+        FlightSnapshot first = real.getCurrentSnapshot(reused);
+        Attitude attitude = first.getAttitude();
+        assertSame(reused, first);
+        assertSnapshotEquals(real.getCurrentSnapshot(), first);
+
+        real.tick();
+        FlightSnapshot second = real.getCurrentSnapshot(reused);
+        assertSame(reused, second);
+        assertSame(attitude, second.getAttitude(), "Components should be reused, not reallocated");
+        assertSnapshotEquals(real.getCurrentSnapshot(), second);
+        assertNull(second.getProgress());
+    }
+
+    @Test
+    void shouldContinueWalkInBatchOnceAttached() {
+        SimulatedFlightDataProvider real = new SimulatedFlightDataProvider(
+                new AttitudeSimulatorService(), new AltitudeSimulatorService(), new AirspeedSimulatorService());
+        real.tick();
+        FlightSnapshot before = real.getCurrentSnapshot();
+
+        SimulationBatch batch = new SimulationBatch();
+        real.attach(batch);
+        assertEquals(1, batch.size());
+        assertSnapshotEquals(before, real.getCurrentSnapshot(new FlightSnapshot()));
+
+        // Paused sessions are skipped by the batch
+        real.setPaused(true);
+        batch.advance();
+        real.tick();
+        assertSnapshotEquals(before, real.getCurrentSnapshot());
+
+        // Moving to another batch carries the state over and frees the old slot
+        SimulationBatch other = new SimulationBatch();
+        real.attach(other);
+        assertEquals(0, batch.size());
+        assertEquals(1, other.size());
+        assertSnapshotEquals(before, real.getCurrentSnapshot());
+
+        // A single step can round to no change, so look for any change over a few
+        real.setPaused(false);
+        boolean changed = false;
+        for (int i = 0; i < 5; i++) {
+            double altitude = real.getAltitude().getAltitude();
+            other.advance();
+            changed |= altitude != real.getAltitude().getAltitude();
+        }
+        assertTrue(changed);
+
+        real.close();
+        assertEquals(0, other.size());
+    }
+
+    private static void assertSnapshotEquals(FlightSnapshot expected, FlightSnapshot actual) {
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.getAttitude().getPitch(), actual.getAttitude().getPitch());
+        assertEquals(expected.getAttitude().getRoll(), actual.getAttitude().getRoll());
+        assertEquals(expected.getAttitude().getYaw(), actual.getAttitude().getYaw());
+        assertEquals(expected.getAltitude().getAltitude(), actual.getAltitude().getAltitude());
+        assertEquals(expected.getAltitude().getKollsmanPressure(), actual.getAltitude().getKollsmanPressure());
+        assertEquals(expected.getAirSpeed().getSpeed(), actual.getAirSpeed().getSpeed());
+        assertEquals(expected.getPosition().getLatitude(), actual.getPosition().getLatitude());
+        assertEquals(expected.getPosition().getLongitude(), actual.getPosition().getLongitude());
+        assertEquals(expected.getActiveWaypointIndex(), actual.getActiveWaypointIndex());
+    }
+
     @Test
     void tickShouldAdvanceAllSubSimulators() {
         provider.tick();
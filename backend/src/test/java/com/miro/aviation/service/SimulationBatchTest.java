@@ -0,0 +1,98 @@
+package com.miro.aviation.service;
+
+import com.miro.aviation.model.AirSpeed;
+import com.miro.aviation.model.Altitude;
+import com.miro.aviation.model.Attitude;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationBatchTest {
+
+    private static final double[] DELTAS = {1.0, 4.0, 0.5, 1000.0};
+
+    @Test
+    void shouldWalkExactlyLikeTheSimulatorServicesGivenTheSameDraws() {
+        // One generator for the batch, and an identically seeded one shared by the services in
+        // the order the batch draws: attitude, altitude, then air speed, slot by slot
+        SimulationBatch batch = new SimulationBatch(new Random(42));
+        Random serviceRandom = new Random(42);
+
+        int sessions = DELTAS.length;
+        AttitudeSimulatorService[] attitudes = new AttitudeSimulatorService[sessions];
+        AltitudeSimulatorService[] altitudes = new AltitudeSimulatorService[sessions];
+        AirspeedSimulatorService[] speeds = new AirspeedSimulatorService[sessions];
+        int[] slots = new int[sessions];
+        for (int i = 0; i < sessions; i++) {
+            attitudes[i] = new AttitudeSimulatorService(serviceRandom);
+            altitudes[i] = new AltitudeSimulatorService(serviceRandom);
+            speeds[i] = new AirspeedSimulatorService(serviceRandom);
+            slots[i] = batch.add(attitudes[i].getCurrentAttitude(), altitudes[i].getCurrentAltitude(),
+                    speeds[i].getCurrentAirSpeed(), DELTAS[i]);
+        }
+
+        for (int tick = 0; tick < 500; tick++) {
+            batch.advance();
+            for (int i = 0; i < sessions; i++) {
+                attitudes[i].tick(DELTAS[i]);
+                altitudes[i].tick(DELTAS[i]);
+                speeds[i].tick(DELTAS[i]);
+            }
+        }
+
+        for (int i = 0; i < sessions; i++) {
+            Attitude attitude = new Attitude();
+            Altitude altitude = new Altitude(0, 0);
+            AirSpeed airSpeed = new AirSpeed(0);
+            batch.copyTo(slots[i], attitude, altitude, airSpeed);
+
+            assertEquals(attitudes[i].getCurrentAttitude().getPitch(), attitude.getPitch());
+            assertEquals(attitudes[i].getCurrentAttitude().getRoll(), attitude.getRoll());
+            assertEquals(attitudes[i].getCurrentAttitude().getYaw(), attitude.getYaw());
+            assertEquals(altitudes[i].getCurrentAltitude().getAltitude(), altitude.getAltitude());
+            assertEquals(altitudes[i].getCurrentAltitude().getKollsmanPressure(), altitude.getKollsmanPressure());
+            assertEquals(speeds[i].getCurrentAirSpeed().getSpeed(), airSpeed.getSpeed());
+        }
+    }
+
+    @Test
+    void shouldNotAdvancePausedSlots() {
+        SimulationBatch batch = new SimulationBatch();
+        int slot = batch.add(new Attitude(1, 2, 3), new Altitude(25500, 29.92), new AirSpeed(60), 1.0);
+        batch.setDelta(slot, 0);
+
+        batch.advance();
+
+        Attitude attitude = new Attitude();
+        Altitude altitude = new Altitude(0, 0);
+        batch.copyTo(slot, attitude, altitude, null);
+        assertEquals(1, attitude.getPitch());
+        assertEquals(2, attitude.getRoll());
+        assertEquals(3, attitude.getYaw());
+        assertEquals(25500, altitude.getAltitude());
+    }
+
+    @Test
+    void shouldReuseFreedSlotsAndGrowPastInitialCapacity() {
+        SimulationBatch batch = new SimulationBatch();
+        int[] slots = new int[40];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = batch.add(new Attitude(0, 0, i), new Altitude(1000, 29.92), new AirSpeed(60), 1.0);
+        }
+        assertEquals(40, batch.size());
+
+        batch.remove(slots[5]);
+        int reused = batch.add(new Attitude(0, 0, 99), new Altitude(1000, 29.92), new AirSpeed(60), 0);
+        assertEquals(slots[5], reused);
+        assertEquals(40, batch.size());
+
+        // Other slots keep their own state
+        Attitude attitude = new Attitude();
+        batch.copyTo(slots[39], attitude, null, null);
+        assertEquals(39, attitude.getYaw());
+        batch.copyTo(reused, attitude, null, null);
+        assertEquals(99, attitude.getYaw());
+    }
+}
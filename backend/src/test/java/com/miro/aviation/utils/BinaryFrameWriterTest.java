@@ -0,0 +1,71 @@
+package com.miro.aviation.utils;
+
+import com.miro.aviation.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryFrameWriterTest {
+
+    private static ByteBuffer encode(FlightSnapshot snapshot) {
+        byte[] frame = BinaryFrameWriter.toBinary(snapshot);
+        assertEquals(BinaryFrameWriter.FRAME_BYTES, frame.length);
+        return ByteBuffer.wrap(frame).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Test
+    void shouldWriteFixedPointFieldsAtDocumentedOffsets() {
+        FlightSnapshot snapshot = new FlightSnapshot(
+                1_700_000_000_123L,
+                new Attitude(-5.25, 30.5, 271.37),
+                new Altitude(35012.3, 29.92),
+                new AirSpeed(451.6),
+                new PlaybackProgress(42, 100, 0.4242, 1_700_000_000_000L, 1_700_000_900_000L),
+                new Position(60.3172, -24.9633),
+                7);
+
+        ByteBuffer frame = encode(snapshot);
+
+        assertEquals(BinaryFrameWriter.VERSION, frame.get(0));
+        assertEquals(0b11111, frame.get(1));
+        assertEquals(7, frame.getShort(2));
+        assertEquals(1_700_000_000_123L, frame.getLong(4));
+        assertEquals(603_172_000, frame.getInt(12));
+        assertEquals(-249_633_000, frame.getInt(16));
+        assertEquals(350_123, frame.getInt(20));
+        assertEquals(-525, frame.getShort(24));
+        assertEquals(3050, frame.getShort(26));
+        assertEquals(27137, Short.toUnsignedInt(frame.getShort(28)));
+        assertEquals(4516, frame.getShort(30));
+        assertEquals(2992, frame.getShort(32));
+        assertEquals(4242, frame.getShort(34));
+        assertEquals(42, frame.getInt(36));
+        assertEquals(100, frame.getInt(40));
+        assertEquals(1_700_000_000_000L, frame.getLong(48));
+        assertEquals(1_700_000_900_000L, frame.getLong(56));
+    }
+
+    @Test
+    void shouldFlagAbsentGroupsAndLeaveThemZero() {
+        ByteBuffer frame = encode(new FlightSnapshot(5, null, null, new AirSpeed(100), null, null, 0));
+
+        assertEquals(BinaryFrameWriter.FLAG_AIR_SPEED, frame.get(1));
+        assertEquals(0, frame.getInt(12));
+        assertEquals(0, frame.getLong(48));
+    }
+
+    @Test
+    void shouldNormalizeHeadingAndSaturateOutOfRangeValues() {
+        ByteBuffer frame = encode(new FlightSnapshot(0,
+                new Attitude(1000, -1000, -90), new Altitude(-100, 29.92), new AirSpeed(-5), null, null, 0));
+
+        assertEquals(Short.MAX_VALUE, frame.getShort(24));
+        assertEquals(Short.MIN_VALUE, frame.getShort(26));
+        assertEquals(27000, Short.toUnsignedInt(frame.getShort(28)), "-90 deg is a heading of 270");
+        assertEquals(-1000, frame.getInt(20));
+        assertEquals(0, frame.getShort(30));
+    }
+}
@@ -1,5 +1,6 @@
 package com.miro.aviation.utils;
 
+import com.miro.aviation.model.FlightRecording;
 import com.miro.aviation.model.FlightSnapshot;
 import org.junit.jupiter.api.Test;
 import java.io.ByteArrayInputStream;
@@ -35,6 +36,22 @@ class CsvFlightLoaderTest {
         assertEquals(90.0, second.getAttitude().getYaw(), "Direction should be mapped to Yaw");
     }
 
+    @Test
+    void shouldLoadColumnarRecording() {
+        InputStream is = getClass().getResourceAsStream("/flights/test_flight.csv");
+
+        FlightRecording recording = CsvFlightLoader.loadRecording("/flights/test_flight.csv", is);
+
+        assertEquals(3, recording.size());
+        assertEquals("/flights/test_flight.csv", recording.getSource());
+        assertEquals(1000L, recording.getStartTime());
+        assertEquals(3000L, recording.getEndTime());
+        assertEquals(2000.0, recording.getAltitude(1));
+        assertEquals(90.0, recording.getHeading(1));
+        assertEquals(60.3180, recording.getLatitude(1));
+        assertEquals(24.9640, recording.getLongitude(1));
+    }
+
     @Test
     void shouldThrowExceptionOnInvalidInput() {
         InputStream is = getClass().getResourceAsStream("/flights/invalid_test_flight.csv");
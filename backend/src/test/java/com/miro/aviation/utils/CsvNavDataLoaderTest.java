@@ -7,6 +7,7 @@ import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -81,4 +82,29 @@ class CsvNavDataLoaderTest {
         assertEquals(60.3183, airports.get(0).getLatitude(), 0.0001);
         assertEquals(24.9633, airports.get(0).getLongitude(), 0.0001);
     }
+
+    @Test
+    void testLoadAirports_ChunkedMatchesSerial() {
+        StringBuilder csv = new StringBuilder("\"ident\",\"type\",\"name\",\"latitude_deg\",\"longitude_deg\"\n");
+        for (int i = 0; i < 2000; i++) {
+            String type = i % 7 == 0 ? "heliport" : i % 11 == 0 ? "closed" : "small_airport";
+            String lat = i % 13 == 0 ? "95.0" : Double.toString(-80 + i * 0.05);
+            // Names with quoted line breaks must not split a row across chunks
+            csv.append("\"A").append(i).append("\",\"").append(type).append("\",\"Field\n").append(i).append("\",\"")
+                    .append(lat).append("\",\"").append(i % 360 - 179.5).append("\"\n");
+        }
+        byte[] bytes = csv.toString().getBytes(StandardCharsets.UTF_8);
+
+        List<NavPoint> serial = CsvNavDataLoader.loadAirports(new ByteArrayInputStream(bytes), new ForkJoinPool(1), Integer.MAX_VALUE);
+        List<NavPoint> chunked = CsvNavDataLoader.loadAirports(new ByteArrayInputStream(bytes), new ForkJoinPool(4), 1024);
+
+        assertFalse(serial.isEmpty());
+        assertEquals(serial.size(), chunked.size());
+        for (int i = 0; i < serial.size(); i++) {
+            assertEquals(serial.get(i).getIdent(), chunked.get(i).getIdent());
+            assertEquals(serial.get(i).getType(), chunked.get(i).getType());
+            assertEquals(serial.get(i).getLatitude(), chunked.get(i).getLatitude());
+            assertEquals(serial.get(i).getLongitude(), chunked.get(i).getLongitude());
+        }
+    }
 }
@@ -0,0 +1,201 @@
+package com.miro.aviation.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvParserTest {
+
+    @Test
+    void shouldResolveHeaderAndReadQuotedFields() throws IOException {
+        CsvParser csv = parser("\uFEFF\"ident\",name,\"pos\"\r\n"
+                + "EFHK,\"Helsinki, \"\"Vantaa\"\"\",\"60.3172, 24.9633\"\r\n"
+                + "\n"
+                + "EFNU,\"Multi\nline\",\n");
+
+        int ident = csv.requireColumn("ident");
+        int name = csv.requireColumn("name");
+        int pos = csv.requireColumn("pos");
+        assertEquals(-1, csv.column("missing"));
+        assertThrows(IllegalArgumentException.class, () -> csv.requireColumn("missing"));
+
+        assertTrue(csv.next());
+        assertEquals("EFHK", csv.getString(ident));
+        assertEquals("Helsinki, \"Vantaa\"", csv.getString(name));
+        assertTrue(csv.contentEquals(ident, "EFHK"));
+        assertTrue(csv.contains(name, "Vantaa"));
+        assertEquals(60.3172, csv.getDouble(pos, 0, ','));
+        assertEquals(24.9633, csv.getDouble(pos, 1, ','));
+
+        // The blank line is skipped
+        assertTrue(csv.next());
+        assertEquals("EFNU", csv.getString(ident));
+        assertEquals("Multi\nline", csv.getString(name));
+        assertEquals("", csv.getString(pos));
+
+        assertFalse(csv.next());
+    }
+
+    @Test
+    void shouldReadRowsSpanningBufferRefills() throws IOException {
+        StringBuilder text = new StringBuilder("Timestamp,Position\n");
+        for (int i = 0; i < 1000; i++) {
+            text.append(1_700_000_000L + i).append(",\"").append(60 + i / 1000.0).append(", 24.5\"\n");
+        }
+        // Last row without a trailing newline
+        text.append("42,\"1.5, 2.5\"");
+
+        CsvParser csv = new CsvParser(new ByteArrayInputStream(text.toString().getBytes(StandardCharsets.UTF_8)), 16);
+        int timestamp = csv.requireColumn("Timestamp");
+        int position = csv.requireColumn("Position");
+
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(csv.next());
+            assertEquals(1_700_000_000L + i, csv.getLong(timestamp));
+            assertEquals(60 + i / 1000.0, csv.getDouble(position, 0, ','));
+        }
+        assertTrue(csv.next());
+        assertEquals(42, csv.getLong(timestamp));
+        assertEquals(2.5, csv.getDouble(position, 1, ','));
+        assertFalse(csv.next());
+    }
+
+    @Test
+    void shouldParseDoublesExactlyLikeParseDouble() {
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            String text = switch (i % 5) {
+                case 0 -> Double.toString(random.nextDouble() * 360 - 180);
+                case 1 -> String.format(Locale.ROOT, "%.6f", random.nextDouble() * 180 - 90);
+                case 2 -> Long.toString(random.nextLong());
+                // Long mantissas, including ties and values just around them
+                case 3 -> {
+                    String digits = Long.toString(Math.abs(random.nextLong() % 1_000_000_000_000_000_000L));
+                    yield new StringBuilder(digits).insert(random.nextInt(digits.length() + 1), '.').toString();
+                }
+                default -> Double.toString(random.nextGaussian() * Math.pow(10, random.nextInt(40) - 20));
+            };
+            byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+            assertEquals(Double.parseDouble(text), CsvParser.parseDouble(bytes, 0, bytes.length, false), text);
+        }
+    }
+
+    @Test
+    void shouldHandleNumberQuirks() {
+        assertEquals(60.3183, parseDouble(" 60,3183 ", true));
+        assertEquals(-0.5, parseDouble("-.5", false));
+        assertEquals(-0.0, parseDouble("-0", false));
+        assertEquals(1e300, parseDouble("1e300", false));
+        assertEquals(9007199254740993.0, parseDouble("9007199254740993", false)); // tie, rounds to even
+        assertEquals(0.30000000000000004, parseDouble("0.30000000000000004", false));
+        assertEquals(Double.NaN, parseDouble("NaN", false));
+        assertThrows(NumberFormatException.class, () -> parseDouble("60,3183", false));
+        assertThrows(NumberFormatException.class, () -> parseDouble("not_a_number", true));
+        assertThrows(NumberFormatException.class, () -> parseDouble("", false));
+
+        assertEquals(1_766_929_758L, parseLong(" 1766929758"));
+        assertEquals(Long.MIN_VALUE, parseLong(Long.toString(Long.MIN_VALUE)));
+        assertThrows(NumberFormatException.class, () -> parseLong("12a"));
+        assertThrows(NumberFormatException.class, () -> parseLong("99999999999999999999"));
+    }
+
+    @Test
+    void shouldTreatMissingTrailingFieldsAsAbsent() throws IOException {
+        CsvParser csv = parser("a,b,c\n1\n");
+        assertTrue(csv.next());
+
+        assertEquals(1, csv.getFieldCount());
+        assertFalse(csv.isPresent(csv.column("c")));
+        assertNull(csv.getString(csv.column("c")));
+        assertThrows(NumberFormatException.class, () -> csv.getDouble(csv.column("b")));
+    }
+
+    @Test
+    void shouldSplitInMemoryDataAtRowsOutsideQuotes() throws IOException {
+        StringBuilder text = new StringBuilder("\uFEFFid,note\n");
+        for (int i = 0; i < 500; i++) {
+            // Quoted line breaks and doubled quotes must never end a range
+            text.append(i).append(i % 3 == 0 ? ",\"multi\nline \"\"x\"\"\n\"\n" : ",plain\r\n");
+        }
+        CsvParser csv = CsvParser.of(text.toString().getBytes(StandardCharsets.UTF_8));
+        assertEquals(0, csv.column("id"));
+
+        int[] boundaries = csv.split(16, ForkJoinPool.commonPool());
+        assertTrue(boundaries.length > 2);
+
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < boundaries.length - 1; i++) {
+            assertTrue(boundaries[i] < boundaries[i + 1]);
+            CsvParser rows = csv.rows(boundaries[i], boundaries[i + 1]);
+            while (rows.next()) {
+                assertEquals(2, rows.getFieldCount());
+                ids.add(rows.getString(csv.column("id")));
+            }
+        }
+        assertEquals(500, ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(Integer.toString(i), ids.get(i));
+        }
+
+        CsvParser streaming = parser("a\n1\n");
+        assertThrows(IllegalStateException.class, () -> streaming.split(2, ForkJoinPool.commonPool()));
+    }
+
+    @Test
+    void shouldSplitLikeSerialParseDespiteStrayQuotes() throws IOException {
+        // Quotes that neither open nor close a field must not flip the quoting state
+        StringBuilder text = new StringBuilder("id,name\n");
+        for (int i = 0; i < 600; i++) {
+            text.append(i).append(',').append(switch (i % 4) {
+                case 0 -> "5\" runway";
+                case 1 -> "\"multi\nline \"\"quoted\"\"\n\"";
+                case 2 -> "\"closed\" then \" stray";
+                default -> "plain";
+            }).append(i % 5 == 0 ? "\r\n" : "\n");
+        }
+        byte[] data = text.toString().getBytes(StandardCharsets.UTF_8);
+
+        List<List<String>> serial = new ArrayList<>();
+        CsvParser all = CsvParser.of(data);
+        while (all.next()) {
+            serial.add(List.of(all.getString(0), all.getString(1)));
+        }
+        assertEquals(600, serial.size());
+
+        for (int chunks : new int[]{2, 7, 64, 500}) {
+            CsvParser csv = CsvParser.of(data);
+            int[] boundaries = csv.split(chunks, ForkJoinPool.commonPool());
+            List<List<String>> split = new ArrayList<>();
+            for (int i = 0; i < boundaries.length - 1; i++) {
+                CsvParser rows = csv.rows(boundaries[i], boundaries[i + 1]);
+                while (rows.next()) {
+                    split.add(List.of(rows.getString(0), rows.getString(1)));
+                }
+            }
+            assertEquals(serial, split, "chunks=" + chunks);
+        }
+    }
+
+    private static CsvParser parser(String text) throws IOException {
+        return new CsvParser(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static double parseDouble(String text, boolean commaDecimal) {
+        byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        return CsvParser.parseDouble(bytes, 0, bytes.length, commaDecimal);
+    }
+
+    private static long parseLong(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        return CsvParser.parseLong(bytes, 0, bytes.length);
+    }
+}
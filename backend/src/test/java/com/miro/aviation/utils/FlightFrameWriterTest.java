@@ -0,0 +1,49 @@
+package com.miro.aviation.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miro.aviation.model.*;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightFrameWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private void assertMatchesJackson(FlightSnapshot snapshot) throws Exception {
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsBytes(snapshot)),
+                objectMapper.readTree(FlightFrameWriter.toJson(snapshot)));
+    }
+
+    @Test
+    void shouldMatchJacksonForRecordedSnapshot() throws Exception {
+        FlightRecording recording = FlightRecording.builder("test")
+                .add(1_700_000_000_000L, 60.3172, 24.9633, 1234.5, 251.3, 359.9)
+                .add(1_700_000_005_000L, -33.9461, 151.1772, 0.1, 0, 0)
+                .build();
+
+        for (int i = 0; i < recording.size(); i++) {
+            FlightSnapshot snapshot = recording.toSnapshot(i);
+            snapshot.setProgress(recording.getProgress(i));
+            assertMatchesJackson(snapshot);
+        }
+    }
+
+    @Test
+    void shouldMatchJacksonForSimulatedValues() throws Exception {
+        FlightSnapshot snapshot = new FlightSnapshot(
+                System.currentTimeMillis(),
+                new Attitude(-12.345678901234, 1e-7, 1.0E10),
+                new Altitude(35000, 30.01),
+                new AirSpeed(Double.NaN),
+                null,
+                new Position(-90, 180),
+                3);
+        assertMatchesJackson(snapshot);
+    }
+
+    @Test
+    void shouldWriteNullForMissingParts() throws Exception {
+        assertMatchesJackson(new FlightSnapshot());
+    }
+}
@@ -0,0 +1,83 @@
+package com.miro.aviation.utils;
+
+import com.miro.aviation.model.FlightRecording;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightRecordingFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldRoundTripThroughMappedFile() throws IOException {
+        FlightRecording original;
+        try (InputStream is = getClass().getResourceAsStream("/flights/test_flight.csv")) {
+            original = CsvFlightLoader.loadRecording("/flights/test_flight.csv", is);
+        }
+
+        Path file = tempDir.resolve("test_flight.avfr");
+        FlightRecordingFile.write(original, file);
+        FlightRecording mapped = FlightRecordingFile.map("/flights/test_flight.avfr", file);
+
+        assertEquals("/flights/test_flight.avfr", mapped.getSource());
+        assertEquals(original.size(), mapped.size());
+        assertEquals(16 + 3 * 28, Files.size(file), "Header plus 28 bytes per sample");
+        for (int i = 0; i < original.size(); i++) {
+            assertEquals(original.getTimestamp(i), mapped.getTimestamp(i));
+            assertEquals(original.getLatitude(i), mapped.getLatitude(i));
+            assertEquals(original.getLongitude(i), mapped.getLongitude(i));
+            assertEquals(original.getAltitude(i), mapped.getAltitude(i));
+            assertEquals(original.getSpeed(i), mapped.getSpeed(i));
+            assertEquals(original.getHeading(i), mapped.getHeading(i));
+        }
+        assertEquals(24.9650, mapped.toSnapshot(2).getPosition().getLongitude());
+    }
+
+    @Test
+    void shouldRejectOutOfRangeIndex() throws IOException {
+        Path file = tempDir.resolve("one.avfr");
+        FlightRecordingFile.write(FlightRecording.builder("one").add(1000, 60, 25, 0, 0, 0).build(), file);
+        FlightRecording mapped = FlightRecordingFile.map("one", file);
+
+        assertThrows(IndexOutOfBoundsException.class, () -> mapped.getAltitude(1));
+    }
+
+    @Test
+    void shouldRejectFilesThatAreNotRecordings() throws IOException {
+        Path file = tempDir.resolve("garbage.avfr");
+        Files.writeString(file, "Timestamp,Altitude,Speed\n1,2,3\n");
+
+        assertThrows(IOException.class, () -> FlightRecordingFile.map("garbage", file));
+    }
+
+    @Test
+    void shouldRejectTruncatedFiles() throws IOException {
+        Path file = tempDir.resolve("truncated.avfr");
+        FlightRecordingFile.write(FlightRecording.builder("t").add(1000, 60, 25, 0, 0, 0).build(), file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, java.util.Arrays.copyOf(bytes, bytes.length - 4));
+
+        assertThrows(IOException.class, () -> FlightRecordingFile.map("truncated", file));
+    }
+
+    @Test
+    void converterShouldWriteBinaryNextToBaseName() throws IOException {
+        Path csv = tempDir.resolve("flight.csv");
+        try (InputStream is = getClass().getResourceAsStream("/flights/test_flight.csv")) {
+            Files.copy(is, csv);
+        }
+
+        Path target = FlightRecordingConverter.convert(csv, tempDir.resolve("out"));
+
+        assertEquals(tempDir.resolve("out").resolve("flight.avfr"), target);
+        assertEquals(3, FlightRecordingFile.map("flight", target).size());
+    }
+}
@@ -0,0 +1,83 @@
+package com.miro.aviation.utils;
+
+import com.miro.aviation.model.NavPoint;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NavDataSnapshotFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final List<NavPoint> airports = List.of(
+            new NavPoint("EFHK", "large_airport", 60.3183, 24.9633),
+            new NavPoint("EFNU", "small_airport", 60.3339, 24.2964),
+            new NavPoint("ÖST", "small_airport", -33.123456789012345, 179.99999999999997)
+    );
+
+    @Test
+    void shouldRoundTripAirportsInOrder() throws IOException {
+        Path file = tempDir.resolve("airports.avnd");
+        NavDataSnapshotFile.write(airports, 42, file);
+
+        List<NavPoint> read = NavDataSnapshotFile.read(file, 42);
+
+        assertNotNull(read);
+        assertEquals(airports.size(), read.size());
+        for (int i = 0; i < airports.size(); i++) {
+            assertEquals(airports.get(i).getIdent(), read.get(i).getIdent());
+            assertEquals(airports.get(i).getType(), read.get(i).getType());
+            assertEquals(airports.get(i).getLatitude(), read.get(i).getLatitude());
+            assertEquals(airports.get(i).getLongitude(), read.get(i).getLongitude());
+        }
+        assertSame(read.get(1).getType(), read.get(2).getType(), "Types are deduplicated");
+        try (var files = Files.list(tempDir)) {
+            assertEquals(List.of(file), files.toList(), "No temporary file is left behind");
+        }
+    }
+
+    @Test
+    void shouldReturnNullForAnotherSourceChecksum() throws IOException {
+        Path file = tempDir.resolve("airports.avnd");
+        NavDataSnapshotFile.write(airports, NavDataSnapshotFile.checksum("a".getBytes()), file);
+
+        assertNull(NavDataSnapshotFile.read(file, NavDataSnapshotFile.checksum("b".getBytes())));
+    }
+
+    @Test
+    void shouldRejectFilesThatAreNotSnapshots() throws IOException {
+        Path file = tempDir.resolve("garbage.avnd");
+        Files.writeString(file, "ident,type,latitude_deg,longitude_deg\nEFHK,large_airport,60,24\n");
+
+        assertThrows(IOException.class, () -> NavDataSnapshotFile.read(file, 0));
+    }
+
+    @Test
+    void shouldRejectTruncatedSnapshots() throws IOException {
+        Path file = tempDir.resolve("truncated.avnd");
+        NavDataSnapshotFile.write(airports, 7, file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, java.util.Arrays.copyOf(bytes, bytes.length - 3));
+
+        assertThrows(IOException.class, () -> NavDataSnapshotFile.read(file, 7));
+    }
+
+    @Test
+    void shouldRejectDamagedSnapshotWithIntactHeader() throws IOException {
+        Path file = tempDir.resolve("damaged.avnd");
+        NavDataSnapshotFile.write(airports, 7, file);
+        byte[] bytes = Files.readAllBytes(file);
+        // Flip a bit in the first latitude, which the header does not describe
+        bytes[40] ^= 0x01;
+        Files.write(file, bytes);
+
+        assertThrows(IOException.class, () -> NavDataSnapshotFile.read(file, 7));
+    }
+}
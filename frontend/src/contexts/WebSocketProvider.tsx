@@ -8,6 +8,10 @@ interface WebSocketProviderProps {
 }
 
 const RECONNECT_INTERVAL = 5000;
+// Frames per second requested while the tab is hidden; 0 means the full broadcast rate
+const BACKGROUND_FRAME_RATE = 1;
+
+const requestedFrameRate = () => (document.hidden ? BACKGROUND_FRAME_RATE : 0);
 
 export const WebSocketProvider = ({ children }: WebSocketProviderProps) => {
   const [snapshot, setSnapshot] = useState<FlightSnapshot | null>(null);
@@ -72,7 +76,11 @@ export const WebSocketProvider = ({ children }: WebSocketProviderProps) => {
         const current = stateRef.current;
         client.publish({
           destination: '/app/switchProvider',
-          body: JSON.stringify({ type: current.activeProvider, fileName: current.selectedFlight }),
+          body: JSON.stringify({
+            type: current.activeProvider,
+            fileName: current.selectedFlight,
+            rate: requestedFrameRate(),
+          }),
         });
         client.publish({
           destination: '/app/pause',
@@ -105,6 +113,20 @@ export const WebSocketProvider = ({ children }: WebSocketProviderProps) => {
     // The connection should stay open during provider switches.
   }, []);
 
+  // Background tabs do not render, so ask the server for fewer frames while hidden
+  useEffect(() => {
+    const onVisibilityChange = () => {
+      if (clientRef.current?.connected) {
+        clientRef.current.publish({
+          destination: '/app/rate',
+          body: JSON.stringify({ rate: requestedFrameRate() }),
+        });
+      }
+    };
+    document.addEventListener('visibilitychange', onVisibilityChange);
+    return () => document.removeEventListener('visibilitychange', onVisibilityChange);
+  }, []);
+
   const switchProvider = useCallback((provider: 'simulated' | 'recorded', fileName?: string) => {
     if (clientRef.current?.connected) {
       // Send everything in ONE payload to avoid race conditions
@@ -115,6 +137,7 @@ export const WebSocketProvider = ({ children }: WebSocketProviderProps) => {
           fileName: fileName,
           paused: stateRef.current.isPaused, // Use current UI state
           speed: stateRef.current.speed,
+          rate: requestedFrameRate(),
         }),
       });
     }
@@ -1,8 +1,49 @@
 import { useState, useEffect, useRef } from 'react';
 import { useFlightData } from './useFlightData';
-import { pointsToGeoJSON } from '../utils/navDataUtils';
+import { NavPoint, pointsToGeoJSON } from '../utils/navDataUtils';
 import { getDistanceNM, GeoPoint } from '../utils/geoUtils';
 
+/** Zoom level of the nav data tiles requested from the backend (~160 NM wide at the equator) */
+const TILE_ZOOM = 7;
+
+/** Tiles kept in memory; a 200 NM radius needs a few dozen */
+const MAX_CACHED_TILES = 256;
+
+/** Latitude limit of Web Mercator; the outermost tile rows extend to the poles */
+const MAX_MERCATOR_LAT = 85.0511;
+
+/**
+ * Returns the `z/x/y` keys of the tiles covering a radius around a position.
+ */
+function tilesAround(pos: GeoPoint, radiusNM: number): string[] {
+  const n = 2 ** TILE_ZOOM;
+  const tileY = (lat: number) => {
+    const latRad = (Math.max(-MAX_MERCATOR_LAT, Math.min(MAX_MERCATOR_LAT, lat)) * Math.PI) / 180;
+    const y = (1 - Math.log(Math.tan(latRad) + 1 / Math.cos(latRad)) / Math.PI) / 2;
+    return Math.max(0, Math.min(n - 1, Math.floor(y * n)));
+  };
+
+  // One degree of latitude is 60 NM; longitude degrees shrink towards the poles
+  const dLat = radiusNM / 60;
+  const cosLat = Math.cos((Math.min(89, Math.abs(pos.lat) + dLat) * Math.PI) / 180);
+  const dLon = radiusNM / (60 * cosLat);
+
+  const xs: number[] = [];
+  if (dLon >= 180) {
+    for (let x = 0; x < n; x++) xs.push(x);
+  } else {
+    const west = Math.floor(((pos.lon - dLon + 180) / 360) * n);
+    const east = Math.floor(((pos.lon + dLon + 180) / 360) * n);
+    for (let x = west; x <= east; x++) xs.push(((x % n) + n) % n);
+  }
+
+  const keys: string[] = [];
+  for (let y = tileY(pos.lat + dLat); y <= tileY(pos.lat - dLat); y++) {
+    for (const x of xs) keys.push(`${TILE_ZOOM}/${x}/${y}`);
+  }
+  return keys;
+}
+
 /**
  * Fetches nearby navigation data (airports, navaids, fixes, etc.)
  * around the aircraft position.
@@ -14,6 +55,11 @@ import { getDistanceNM, GeoPoint } from '../utils/geoUtils';
  *
  * Fetching is primarily driven by distance traveled, with a
  * secondary throttle based on *simulation time* (not wall-clock time).
+ *
+ * Nav data is loaded as fixed map tiles rather than per-position radius
+ * queries. Tiles already loaded are kept in memory and only missing ones
+ * are requested, so flying over (or replaying) an area fetches it once;
+ * the tile URLs are also cacheable by the browser across sessions.
  */
 export function useNearbyNavData(
   fetchRadiusNM = 200, // Radius (NM) sent to backend for nav data
@@ -44,6 +90,11 @@ export function useNearbyNavData(
    */
   const isFetching = useRef(false);
 
+  /**
+   * Nav points of the tiles loaded so far, by `z/x/y`, oldest first.
+   */
+  const tiles = useRef(new Map<string, NavPoint[]>());
+
   useEffect(() => {
     // Require a valid aircraft position
     if (!snapshot?.position?.latitude || !snapshot?.position?.longitude) {
@@ -117,23 +168,40 @@ export function useNearbyNavData(
       lastFetchTime.current = nowSim;
       lastFetchPos.current = currentPos;
 
-      const url =
-        `http://localhost:8080/api/nav/nearby` +
-        `?lat=${currentPos.lat}` +
-        `&lon=${currentPos.lon}` +
-        `&radius=${fetchRadiusNM}`;
+      const keys = tilesAround(currentPos, fetchRadiusNM);
+      const missing = keys.filter((key) => !tiles.current.has(key));
 
-      fetch(url)
-        .then((res) => {
-          if (!res.ok) {
-            throw new Error(`Server error: ${res.status}`);
+      Promise.all(
+        missing.map((key) =>
+          fetch(`http://localhost:8080/api/nav/tiles/${key}`)
+            .then((res) => {
+              if (!res.ok) {
+                throw new Error(`Server error: ${res.status}`);
+              }
+              return res.json();
+            })
+            .then((points: NavPoint[]) => {
+              tiles.current.set(key, points);
+            })
+        )
+      )
+        .then(() => {
+          const points = keys
+            .flatMap((key) => tiles.current.get(key) ?? [])
+            .filter(
+              (p) => getDistanceNM(currentPos, { lat: p.latitude, lon: p.longitude }) <= fetchRadiusNM
+            );
+          setNavData(pointsToGeoJSON(points));
+
+          // Evict the oldest tiles, keeping the ones in view
+          for (const key of tiles.current.keys()) {
+            if (tiles.current.size <= Math.max(MAX_CACHED_TILES, keys.length)) break;
+            if (!keys.includes(key)) tiles.current.delete(key);
           }
-          return res.json();
-        })
-        .then((data) => {
-          setNavData(pointsToGeoJSON(data));
         })
         .catch((err) => {
+          // Allow a retry for the tiles that failed
+          lastFetchPos.current = null;
           console.warn('NavData fetch failed:', err.message);
         })
         .finally(() => {